@@ -17,7 +17,10 @@
 
 package com.nextiva.scheduling.agent;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import com.nextiva.scheduling.api.Scheduler;
 
@@ -26,7 +29,11 @@ import com.nextiva.scheduling.api.Scheduler;
  */
 public abstract class AbstractScheduledJob implements ScheduledJob {
 
+    private static final long DEFAULT_CHECKPOINT_SECONDS = 10;
+
     private Scheduler scheduler;
+    private Duration checkpointInterval = Duration.ofSeconds(DEFAULT_CHECKPOINT_SECONDS);
+    private boolean verifyCheckpoints = true;
 
     /**
      * Sets the Scheduler.
@@ -37,6 +44,24 @@ public abstract class AbstractScheduledJob implements ScheduledJob {
         this.scheduler = scheduler;
     }
 
+    /**
+     * Sets the minimum time between checkpoint writes.
+     * @param seconds The interval in seconds.
+     */
+    @Value("${nextkala.agent.checkpoint.interval-seconds:" + DEFAULT_CHECKPOINT_SECONDS + "}")
+    public final void setCheckpointInterval(long seconds) {
+        this.checkpointInterval = Duration.ofSeconds(seconds);
+    }
+
+    /**
+     * Sets whether checkpoints read the job's parameters back before each write to merge other writers' changes.
+     * @param verify false if the job is the only writer of its parameters.
+     */
+    @Value("${nextkala.agent.checkpoint.verify-writes:true}")
+    public final void setVerifyCheckpoints(boolean verify) {
+        this.verifyCheckpoints = verify;
+    }
+
     /**
      * Retrieve the scheduling client.
      * @return the SchedulingClient.
@@ -45,6 +70,42 @@ public abstract class AbstractScheduledJob implements ScheduledJob {
         return scheduler;
     }
 
+    /**
+     * Return the progress of the run executing on the current thread.
+     * @return The run's progress.
+     */
+    protected RunProgress getProgress() {
+        return RunProgress.current();
+    }
+
+    /**
+     * Report the percentage of the current run that is complete.
+     * @param percentDone The percentage, from 0 to 100.
+     */
+    protected void reportProgress(double percentDone) {
+        RunProgress.current().percentDone(percentDone);
+    }
+
+    /**
+     * Report the percentage of the current run that is complete and what it is doing.
+     * @param percentDone The percentage, from 0 to 100.
+     * @param message The message.
+     */
+    protected void reportProgress(double percentDone, String message) {
+        RunProgress.current().percentDone(percentDone).message(message);
+    }
+
+    /**
+     * Create a checkpoint that persists the run's state in the job's parameters. Writes are limited to one per
+     * {@code nextkala.agent.checkpoint.interval-seconds} and skipped when the state has not changed.
+     * @param jobId The job's id.
+     * @param jobParams The parameters the run received.
+     * @return The checkpoint, which should be closed when the run ends.
+     */
+    protected Checkpoint checkpoint(String jobId, String jobParams) {
+        return new Checkpoint(scheduler, jobId, jobParams, checkpointInterval, verifyCheckpoints);
+    }
+
     /**
      * Update the job's parameters.
      * @param jobId The job's id.
@@ -0,0 +1,51 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A scheduled job that runs asynchronously. The agent's thread is released as soon as
+ * {@link #executeJobAsync(String, String, String)} returns and the run's status is reported when the returned
+ * stage completes, so a job waiting on I/O does not hold a thread while it waits. Cancelling the run, on request
+ * or because its timeout has expired, cancels the stage's future.
+ */
+public interface AsyncScheduledJob extends ScheduledJob {
+
+    /**
+     * Starts a job without waiting for it to complete.
+     * @param jobId The job's id.
+     * @param executionId The id of the job run.
+     * @param jobParams The parameters defined for the Job. May be a String containing a JSON object.
+     * @return A stage that completes with the completion status of the job.
+     */
+    CompletionStage<Integer> executeJobAsync(String jobId, String executionId, String jobParams);
+
+    /**
+     * Executes the job and waits for it to complete.
+     * @param jobId The job's id.
+     * @param executionId The id of the job run.
+     * @param jobParams The parameters defined for the Job. May be a String containing a JSON object.
+     * @return The completion status of the job.
+     */
+    @Override
+    default int executeJob(String jobId, String executionId, String jobParams) {
+        return executeJobAsync(jobId, executionId, jobParams).toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nextiva.scheduling.api.AsyncScheduler;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+
+/**
+ * Non-blocking client to access the scheduler. Requests are sent with the JDK's {@link HttpClient} so no
+ * thread is held while a request is in flight.
+ */
+public class AsyncSchedulerClient implements AsyncScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger(AsyncSchedulerClient.class);
+    private static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+    private static final TypeReference<List<JobDefinition>> JOB_LIST = new TypeReference<>() { };
+    private static final TypeReference<List<JobStat>> JOB_STAT_LIST = new TypeReference<>() { };
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Endpoints endpoints;
+
+    /**
+     * Create a client using a default HttpClient and ObjectMapper.
+     * @param baseUri The base URI of the NextKala service.
+     */
+    public AsyncSchedulerClient(String baseUri) {
+        this(HttpClient.newHttpClient(), new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false), baseUri);
+    }
+
+    /**
+     * Create a client.
+     * @param httpClient The HttpClient to send requests with.
+     * @param objectMapper The ObjectMapper used to convert request and response bodies.
+     * @param baseUri The base URI of the NextKala service.
+     */
+    public AsyncSchedulerClient(HttpClient httpClient, ObjectMapper objectMapper, String baseUri) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.endpoints = new Endpoints(baseUri);
+    }
+
+    @Override
+    public CompletableFuture<String> addJob(JobDefinition jobDefinition, String token) {
+        HttpRequest request = request(endpoints.jobs.expand(), token, true)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(jobDefinition))).build();
+        return send(request, HttpStatus.OK).thenApply(body -> {
+            if (body == null || body.length == 0) {
+                return null;
+            }
+            JsonNode id = readTree(body).get("id");
+            return id != null ? id.asText() : null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<JobDefinition> getJob(String id, String token) {
+        HttpRequest request = request(endpoints.job.expand(id), token, true).GET().build();
+        return send(request, HttpStatus.OK).thenApply(body -> fromJson(body, JobDefinition.class));
+    }
+
+    @Override
+    public CompletableFuture<String> getJobParameters(String id, String token) {
+        HttpRequest request = request(endpoints.jobParams.expand(id), token, true).GET().build();
+        return send(request, HttpStatus.OK)
+                .thenApply(body -> body != null ? new String(body, StandardCharsets.UTF_8) : null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setJobParameters(String id, String params, String token) {
+        HttpRequest request = request(endpoints.jobParams.expand(id), token, true)
+                .PUT(params != null ? HttpRequest.BodyPublishers.ofString(params)
+                        : HttpRequest.BodyPublishers.noBody()).build();
+        return send(request, HttpStatus.NO_CONTENT).thenApply(body -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> startJob(String id, String token) {
+        return post(endpoints.startJob.expand(id), token);
+    }
+
+    @Override
+    public CompletableFuture<Void> enableJob(String id, String token) {
+        return post(endpoints.enableJob.expand(id), token);
+    }
+
+    @Override
+    public CompletableFuture<Void> disableJob(String id, String token) {
+        return post(endpoints.disableJob.expand(id), token);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllJobs(String token) {
+        HttpRequest request = request(endpoints.deleteAllJobs.expand(), token, false).DELETE().build();
+        return send(request, HttpStatus.OK).thenApply(body -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteJob(String id, String token) {
+        HttpRequest request = request(endpoints.deleteJob.expand(id), token, false).DELETE().build();
+        return send(request, HttpStatus.OK).thenApply(body -> null);
+    }
+
+    @Override
+    public CompletableFuture<List<JobDefinition>> listJobs(String token) {
+        HttpRequest request = request(endpoints.jobs.expand(), token, true).GET().build();
+        return send(request, HttpStatus.OK).thenApply(body -> fromJson(body, JOB_LIST));
+    }
+
+    @Override
+    public CompletableFuture<JobStat> getJobExecutionStats(String executionId, String token) {
+        HttpRequest request = request(endpoints.executionStats.expand(executionId), token, true).GET().build();
+        return send(request, HttpStatus.OK).thenApply(body -> fromJson(body, JobStat.class));
+    }
+
+    @Override
+    public CompletableFuture<List<JobStat>> getAllJobExecutionStats(String jobId, String token) {
+        HttpRequest request = request(endpoints.jobExecutions.expand(jobId), token, true).GET().build();
+        return send(request, HttpStatus.OK).thenApply(body -> fromJson(body, JOB_STAT_LIST));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateJobExecutionStatus(String jobId, String executionId, JobStatus status,
+            String token) {
+        HttpRequest request = request(endpoints.execution.expand(jobId, executionId), token, true)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(toJson(status))).build();
+        return send(request, HttpStatus.NO_CONTENT).thenApply(body -> null);
+    }
+
+    private CompletableFuture<Void> post(URI uri, String token) {
+        HttpRequest request = request(uri, token, true).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return send(request, HttpStatus.OK).thenApply(body -> null);
+    }
+
+    /*
+     * Sends the request and completes with the response body when the expected status is returned. Any other
+     * status is logged and completes with null, matching the behavior of SchedulerClient. I/O failures complete
+     * the future exceptionally.
+     */
+    private CompletableFuture<byte[]> send(HttpRequest request, HttpStatus expected) {
+        LOGGER.trace("Sending {} {}", request.method(), request.uri());
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() != expected.value()) {
+                LOGGER.error("Call to {} returned {}", request.uri(), response.statusCode());
+                return null;
+            }
+            return response.body();
+        });
+    }
+
+    private HttpRequest.Builder request(URI uri, String token, boolean json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if (json) {
+            builder.header(HttpHeaders.CONTENT_TYPE, JSON).header(HttpHeaders.ACCEPT, JSON);
+        }
+        if (token != null) {
+            builder.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return builder;
+    }
+
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Unable to convert " + value.getClass().getSimpleName()
+                    + " to JSON", ex);
+        }
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> T fromJson(byte[] body, Class<T> type) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> T fromJson(byte[] body, TypeReference<T> type) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nextiva.scheduling.api.Scheduler;
+
+/**
+ * Persists the state of a resumable job in its parameters. Changes are written at most once per interval and
+ * only when the state differs from what was last written, so a job may checkpoint after every chunk of work
+ * cheaply. A change deferred by the interval is written by a background thread once the interval has passed,
+ * even if the job makes no further change. Requests to NextKala are made without holding the checkpoint's
+ * lock, so a slow write never delays a change; a change made while a write is in progress is written once the
+ * interval has passed. Close the checkpoint, normally with try-with-resources, to write the final state whether
+ * the run completes or fails.
+ *
+ * <p>When writes are verified the parameters are first read back from NextKala. If another writer has changed
+ * their content since they were last read or written here, and both versions are JSON objects, only the fields
+ * changed through this checkpoint are applied to the other writer's version so that neither loses its updates;
+ * a field changed by both takes this checkpoint's value. JSON is compared by value, so parameters that were
+ * only reformatted are not a conflict. NextKala does not support conditional updates, so a write made between
+ * the read and the write can still be overwritten. A job that is the only writer of its parameters can skip
+ * the read.</p>
+ */
+public final class Checkpoint implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(Checkpoint.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int FLUSH_THREADS = 4;
+    private static final ScheduledThreadPoolExecutor FLUSHER = createFlusher();
+
+    private final Scheduler scheduler;
+    private final String jobId;
+    private final long intervalNanos;
+    private final boolean verify;
+    private String base;
+    private String state;
+    private ObjectNode fields;
+    private long lastWriteNanos;
+    private boolean written;
+    private long writes;
+    private long skipped;
+    private long conflicts;
+    private ScheduledFuture<?> pendingFlush;
+    private boolean saving;
+    private boolean closed;
+
+    /**
+     * Create a Checkpoint.
+     * @param scheduler The Scheduler the parameters are written with.
+     * @param jobId The job's id.
+     * @param params The job's parameters when the run started.
+     * @param interval The minimum time between writes.
+     * @param verify Whether the parameters are read back before each write to merge changes by other writers.
+     */
+    public Checkpoint(Scheduler scheduler, String jobId, String params, Duration interval, boolean verify) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.jobId = jobId;
+        this.intervalNanos = interval.toNanos();
+        this.verify = verify;
+        this.base = params;
+        this.state = params;
+    }
+
+    /**
+     * Replace the state.
+     * @param params The new state.
+     * @return true if the state was written or is unchanged, false if the write was deferred or failed.
+     */
+    public boolean set(String params) {
+        synchronized (this) {
+            state = params;
+            fields = null;
+        }
+        return save(false);
+    }
+
+    /**
+     * Set one field of a state that is a JSON object. Only the fields that change are applied if another writer
+     * has changed the parameters.
+     * @param field The name of the field.
+     * @param value The value, which is converted to JSON.
+     * @return true if the state was written or is unchanged, false if the write was deferred or failed.
+     * @throws IllegalStateException if the state is not a JSON object.
+     */
+    public boolean put(String field, Object value) {
+        synchronized (this) {
+            ObjectNode object = getFields();
+            object.set(field, MAPPER.valueToTree(value));
+            state = null;
+        }
+        return save(false);
+    }
+
+    /**
+     * Remove one field of a state that is a JSON object.
+     * @param field The name of the field.
+     * @return true if the state was written or is unchanged, false if the write was deferred or failed.
+     * @throws IllegalStateException if the state is not a JSON object.
+     */
+    public boolean remove(String field) {
+        synchronized (this) {
+            getFields().remove(field);
+            state = null;
+        }
+        return save(false);
+    }
+
+    /**
+     * Return the current state.
+     * @return The state.
+     */
+    public synchronized String get() {
+        return getState();
+    }
+
+    /**
+     * Write the state now if it has changed, first waiting for any write in progress.
+     * @return true if the state was written or is unchanged.
+     */
+    public boolean flush() {
+        return save(true);
+    }
+
+    /**
+     * Write the state if it has changed and stop writing deferred changes in the background.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            cancelFlush();
+        }
+        if (!save(true)) {
+            LOGGER.warn("Unable to write the final checkpoint of job {}", jobId);
+        }
+    }
+
+    /**
+     * Return the number of times the state was written.
+     * @return The number of writes.
+     */
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * Return the number of writes skipped because the state had not changed.
+     * @return The number of skipped writes.
+     */
+    public synchronized long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Return the number of writes that found the parameters changed by another writer.
+     * @return The number of conflicts.
+     */
+    public synchronized long getConflictCount() {
+        return conflicts;
+    }
+
+    /*
+     * Copies the state while holding the lock, makes the requests to NextKala without it, then records the
+     * write while holding the lock again. Only one write is in progress at a time. A deferred write that finds
+     * one in progress leaves the change to the background flush that follows it, while an immediate write
+     * waits for it.
+     */
+    private boolean save(boolean now) {
+        String original;
+        String current;
+        long time;
+        synchronized (this) {
+            current = getState();
+            if (Objects.equals(current, base)) {
+                ++skipped;
+                return true;
+            }
+            time = System.nanoTime();
+            if (!now && (saving || (written && time - lastWriteNanos < intervalNanos))) {
+                scheduleFlush(saving ? intervalNanos : intervalNanos - (time - lastWriteNanos));
+                return false;
+            }
+            while (saving) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            current = getState();
+            if (Objects.equals(current, base)) {
+                ++skipped;
+                return true;
+            }
+            original = base;
+            time = System.nanoTime();
+            saving = true;
+        }
+        String saved = null;
+        try {
+            saved = write(original, current);
+        } finally {
+            synchronized (this) {
+                saving = false;
+                notifyAll();
+                if (saved != null) {
+                    recordWrite(time, original, current, saved);
+                }
+            }
+        }
+        return saved != null;
+    }
+
+    /*
+     * Returns the parameters that were written, which differ from the state if they were merged with changes
+     * made by another writer, or null if they could not be written.
+     */
+    private String write(String original, String current) {
+        try {
+            String saved = current;
+            if (verify) {
+                String remote = scheduler.getJobParameters(jobId);
+                if (remote == null) {
+                    LOGGER.warn("Unable to read the parameters of job {} before writing its checkpoint", jobId);
+                    return null;
+                }
+                if (!sameContent(remote, original)) {
+                    synchronized (this) {
+                        ++conflicts;
+                    }
+                    saved = merge(original, current, remote);
+                }
+            }
+            scheduler.setJobParameters(jobId, saved);
+            return saved;
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Unable to write the checkpoint of job {}: {}", jobId, ex.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * Must be called while holding the lock. When the parameters were merged but the state changed while they
+     * were being written, the base is left as it was so the next write merges the change again.
+     */
+    private void recordWrite(long time, String original, String current, String saved) {
+        written = true;
+        lastWriteNanos = time;
+        ++writes;
+        if (Objects.equals(getState(), current)) {
+            if (!saved.equals(current)) {
+                state = saved;
+                fields = null;
+            }
+            base = saved;
+        } else if (saved.equals(current)) {
+            base = saved;
+        } else {
+            base = original;
+        }
+        if (Objects.equals(getState(), base)) {
+            cancelFlush();
+        } else {
+            scheduleFlush(intervalNanos);
+        }
+    }
+
+    private void scheduleFlush(long delayNanos) {
+        if (pendingFlush == null && !closed) {
+            pendingFlush = FLUSHER.schedule(this::flushDeferred, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushDeferred() {
+        synchronized (this) {
+            pendingFlush = null;
+            if (closed || saving) {
+                return;
+            }
+        }
+        save(true);
+    }
+
+    private void cancelFlush() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+    }
+
+    private String getState() {
+        if (state == null && fields != null) {
+            try {
+                state = MAPPER.writeValueAsString(fields);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Unable to serialize the checkpoint of job " + jobId, ex);
+            }
+        }
+        return state;
+    }
+
+    private ObjectNode getFields() {
+        if (fields == null) {
+            JsonNode node = parse(getState());
+            if (node == null && isEmpty(state)) {
+                node = MAPPER.createObjectNode();
+            }
+            if (!(node instanceof ObjectNode)) {
+                throw new IllegalStateException("The checkpoint of job " + jobId + " is not a JSON object");
+            }
+            fields = (ObjectNode) node;
+        }
+        return fields;
+    }
+
+    private String merge(String original, String ours, String theirs) {
+        JsonNode originalNode = isEmpty(original) ? MAPPER.createObjectNode() : parse(original);
+        JsonNode ourNode = parse(ours);
+        JsonNode theirNode = parse(theirs);
+        if (!(originalNode instanceof ObjectNode) || !(ourNode instanceof ObjectNode)
+                || !(theirNode instanceof ObjectNode)) {
+            LOGGER.warn("The parameters of job {} were changed by another writer and will be overwritten", jobId);
+            return ours;
+        }
+        ObjectNode merged = ((ObjectNode) theirNode).deepCopy();
+        Iterator<Map.Entry<String, JsonNode>> iterator = ourNode.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            if (!field.getValue().equals(originalNode.get(field.getKey()))) {
+                merged.set(field.getKey(), field.getValue());
+            }
+        }
+        Iterator<String> names = originalNode.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!ourNode.has(name)) {
+                merged.remove(name);
+            }
+        }
+        LOGGER.info("Merged the checkpoint of job {} with changes made by another writer", jobId);
+        return merged.toString();
+    }
+
+    private static boolean sameContent(String first, String second) {
+        if (isEmpty(first) || isEmpty(second)) {
+            return isEmpty(first) && isEmpty(second);
+        }
+        if (first.equals(second)) {
+            return true;
+        }
+        JsonNode firstNode = parse(first);
+        return firstNode != null && firstNode.equals(parse(second));
+    }
+
+    private static ScheduledThreadPoolExecutor createFlusher() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(FLUSH_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "nextkala-agent-checkpoint-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static boolean isEmpty(String json) {
+        return json == null || json.trim().isEmpty();
+    }
+
+    private static JsonNode parse(String json) {
+        if (isEmpty(json)) {
+            return null;
+        }
+        try {
+            return MAPPER.readTree(json);
+        } catch (JsonProcessingException ex) {
+            return null;
+        }
+    }
+}
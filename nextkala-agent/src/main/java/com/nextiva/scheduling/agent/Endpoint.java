@@ -0,0 +1,156 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A NextKala endpoint whose URI template is parsed once, when the client is created. Expanding the endpoint
+ * only appends the literal parts of the template and the encoded path segment values, so building a request
+ * URI costs a single StringBuilder and the URI itself.
+ */
+final class Endpoint {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String[] literals;
+    private final int literalLength;
+
+    private Endpoint(String[] literals) {
+        this.literals = literals;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compile an endpoint. Variables in the path are written as {name} and must each occupy a complete path
+     * segment. Duplicate slashes in the path are removed.
+     * @param baseUri The base URI of the NextKala service.
+     * @param path The path template, relative to the base URI.
+     * @return The Endpoint.
+     */
+    static Endpoint compile(String baseUri, String path) {
+        String template = normalize(baseUri, path);
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int open = template.indexOf('{');
+        while (open >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated variable in " + template);
+            }
+            parts.add(template.substring(start, open));
+            start = close + 1;
+            open = template.indexOf('{', start);
+        }
+        parts.add(template.substring(start));
+        return new Endpoint(parts.toArray(new String[0]));
+    }
+
+    /**
+     * Return the number of variables in the endpoint.
+     * @return The number of variables.
+     */
+    int getVariableCount() {
+        return literals.length - 1;
+    }
+
+    /**
+     * Create the URI for the endpoint.
+     * @param values The values of the variables, in the order they appear in the template.
+     * @return The URI.
+     */
+    URI expand(String... values) {
+        if (values.length != literals.length - 1) {
+            throw new IllegalArgumentException("Expected " + (literals.length - 1) + " values but received "
+                    + values.length);
+        }
+        if (values.length == 0) {
+            return URI.create(literals[0]);
+        }
+        int length = literalLength;
+        for (String value : values) {
+            length += value.length();
+        }
+        StringBuilder sb = new StringBuilder(length + 16);
+        sb.append(literals[0]);
+        for (int i = 0; i < values.length; ++i) {
+            appendSegment(sb, values[i]);
+            sb.append(literals[i + 1]);
+        }
+        return URI.create(sb.toString());
+    }
+
+    /**
+     * Append a path segment, percent-encoding every character that is not unreserved as defined by RFC 3986.
+     * @param sb The StringBuilder to append to.
+     * @param segment The path segment.
+     */
+    static void appendSegment(StringBuilder sb, String segment) {
+        int length = segment.length();
+        int i = 0;
+        while (i < length && isUnreserved(segment.charAt(i))) {
+            ++i;
+        }
+        if (i == length) {
+            sb.append(segment);
+            return;
+        }
+        sb.append(segment, 0, i);
+        byte[] bytes = segment.substring(i).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            char ch = (char) (b & 0xFF);
+            if (isUnreserved(ch)) {
+                sb.append(ch);
+            } else {
+                sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '-'
+                || ch == '.' || ch == '_' || ch == '~';
+    }
+
+    private static String normalize(String baseUri, String path) {
+        String uri = baseUri + path;
+        int scheme = uri.indexOf("://");
+        int pathStart = uri.indexOf('/', scheme >= 0 ? scheme + 3 : 0);
+        if (pathStart < 0) {
+            return uri;
+        }
+        StringBuilder sb = new StringBuilder(uri.length());
+        sb.append(uri, 0, pathStart);
+        char previous = 0;
+        for (int i = pathStart; i < uri.length(); ++i) {
+            char ch = uri.charAt(i);
+            if (ch != '/' || previous != '/') {
+                sb.append(ch);
+            }
+            previous = ch;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent;
+
+/**
+ * The NextKala endpoints, compiled for a particular base URI.
+ */
+final class Endpoints {
+
+    private static final String BASE_PATH = "/api/v1/";
+    private static final String API_JOB_PATH = BASE_PATH + "job/";
+
+    final Endpoint jobs;
+    final Endpoint job;
+    final Endpoint deleteJob;
+    final Endpoint jobParams;
+    final Endpoint deleteAllJobs;
+    final Endpoint startJob;
+    final Endpoint enableJob;
+    final Endpoint disableJob;
+    final Endpoint executionStats;
+    final Endpoint jobExecutions;
+    final Endpoint execution;
+
+    Endpoints(String baseUri) {
+        jobs = Endpoint.compile(baseUri, API_JOB_PATH);
+        job = Endpoint.compile(baseUri, API_JOB_PATH + "{id}/");
+        deleteJob = Endpoint.compile(baseUri, API_JOB_PATH + "{id}");
+        jobParams = Endpoint.compile(baseUri, API_JOB_PATH + "{id}/params/");
+        deleteAllJobs = Endpoint.compile(baseUri, API_JOB_PATH + "all/");
+        startJob = Endpoint.compile(baseUri, API_JOB_PATH + "start/{id}/");
+        enableJob = Endpoint.compile(baseUri, API_JOB_PATH + "enable/{id}/");
+        disableJob = Endpoint.compile(baseUri, API_JOB_PATH + "disable/{id}/");
+        executionStats = Endpoint.compile(baseUri, API_JOB_PATH + "executions/{executionId}/");
+        jobExecutions = Endpoint.compile(baseUri, API_JOB_PATH + "{id}/executions/");
+        execution = Endpoint.compile(baseUri, API_JOB_PATH + "{id}/executions/{executionId}/");
+    }
+}
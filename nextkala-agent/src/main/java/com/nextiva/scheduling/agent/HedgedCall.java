@@ -0,0 +1,139 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.web.client.RestClientException;
+
+import com.nextiva.scheduling.agent.transport.Cancellation;
+import com.nextiva.scheduling.agent.transport.Deadline;
+import com.nextiva.scheduling.agent.transport.DeadlineExceededException;
+
+/**
+ * Identical requests of which the first successful answer is used. The first request is sent on the calling
+ * thread and a hedged request may be sent on another. Once a request succeeds the other is cancelled, which
+ * releases the calling thread if its request is still in flight. The call fails only once every request that
+ * was sent has failed, with the failure of the last.
+ */
+final class HedgedCall<T> {
+
+    private static final int FIRST = 0;
+    private static final int HEDGE = 1;
+
+    private final String name;
+    private final Supplier<T> request;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final AtomicInteger outstanding = new AtomicInteger(1);
+    private final AtomicInteger winner = new AtomicInteger(-1);
+    private final Cancellation[] cancellations = {new Cancellation(), new Cancellation()};
+    private volatile RuntimeException failure;
+
+    HedgedCall(String name, Supplier<T> request) {
+        this.name = name;
+        this.request = request;
+    }
+
+    /**
+     * Send the first request on the calling thread and wait for the first successful answer.
+     * @param deadline The deadline of the call, or null to wait until a request completes.
+     * @return The answer.
+     * @throws DeadlineExceededException if the deadline expires first.
+     */
+    T call(Deadline deadline) {
+        send(FIRST);
+        return get(deadline);
+    }
+
+    /**
+     * Send the hedged request unless the call has already completed.
+     * @param executor Sends the hedged request.
+     * @return true if the request was sent, false if the call had completed or the executor had no thread free.
+     */
+    boolean hedge(Executor executor) {
+        outstanding.incrementAndGet();
+        if (!result.isDone()) {
+            try {
+                executor.execute(() -> send(HEDGE));
+                return true;
+            } catch (RejectedExecutionException ex) {
+                // Every hedging thread is busy, so the call relies on its first request.
+            }
+        }
+        release(null);
+        return false;
+    }
+
+    /**
+     * Return the index of the request whose answer was used.
+     * @return The index, starting from zero, or -1 if no request has succeeded.
+     */
+    int getWinner() {
+        return winner.get();
+    }
+
+    private void send(int index) {
+        if (result.isDone()) {
+            release(null);
+            return;
+        }
+        try {
+            T value = cancellations[index].run(request);
+            if (winner.compareAndSet(-1, index)) {
+                result.complete(value);
+                cancellations[index == FIRST ? HEDGE : FIRST].cancel();
+            }
+        } catch (RuntimeException ex) {
+            release(ex);
+        }
+    }
+
+    private void release(RuntimeException ex) {
+        if (ex != null) {
+            failure = ex;
+        }
+        if (outstanding.decrementAndGet() == 0 && failure != null) {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    private T get(Deadline deadline) {
+        try {
+            return deadline != null ? result.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                    : result.get();
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException(name);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RestClientException("Call to " + name + " failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for " + name, ex);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The parameters a job was dispatched with. A payload larger than the agent's spill threshold is written to a
+ * temporary file as it is received rather than held in memory, so a job that reads it through
+ * {@link #openStream()}, {@link #openChannel()} or {@link #map()} uses no more heap than the threshold however
+ * large the payload is. The temporary file is deleted when the payload is closed, which the agent does when the
+ * run completes. A payload created from text that is already on the heap holds only the text, and encodes it
+ * each time its bytes are read.
+ */
+public final class JobPayload implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(JobPayload.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String text;
+    private final byte[] bytes;
+    private final Path file;
+    private final long size;
+    private final Charset charset;
+
+    private JobPayload(String text, byte[] bytes, Path file, long size, Charset charset) {
+        this.text = text;
+        this.bytes = bytes;
+        this.file = file;
+        this.size = size;
+        this.charset = charset;
+    }
+
+    /**
+     * Create a payload from parameters that are already in memory.
+     * @param params The parameters, or null if there are none.
+     * @return The payload.
+     */
+    public static JobPayload of(String params) {
+        return new JobPayload(params, null, null, 0, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a payload, writing it to a temporary file once it exceeds the threshold. The stream is not closed.
+     * @param input The stream to read.
+     * @param charset The character set of the payload's text.
+     * @param threshold The largest payload held in memory, in bytes.
+     * @param directory The directory temporary files are created in, or null for the default.
+     * @return The payload.
+     * @throws IOException if the stream cannot be read or the temporary file cannot be written.
+     */
+    public static JobPayload read(InputStream input, Charset charset, int threshold, Path directory)
+            throws IOException {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(Math.max(threshold, 0), BUFFER_SIZE));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = input.read(buffer)) >= 0) {
+            if (memory.size() + count > threshold) {
+                return spill(input, charset, memory, buffer, count, directory);
+            }
+            memory.write(buffer, 0, count);
+        }
+        if (memory.size() == 0) {
+            return new JobPayload(null, new byte[0], null, 0, charset);
+        }
+        return new JobPayload(null, memory.toByteArray(), null, memory.size(), charset);
+    }
+
+    private static JobPayload spill(InputStream input, Charset charset, ByteArrayOutputStream memory,
+            byte[] buffer, int count, Path directory) throws IOException {
+        Path file = directory != null ? Files.createTempFile(directory, "nextkala-", ".payload")
+                : Files.createTempFile("nextkala-", ".payload");
+        try (OutputStream output = Files.newOutputStream(file)) {
+            memory.writeTo(output);
+            output.write(buffer, 0, count);
+            long size = memory.size() + count + input.transferTo(output);
+            LOGGER.debug("Spilled a payload of {} bytes to {}", size, file);
+            return new JobPayload(null, null, file, size, charset);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+
+    /**
+     * Return the size of the payload. The text of a payload created from text is encoded to count its bytes.
+     * @return The number of bytes in the payload.
+     */
+    public long size() {
+        return text != null ? bytes().length : size;
+    }
+
+    /**
+     * Return whether the payload was written to a temporary file.
+     * @return true if the payload is in a file, false if it is in memory.
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Return the character set of the payload's text.
+     * @return The character set.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Open a stream of the payload's bytes. Each call returns a new stream that the caller must close.
+     * @return The stream.
+     * @throws IOException if the temporary file cannot be opened.
+     */
+    public InputStream openStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(bytes());
+    }
+
+    /**
+     * Open a reader of the payload's text. Each call returns a new reader that the caller must close.
+     * @return The reader.
+     * @throws IOException if the temporary file cannot be opened.
+     */
+    public Reader openReader() throws IOException {
+        return new InputStreamReader(openStream(), charset);
+    }
+
+    /**
+     * Open a channel of the payload's bytes. The channel of a payload in a file is a {@link FileChannel}. Each
+     * call returns a new channel that the caller must close.
+     * @return The channel.
+     * @throws IOException if the temporary file cannot be opened.
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        return file != null ? FileChannel.open(file, StandardOpenOption.READ)
+                : Channels.newChannel(new ByteArrayInputStream(bytes()));
+    }
+
+    /**
+     * Map the payload into memory. A payload in a file is mapped read-only, so its pages are loaded by the
+     * operating system as they are read rather than copied onto the heap. Payloads over 2 GB cannot be mapped.
+     * @return A read-only buffer of the payload's bytes.
+     * @throws IOException if the temporary file cannot be mapped.
+     */
+    public ByteBuffer map() throws IOException {
+        if (file == null) {
+            return ByteBuffer.wrap(bytes()).asReadOnlyBuffer();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Return the payload as text. This reads the whole payload onto the heap, so large payloads should be
+     * read through a stream or channel instead.
+     * @return The text, or null if the job was dispatched without parameters.
+     * @throws IOException if the temporary file cannot be read.
+     */
+    public String asString() throws IOException {
+        if (text != null || size == 0) {
+            return text;
+        }
+        return new String(file != null ? Files.readAllBytes(file) : bytes, charset);
+    }
+
+    private byte[] bytes() {
+        if (bytes != null) {
+            return bytes;
+        }
+        return text != null ? text.getBytes(charset) : new byte[0];
+    }
+
+    /**
+     * Delete the payload's temporary file, if it has one.
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                LOGGER.warn("Unable to delete payload file {}: {}", file, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.util.Arrays;
+
+/**
+ * Records the most recent response times of an endpoint and derives their 95th percentile, which is used as
+ * the delay before a hedged request is sent. The percentile is recomputed after every few samples rather than
+ * on each request.
+ */
+final class LatencyTracker {
+
+    private static final int SAMPLES = 128;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final long[] samples = new long[SAMPLES];
+    private int count;
+    private int next;
+    private int sinceRecompute;
+    private volatile long p95 = -1;
+
+    /**
+     * Record a response time.
+     * @param nanos The response time in nanoseconds.
+     */
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % SAMPLES;
+        if (count < SAMPLES) {
+            ++count;
+        }
+        if (count >= MIN_SAMPLES && (p95 < 0 || ++sinceRecompute >= RECOMPUTE_INTERVAL)) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            p95 = sorted[(int) Math.ceil(count * 0.95) - 1];
+            sinceRecompute = 0;
+        }
+    }
+
+    /**
+     * Return the 95th percentile of the recent response times.
+     * @return The percentile in nanoseconds, or -1 if too few responses have been recorded.
+     */
+    long getP95() {
+        return p95;
+    }
+}
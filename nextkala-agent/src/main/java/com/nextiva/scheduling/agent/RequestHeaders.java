@@ -0,0 +1,107 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent;
+
+import java.util.Collections;
+import java.util.Objects;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * The read-only header sets used by SchedulerClient requests for a single OAuth token. Each SchedulerClient holds
+ * the header sets for the token it last used, so that requests do not need to build their headers and no token
+ * outlives the client that was given it.
+ */
+final class RequestHeaders {
+
+    /**
+     * The header sets for requests without a token.
+     */
+    static final RequestHeaders NO_TOKEN = new RequestHeaders(null);
+
+    /**
+     * Content-Type and Accept of application/json.
+     */
+    final HttpHeaders json;
+
+    /**
+     * Content-Type of application/json.
+     */
+    final HttpHeaders jsonContent;
+
+    /**
+     * Accept of application/json.
+     */
+    final HttpHeaders jsonAccept;
+
+    /**
+     * A bodiless entity with a Content-Type of application/json.
+     */
+    final HttpEntity<Void> jsonContentEntity;
+
+    /**
+     * A bodiless entity with an Accept of application/json.
+     */
+    final HttpEntity<Void> jsonAcceptEntity;
+
+    /**
+     * A bodiless entity with only the Authorization header, if there is a token.
+     */
+    final HttpEntity<Void> authEntity;
+
+    private final String token;
+
+    /**
+     * Build the header sets for a token.
+     * @param token The OAuth token. May be null.
+     */
+    RequestHeaders(String token) {
+        this.token = token;
+        this.json = headers(token, true, true);
+        this.jsonContent = headers(token, true, false);
+        this.jsonAccept = headers(token, false, true);
+        this.jsonContentEntity = new HttpEntity<>(jsonContent);
+        this.jsonAcceptEntity = new HttpEntity<>(jsonAccept);
+        this.authEntity = new HttpEntity<>(headers(token, false, false));
+    }
+
+    /**
+     * Check whether these header sets carry a token.
+     * @param other The OAuth token. May be null.
+     * @return True if the header sets were built for the token.
+     */
+    boolean isFor(String other) {
+        return Objects.equals(token, other);
+    }
+
+    private static HttpHeaders headers(String token, boolean content, boolean accept) {
+        HttpHeaders headers = new HttpHeaders();
+        if (content) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        if (accept) {
+            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        }
+        if (token != null) {
+            headers.setBearerAuth(token);
+        }
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of a job run. A job may report its progress as a percentage, a count of items processed, a
+ * message or any combination of them. Reporting only records the latest values, so it is cheap enough to do
+ * from a tight loop; the agent samples them periodically to publish heartbeats and to detect stalled runs.
+ *
+ * <p>The progress of the run executing on the current thread is returned by {@link #current()}. A job that
+ * continues on other threads, such as an {@link AsyncScheduledJob}, should retrieve it before it returns and
+ * report to that instance.</p>
+ */
+public final class RunProgress {
+
+    private static final ThreadLocal<RunProgress> CURRENT = new ThreadLocal<>();
+    private static final RunProgress NONE = new RunProgress();
+
+    private final AtomicLong count = new AtomicLong();
+    private volatile double percentDone = -1;
+    private volatile String message;
+
+    /**
+     * Return the progress of the run executing on the current thread.
+     * @return The progress. Outside of a run the progress returned is discarded.
+     */
+    public static RunProgress current() {
+        RunProgress progress = CURRENT.get();
+        return progress != null ? progress : NONE;
+    }
+
+    /**
+     * Make a run's progress the current thread's. Called by the agent when it starts and finishes a run.
+     * @param progress The progress, or null when the run finishes.
+     */
+    public static void bind(RunProgress progress) {
+        if (progress != null) {
+            CURRENT.set(progress);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Report the percentage of the run that is complete.
+     * @param percent The percentage, from 0 to 100.
+     * @return This progress.
+     * @throws IllegalArgumentException if the percentage is not a number.
+     */
+    public RunProgress percentDone(double percent) {
+        if (Double.isNaN(percent)) {
+            throw new IllegalArgumentException("The percentage done must be a number");
+        }
+        this.percentDone = Math.max(0, Math.min(100, percent));
+        return this;
+    }
+
+    /**
+     * Report that one more item has been processed.
+     * @return This progress.
+     */
+    public RunProgress increment() {
+        count.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Report that more items have been processed.
+     * @param items The number of items.
+     * @return This progress.
+     */
+    public RunProgress add(long items) {
+        count.addAndGet(items);
+        return this;
+    }
+
+    /**
+     * Report what the run is doing.
+     * @param message The message.
+     * @return This progress.
+     */
+    public RunProgress message(String message) {
+        this.message = message;
+        return this;
+    }
+
+    /**
+     * Return the percentage of the run that is complete.
+     * @return The percentage, or -1 if none has been reported.
+     */
+    public double getPercentDone() {
+        return percentDone;
+    }
+
+    /**
+     * Return the number of items processed.
+     * @return The count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Return the last message reported.
+     * @return The message, or null if none has been reported.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -17,27 +17,61 @@
 
 package com.nextiva.scheduling.agent;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.nextiva.scheduling.agent.metrics.AgentMetrics;
+import com.nextiva.scheduling.agent.resilience.Resilience;
+import com.nextiva.scheduling.agent.resilience.ResilienceSettings;
+import com.nextiva.scheduling.agent.status.SendOutcome;
+import com.nextiva.scheduling.agent.status.StatusOutbox;
+import com.nextiva.scheduling.agent.status.StatusReporter;
+import com.nextiva.scheduling.agent.status.StatusUpdate;
+import com.nextiva.scheduling.agent.transport.Cancellation;
+import com.nextiva.scheduling.agent.transport.Deadline;
+import com.nextiva.scheduling.agent.transport.DeadlineExceededException;
+import com.nextiva.scheduling.api.CallOptions;
+import com.nextiva.scheduling.api.ExecutionQuery;
 import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobQuery;
 import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.QueryCollector;
 import com.nextiva.scheduling.api.Scheduler;
 import com.nextiva.scheduling.api.enums.JobStatus;
 
@@ -47,21 +81,32 @@ import com.nextiva.scheduling.api.enums.JobStatus;
 public class SchedulerClient implements Scheduler {
 
     private static final Logger LOGGER = LogManager.getLogger(SchedulerClient.class);
-    private static final String BASE_PATH = "/api/v1/";
-
-    private static final String API_JOB_PATH = BASE_PATH + "job/";
-    
-    private static final String DELETE_ALL_JOBS = API_JOB_PATH + "all/";
-    private static final String START_JOB = API_JOB_PATH + "start/";
-    private static final String ENABLE_JOB = API_JOB_PATH + "enable/";
-    private static final String DISABLE_JOB = API_JOB_PATH + "disable/";
+    private static final int MAX_HEDGE_THREADS = 16;
+    private static final ParameterizedTypeReference<List<JobDefinition>> JOB_LIST =
+            new ParameterizedTypeReference<>() { };
+    private static final ParameterizedTypeReference<List<JobStat>> JOB_STAT_LIST =
+            new ParameterizedTypeReference<>() { };
 
     private final RestTemplate restTemplate;
-    private final String baseUri;
-    
+    private final Endpoints endpoints;
+    private final ObjectReader jobReader;
+    private final ObjectReader statReader;
+    private final Map<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final Object hedgeLock = new Object();
+    private volatile RequestHeaders headers = RequestHeaders.NO_TOKEN;
+    private volatile StatusReporter statusReporter;
+    private volatile Resilience resilience;
+    private volatile AgentMetrics metrics = AgentMetrics.NONE;
+    private ExecutorService hedgeExecutor;
+
     public SchedulerClient(RestTemplate template, String baseUri) {
         this.restTemplate = template;
-        this.baseUri = baseUri;
+        this.endpoints = new Endpoints(baseUri);
+        ObjectMapper objectMapper = objectMapper(template);
+        this.jobReader = objectMapper.readerFor(JobDefinition.class);
+        this.statReader = objectMapper.readerFor(JobStat.class);
     }
 
     /**
@@ -72,18 +117,12 @@ public class SchedulerClient implements Scheduler {
     @Override
     public String addJob(JobDefinition jobDefinition, String token) {
         LOGGER.traceEntry();
-        String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH).toUriString();
+        URI restUri = endpoints.jobs.expand();
         String result = null;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(jobDefinition, headers);
-            ResponseEntity<AddJobResponse> response = restTemplate.exchange(restUri, HttpMethod.POST, entity,
-                    AddJobResponse.class);
+            HttpEntity<?> entity = new HttpEntity<>(jobDefinition, headers(token).json);
+            ResponseEntity<AddJobResponse> response = call("addJob", false, () ->
+                    restTemplate.exchange(restUri, HttpMethod.POST, entity, AddJobResponse.class));
             if (response.getStatusCode() == HttpStatus.OK) {
                 AddJobResponse addJobResponse = response.getBody();
                 if (addJobResponse != null) {
@@ -105,26 +144,31 @@ public class SchedulerClient implements Scheduler {
      */
     @Override
     public JobDefinition getJob(String id, String token) {
+        return getJob(id, token, null);
+    }
+
+    /**
+     * Retrieve a job definition within the deadline and with the hedging set by the call options.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return the job's definition.
+     */
+    @Override
+    public JobDefinition getJob(String id, String token, CallOptions options) {
         LOGGER.traceEntry();
         JobDefinition result = null;
+        URI restUri = endpoints.job.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString())).path("/")
-                    .toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(null, headers);
-            ResponseEntity<JobDefinition> response = restTemplate.exchange(restUri, HttpMethod.GET, entity,
-                    JobDefinition.class);
+            ResponseEntity<JobDefinition> response = read("getJob", options, () ->
+                    restTemplate.exchange(restUri, HttpMethod.GET,
+                            headers(token).jsonContentEntity, JobDefinition.class));
             if (response.getStatusCode() == HttpStatus.OK) {
                 result = response.getBody();
             } else {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to enable job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -138,26 +182,32 @@ public class SchedulerClient implements Scheduler {
      */
     @Override
     public String getJobParameters(String id, String token) {
+        return getJobParameters(id, token, null);
+    }
+
+    /**
+     * Retrieve a remote job's parameters within the deadline and with the hedging set by the call options.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return the job's parameters as a String (normally JSON), an empty String if the job has no parameters,
+     *     or null if they could not be retrieved.
+     */
+    @Override
+    public String getJobParameters(String id, String token, CallOptions options) {
         LOGGER.traceEntry();
         String result = null;
+        URI restUri = endpoints.jobParams.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString()))
-                    .pathSegment("params").path("/").toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(null, headers);
-            ResponseEntity<String> response = restTemplate.exchange(restUri, HttpMethod.GET, entity,
-                    String.class);
+            ResponseEntity<String> response = read("getJobParameters", options, () ->
+                    restTemplate.exchange(restUri, HttpMethod.GET,
+                            headers(token).jsonContentEntity, String.class));
             if (response.getStatusCode() == HttpStatus.OK) {
-                result = response.getBody();
+                result = response.hasBody() ? response.getBody() : "";
             } else {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to enable job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -172,22 +222,15 @@ public class SchedulerClient implements Scheduler {
     @Override
     public void setJobParameters(String id, String params, String token) {
         LOGGER.traceEntry();
+        URI restUri = endpoints.jobParams.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString()))
-                    .pathSegment("params").path("/").toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(params, headers);
-            ResponseEntity<String> response = restTemplate.exchange(restUri, HttpMethod.PUT, entity,
-                    String.class);
+            HttpEntity<?> entity = new HttpEntity<>(params, headers(token).jsonContent);
+            ResponseEntity<String> response = call("setJobParameters", true, () ->
+                    restTemplate.exchange(restUri, HttpMethod.PUT, entity, String.class));
             if (response.getStatusCode() != HttpStatus.NO_CONTENT) {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to update job parameters for job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -200,22 +243,15 @@ public class SchedulerClient implements Scheduler {
     @Override
     public void startJob(String id, String token) {
         LOGGER.traceEntry();
+        URI restUri = endpoints.startJob.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + START_JOB)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString())).path("/")
-                    .toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(null, headers);
-            ResponseEntity<Void> response = restTemplate.exchange(restUri, HttpMethod.POST, entity,
-                    Void.class);
+            ResponseEntity<Void> response = call("startJob", false, () ->
+                    restTemplate.exchange(restUri, HttpMethod.POST,
+                            headers(token).jsonContentEntity, Void.class));
             if (response.getStatusCode() != HttpStatus.OK) {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to start job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -228,22 +264,15 @@ public class SchedulerClient implements Scheduler {
     @Override
     public void enableJob(String id, String token) {
         LOGGER.traceEntry();
+        URI restUri = endpoints.enableJob.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + ENABLE_JOB)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString())).path("/")
-                    .toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(null, headers);
-            ResponseEntity<Void> response = restTemplate.exchange(restUri, HttpMethod.POST, entity,
-                    Void.class);
+            ResponseEntity<Void> response = call("enableJob", true, () ->
+                    restTemplate.exchange(restUri, HttpMethod.POST,
+                            headers(token).jsonContentEntity, Void.class));
             if (response.getStatusCode() != HttpStatus.OK) {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to enable job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -256,22 +285,15 @@ public class SchedulerClient implements Scheduler {
     @Override
     public void disableJob(String id, String token) {
         LOGGER.traceEntry();
+        URI restUri = endpoints.disableJob.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + DISABLE_JOB)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString())).path("/")
-                    .toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(null, headers);
-            ResponseEntity<Void> response = restTemplate.exchange(restUri, HttpMethod.POST, entity,
-                    Void.class);
+            ResponseEntity<Void> response = call("disableJob", true, () ->
+                    restTemplate.exchange(restUri, HttpMethod.POST,
+                            headers(token).jsonContentEntity, Void.class));
             if (response.getStatusCode() != HttpStatus.OK) {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to disable job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -283,15 +305,11 @@ public class SchedulerClient implements Scheduler {
     @Override
     public void deleteAllJobs(String token) {
         LOGGER.traceEntry();
-        String restUri = UriComponentsBuilder.fromUriString(baseUri + DELETE_ALL_JOBS).toUriString();
+        URI restUri = endpoints.deleteAllJobs.expand();
         try {
-            HttpHeaders headers = null;
-            if (token != null) {
-                headers = new HttpHeaders();
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            ResponseEntity<Void> response = restTemplate.exchange(restUri, HttpMethod.DELETE, entity, Void.class);
+            ResponseEntity<Void> response = call("deleteAllJobs", true, () ->
+                    restTemplate.exchange(restUri, HttpMethod.DELETE,
+                            headers(token).authEntity, Void.class));
             if (response.getStatusCode() != HttpStatus.OK) {
                 LOGGER.error("Unable to delete all jobs");
             }
@@ -308,22 +326,15 @@ public class SchedulerClient implements Scheduler {
     @Override
     public void deleteJob(String id, String token) {
         LOGGER.traceEntry();
+        URI restUri = endpoints.deleteJob.expand(id);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment(URLEncoder.encode(id, StandardCharsets.UTF_8.toString())).toUriString();
-            HttpHeaders headers = null;
-            if (token != null) {
-                headers = new HttpHeaders();
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            ResponseEntity<Void> response =
-                    restTemplate.exchange(restUri,
-                    HttpMethod.DELETE, entity, Void.class);
+            ResponseEntity<Void> response = call("deleteJob", true, () ->
+                    restTemplate.exchange(restUri, HttpMethod.DELETE,
+                            headers(token).authEntity, Void.class));
             if (response.getStatusCode() != HttpStatus.OK) {
                 LOGGER.error("Unable to delete job {}", id);
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to delete job {} due to: {}", id, hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -335,18 +346,24 @@ public class SchedulerClient implements Scheduler {
      */
     @Override
     public List<JobDefinition> listJobs(String token) {
+        return listJobs(token, null);
+    }
+
+    /**
+     * Return all job definitions within the deadline and with the hedging set by the call options.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return The list of job definitions.
+     */
+    @Override
+    public List<JobDefinition> listJobs(String token, CallOptions options) {
         LOGGER.traceEntry();
-        String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH).toUriString();
+        URI restUri = endpoints.jobs.expand();
         List<JobDefinition> result = null;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            ResponseEntity<List<JobDefinition>> response =
-                    restTemplate.exchange(restUri, HttpMethod.GET, entity, new ParameterizedTypeReference<>() {});
+            ResponseEntity<List<JobDefinition>> response = read("listJobs", options, () ->
+                    restTemplate.exchange(restUri, HttpMethod.GET,
+                            headers(token).jsonAcceptEntity, JOB_LIST));
             if (response.getStatusCode() == HttpStatus.OK) {
                 result = response.getBody();
             } else {
@@ -359,6 +376,54 @@ public class SchedulerClient implements Scheduler {
         return result;
     }
 
+    /**
+     * Pass each job definition to an action as it is parsed from the response. Only the job definition
+     * being processed is held in memory, and processing starts as soon as the first job has been received.
+     * @param action The action to perform for each job definition.
+     * @param token The OAuth token.
+     * @return true if all job definitions were retrieved.
+     */
+    @Override
+    public boolean forEachJob(Consumer<? super JobDefinition> action, String token) {
+        LOGGER.traceEntry();
+        URI restUri = endpoints.jobs.expand();
+        Boolean result = Boolean.FALSE;
+        try {
+            result = call("forEachJob", false, () ->
+                    restTemplate.execute(restUri, HttpMethod.GET, acceptJson(token),
+                            response -> readArray(response, jobReader, (JobDefinition job) -> {
+                                action.accept(job);
+                                return true;
+                            })));
+        } catch (HttpStatusCodeException hsce) {
+            LOGGER.error("Unable to retrieve jobs due to: {}", hsce.getMessage());
+        }
+        return LOGGER.traceExit(Boolean.TRUE.equals(result));
+    }
+
+    /**
+     * Return the job definitions that match a query. NextKala cannot filter jobs, so the job list is parsed
+     * incrementally and only matching jobs are retained. Reading stops once the query's limit is reached.
+     * @param query The query.
+     * @param token The OAuth token.
+     * @return The matching job definitions or null if the jobs could not be retrieved.
+     */
+    @Override
+    public List<JobDefinition> findJobs(JobQuery query, String token) {
+        LOGGER.traceEntry();
+        URI restUri = endpoints.jobs.expand();
+        QueryCollector<JobDefinition> collector = query.collector();
+        Boolean result = Boolean.FALSE;
+        try {
+            result = call("findJobs", false, () ->
+                    restTemplate.execute(restUri, HttpMethod.GET, acceptJson(token),
+                            response -> readArray(response, jobReader, collector::add)));
+        } catch (HttpStatusCodeException hsce) {
+            LOGGER.error("Unable to retrieve jobs due to: {}", hsce.getMessage());
+        }
+        return LOGGER.traceExit(Boolean.TRUE.equals(result) ? collector.getResults() : null);
+    }
+
     /**
      * Retrieve the exection statistics for a particular job execution.
      * @param executionId The job execution's id.
@@ -366,24 +431,32 @@ public class SchedulerClient implements Scheduler {
      */
     @Override
     public JobStat getJobExecutionStats(String executionId, String token) {
+        return getJobExecutionStats(executionId, token, null);
+    }
+
+    /**
+     * Retrieve the exection statistics for a particular job execution within the deadline and with the hedging
+     * set by the call options.
+     * @param executionId The job execution's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return The job execution statistics or null, if the job execution cannot be located.
+     */
+    @Override
+    public JobStat getJobExecutionStats(String executionId, String token, CallOptions options) {
         LOGGER.traceEntry();
         JobStat result = null;
+        URI restUri = endpoints.executionStats.expand(executionId);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment("executions")
-                    .pathSegment(URLEncoder.encode(executionId, StandardCharsets.UTF_8.toString()))
-                    .path("/").toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(restUri, HttpMethod.GET, entity, String.class);
-            if (response.getStatusCode() != HttpStatus.OK) {
+            ResponseEntity<JobStat> response = read("getJobExecutionStats", options, () ->
+                    restTemplate.exchange(restUri, HttpMethod.GET,
+                            headers(token).jsonAcceptEntity, JobStat.class));
+            if (response.getStatusCode() == HttpStatus.OK) {
+                result = response.getBody();
+            } else {
                 LOGGER.error("Unable to retrieve job statistics for job with execution id {}", executionId);
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to get job stats due to: {}", hsce.getMessage());
         }
         return LOGGER.traceExit(result);
@@ -396,26 +469,31 @@ public class SchedulerClient implements Scheduler {
      */
     @Override
     public List<JobStat> getAllJobExecutionStats(String jobId, String token) {
+        return getAllJobExecutionStats(jobId, token, null);
+    }
+
+    /**
+     * Retrieve all execution stats for a job within the deadline and with the hedging set by the call options.
+     * @param jobId The job's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return A List of execution statistics.
+     */
+    @Override
+    public List<JobStat> getAllJobExecutionStats(String jobId, String token, CallOptions options) {
         LOGGER.traceEntry();
         List<JobStat> result = null;
+        URI restUri = endpoints.jobExecutions.expand(jobId);
         try {
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment(URLEncoder.encode(jobId, StandardCharsets.UTF_8.toString()))
-                    .pathSegment("executions").path("/").toUriString();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            ResponseEntity<List<JobStat>> response = restTemplate.exchange(restUri, HttpMethod.GET, entity,
-                    new ParameterizedTypeReference<>() {});
+            ResponseEntity<List<JobStat>> response = read("getAllJobExecutionStats", options, () ->
+                    restTemplate.exchange(restUri, HttpMethod.GET,
+                            headers(token).jsonAcceptEntity, JOB_STAT_LIST));
             if (response.getStatusCode() == HttpStatus.OK) {
                 result = response.getBody();
             } else {
                 LOGGER.error("Unable to retrieve job statistics for job {}", jobId);
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to get job stats due to: {}", hsce.getMessage());
         }
         LOGGER.traceExit();
@@ -423,39 +501,353 @@ public class SchedulerClient implements Scheduler {
     }
 
     /**
-     * Update a job's execution status.
+     * Return the execution statistics of a job that match a query. NextKala cannot filter executions, so the
+     * statistics are parsed incrementally and only matching executions are retained. Unless the query asks for
+     * the latest executions, reading stops once the query's limit is reached.
+     * @param jobId The job's id.
+     * @param query The query.
+     * @param token The OAuth token.
+     * @return The matching execution statistics or null if they could not be retrieved.
+     */
+    @Override
+    public List<JobStat> findJobExecutionStats(String jobId, ExecutionQuery query, String token) {
+        LOGGER.traceEntry();
+        URI restUri = endpoints.jobExecutions.expand(jobId);
+        QueryCollector<JobStat> collector = query.collector();
+        Boolean result = Boolean.FALSE;
+        try {
+            result = call("findJobExecutionStats", false, () ->
+                    restTemplate.execute(restUri, HttpMethod.GET, acceptJson(token),
+                            response -> readArray(response, statReader, collector::add)));
+        } catch (HttpStatusCodeException hsce) {
+            LOGGER.error("Unable to get job stats due to: {}", hsce.getMessage());
+        }
+        return LOGGER.traceExit(Boolean.TRUE.equals(result) ? collector.getResults() : null);
+    }
+
+    /**
+     * Update a job's execution status. When status batching is enabled the update is queued and sent
+     * asynchronously, otherwise it is sent immediately.
      * @param executionId The job execution's id.
      * @param status The new job status.
      */
     @Override
     public void updateJobExecutionStatus(String jobId, String executionId, JobStatus status, String token) {
+        StatusReporter reporter = statusReporter;
+        if (reporter != null) {
+            reporter.submit(new StatusUpdate(jobId, executionId, status, token));
+        } else {
+            sendJobExecutionStatus(jobId, executionId, status, token);
+        }
+    }
+
+    /**
+     * Send a job's execution status to NextKala immediately.
+     * @param jobId The job's id.
+     * @param executionId The job execution's id.
+     * @param status The new job status.
+     * @param token The OAuth token.
+     * @return ACCEPTED if NextKala accepted the update, RETRY if it could not be delivered or NextKala failed to
+     *     process it, or REJECTED if NextKala refused it.
+     */
+    public SendOutcome sendJobExecutionStatus(String jobId, String executionId, JobStatus status, String token) {
         LOGGER.traceEntry();
+        SendOutcome result = SendOutcome.RETRY;
+        URI restUri = endpoints.execution.expand(jobId, executionId);
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            if (token != null) {
-                headers.setBearerAuth(token);
-            }
-            String restUri = UriComponentsBuilder.fromUriString(baseUri + API_JOB_PATH)
-                    .pathSegment(URLEncoder.encode(jobId, StandardCharsets.UTF_8.toString())).pathSegment("executions")
-                    .pathSegment(URLEncoder.encode(executionId, StandardCharsets.UTF_8.toString())).path("/")
-                    .toUriString();
-            HttpEntity<?> entity = new HttpEntity<>(status, headers);
-            ResponseEntity<Void> response = restTemplate.exchange(restUri, HttpMethod.PUT, entity,
-                    Void.class);
+            HttpEntity<?> entity = new HttpEntity<>(status, headers(token).json);
+            ResponseEntity<Void> response = call("updateJobExecutionStatus", true, () ->
+                    restTemplate.exchange(restUri, HttpMethod.PUT, entity, Void.class));
             if (response.getStatusCode() != HttpStatus.NO_CONTENT) {
                 LOGGER.error("Call to {} returned {}", restUri, response.getStatusCode());
+                result = outcome(response.getStatusCode());
+            } else {
+                result = SendOutcome.ACCEPTED;
             }
-        } catch (HttpStatusCodeException | UnsupportedEncodingException hsce) {
+        } catch (HttpStatusCodeException hsce) {
             LOGGER.error("Unable to update job execution {} for status for job {} due to: {}",
                     executionId, jobId, hsce.getMessage());
+            result = outcome(hsce.getStatusCode());
         }
-        LOGGER.traceExit();
+        return LOGGER.traceExit(result);
+    }
+
+    /**
+     * Buffer execution status updates and send them in batches. Updates for the same execution that are
+     * superseded while buffered are not sent.
+     * @param window The maximum time an update is buffered.
+     * @param maxBatchSize The number of buffered updates that causes them to be sent immediately.
+     * @return The StatusReporter, which may be used to observe the batches that are sent.
+     */
+    public StatusReporter enableStatusBatching(Duration window, int maxBatchSize) {
+        StatusReporter reporter = new StatusReporter(this::send, window, maxBatchSize);
+        setStatusReporter(reporter);
+        return reporter;
+    }
+
+    /**
+     * Write execution status updates to an outbox on disk and send them to NextKala in batches, retrying until
+     * they are accepted. Updates left in the outbox when the agent stops are sent when it is restarted.
+     * @param directory The directory that holds the outbox.
+     * @param window The maximum time an update is buffered.
+     * @param maxBatchSize The number of buffered updates that causes them to be sent immediately.
+     * @return The StatusReporter, which may be used to observe the batches that are sent.
+     * @throws IOException if the outbox cannot be opened.
+     */
+    public StatusReporter enableStatusOutbox(Path directory, Duration window, int maxBatchSize)
+            throws IOException {
+        StatusReporter reporter = new StatusReporter(this::send, window, maxBatchSize,
+                new StatusOutbox(directory));
+        setStatusReporter(reporter);
+        return reporter;
+    }
+
+    /**
+     * Set the StatusReporter used to send execution status updates. Any previous reporter is closed. The batches
+     * the reporter sends are recorded to the client's metrics.
+     * @param reporter The StatusReporter or null to send updates immediately.
+     */
+    public void setStatusReporter(StatusReporter reporter) {
+        StatusReporter previous = this.statusReporter;
+        if (reporter != null && previous != reporter) {
+            reporter.addFlushListener((size, failed, coalesced, nanos) -> metrics.statusFlushed(size, nanos));
+        }
+        this.statusReporter = reporter;
+        if (previous != null && previous != reporter) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Return the StatusReporter used to send execution status updates.
+     * @return The StatusReporter or null if updates are sent immediately.
+     */
+    public StatusReporter getStatusReporter() {
+        return statusReporter;
+    }
+
+    /**
+     * Apply a circuit breaker to each endpoint and retry idempotent calls that fail. Calls to an endpoint whose
+     * circuit is open fail immediately with a CircuitOpenException.
+     * @param settings The circuit breaker and retry settings.
+     * @return The Resilience, which may be used to observe the circuit breakers and retries.
+     */
+    public Resilience enableResilience(ResilienceSettings settings) {
+        Resilience result = new Resilience(settings);
+        setResilience(result);
+        return result;
+    }
+
+    /**
+     * Set the Resilience applied to calls.
+     * @param resilience The Resilience or null to make each call once without a circuit breaker.
+     */
+    public void setResilience(Resilience resilience) {
+        this.resilience = resilience;
+    }
+
+    /**
+     * Return the Resilience applied to calls.
+     * @return The Resilience or null if calls are made once without a circuit breaker.
+     */
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    /**
+     * Set the metrics that record the duration and outcome of each call to NextKala.
+     * @param metrics The metrics or null to record nothing.
+     */
+    public void setMetrics(AgentMetrics metrics) {
+        this.metrics = metrics != null ? metrics : AgentMetrics.NONE;
+    }
+
+    /**
+     * Return the number of hedged requests sent because a read had not been answered in time.
+     * @return The number of hedged requests.
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Return the number of hedged requests whose answer arrived first and was used.
+     * @return The number of hedged requests that won.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Send any buffered status updates and release resources held by the client.
+     */
+    public void close() {
+        setStatusReporter(null);
+        synchronized (hedgeLock) {
+            if (hedgeExecutor != null) {
+                hedgeExecutor.shutdown();
+                hedgeExecutor = null;
+            }
+        }
+    }
+
+    private <T> T call(String name, boolean idempotent, Supplier<T> call) {
+        AgentMetrics currentMetrics = metrics;
+        Resilience current = resilience;
+        long start = System.nanoTime();
+        try {
+            T result = current != null ? current.call(name, idempotent, call) : call.get();
+            currentMetrics.clientCall(name, null, System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException ex) {
+            Cancellation cancellation = Cancellation.current();
+            if (cancellation == null || !cancellation.isCancelled()) {
+                currentMetrics.clientCall(name, ex, System.nanoTime() - start);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Make an idempotent read within the deadline of the call options or the current thread, sending a hedged
+     * request if the options ask for one and the first request is slow to be answered. The first request is
+     * sent on the calling thread. Hedged requests are sent on a pool of at most MAX_HEDGE_THREADS threads and
+     * are not sent while every thread is busy.
+     */
+    private <T> T read(String name, CallOptions options, Supplier<T> call) {
+        Deadline deadline = options != null && options.getTimeout() != null ? Deadline.after(options.getTimeout())
+                : Deadline.current();
+        LatencyTracker tracker = latencies.computeIfAbsent(name, key -> new LatencyTracker());
+        Supplier<T> request = () -> call(name, true, () -> {
+            long start = System.nanoTime();
+            T result = call.get();
+            tracker.record(System.nanoTime() - start);
+            return result;
+        });
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(name);
+            }
+            Supplier<T> unbound = request;
+            request = () -> deadline.run(unbound);
+        }
+        long hedgeDelay = -1;
+        if (options != null && options.isHedged()) {
+            hedgeDelay = options.getHedgeDelay() != null ? options.getHedgeDelay().toNanos() : tracker.getP95();
+        }
+        if (hedgeDelay < 0) {
+            return request.get();
+        }
+        HedgedCall<T> hedged = new HedgedCall<>(name, request);
+        long wait = deadline != null ? Math.min(hedgeDelay, deadline.remainingNanos()) : hedgeDelay;
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, Runnable::run).execute(() -> {
+            if ((deadline == null || !deadline.isExpired()) && hedged.hedge(hedgeExecutor())) {
+                hedges.incrementAndGet();
+                LOGGER.debug("Sent a hedged request for {}", name);
+            }
+        });
+        T result = hedged.call(deadline);
+        if (hedged.getWinner() > 0) {
+            hedgeWins.incrementAndGet();
+        }
+        return result;
+    }
+
+    private ExecutorService hedgeExecutor() {
+        synchronized (hedgeLock) {
+            if (hedgeExecutor == null) {
+                AtomicInteger threadNumber = new AtomicInteger(1);
+                ThreadFactory threadFactory = runnable -> {
+                    Thread thread = new Thread(runnable, "nextkala-hedge-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+                hedgeExecutor = new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS,
+                        new SynchronousQueue<>(), threadFactory);
+            }
+            return hedgeExecutor;
+        }
+    }
+
+    /**
+     * Return the header sets for a token, reusing those of the previous request when the token is unchanged.
+     * Only the last token is held, so a rotated token replaces its predecessor.
+     * @param token The OAuth token. May be null.
+     * @return The RequestHeaders.
+     */
+    private RequestHeaders headers(String token) {
+        RequestHeaders current = headers;
+        if (!current.isFor(token)) {
+            current = new RequestHeaders(token);
+            headers = current;
+        }
+        return current;
+    }
+
+    private RequestCallback acceptJson(String token) {
+        return request -> request.getHeaders().putAll(headers(token).jsonAccept);
+    }
+
+    /**
+     * Parse a JSON array from a response one element at a time.
+     * @param response The response.
+     * @param reader Reads each element.
+     * @param action Receives each element and returns false to stop reading.
+     * @return true if the response was read, even if reading was stopped early.
+     */
+    private static <T> Boolean readArray(ClientHttpResponse response, ObjectReader reader, Predicate<T> action)
+            throws IOException {
+        if (response.getStatusCode() != HttpStatus.OK) {
+            LOGGER.error("Call returned {}", response.getStatusCode());
+            return Boolean.FALSE;
+        }
+        try (JsonParser parser = reader.getFactory().createParser(response.getBody())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                LOGGER.error("Expected a list but received {}", parser.currentToken());
+                return Boolean.FALSE;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (!action.test(reader.readValue(parser))) {
+                    return Boolean.TRUE;
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                LOGGER.error("Unexpected {} in the list", parser.currentToken());
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private static ObjectMapper objectMapper(RestTemplate template) {
+        for (HttpMessageConverter<?> converter : template.getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                return ((MappingJackson2HttpMessageConverter) converter).getObjectMapper();
+            }
+        }
+        return new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /*
+     * Server errors and 429 are worth retrying. Any other response that is not a success will be returned again.
+     */
+    private static SendOutcome outcome(HttpStatus status) {
+        if (status.is2xxSuccessful()) {
+            return SendOutcome.ACCEPTED;
+        }
+        if (status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS) {
+            return SendOutcome.RETRY;
+        }
+        return SendOutcome.REJECTED;
+    }
+
+    private SendOutcome send(StatusUpdate update) {
+        return sendJobExecutionStatus(update.getJobId(), update.getExecutionId(), update.getStatus(),
+                update.getToken());
     }
 
     private static class AddJobResponse {
+        @JsonProperty
         String id;
     }
-    
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A job that reads its parameters as a stream. A large payload is written to a temporary file as it is received
+ * instead of being held on the heap, which matters for jobs dispatched with many megabytes of parameters. The
+ * payload is only valid until the run completes.
+ */
+public interface StreamingScheduledJob extends ScheduledJob {
+
+    /**
+     * Executes a job.
+     * @param jobId The job's id.
+     * @param executionId The id of the job run.
+     * @param payload The parameters defined for the Job.
+     * @return The completion status of the job.
+     * @throws IOException if the payload cannot be read.
+     */
+    int executeJob(String jobId, String executionId, JobPayload payload) throws IOException;
+
+    /**
+     * Executes a job with parameters that are already in memory.
+     * @param jobId The job's id.
+     * @param executionId The id of the job run.
+     * @param jobParams The parameters defined for the Job.
+     * @return The completion status of the job.
+     */
+    @Override
+    default int executeJob(String jobId, String executionId, String jobParams) {
+        try (JobPayload payload = JobPayload.of(jobParams)) {
+            return executeJob(jobId, executionId, payload);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Called when a job is created to validate that the user making the request has the necessary privileges to
+     * schedule this job.
+     * @param payload The parameters to be passed to the job.
+     * @return true if the job can be scheduled, false otherwise.
+     * @throws IOException if the payload cannot be read.
+     */
+    boolean validateJob(JobPayload payload) throws IOException;
+
+    /**
+     * Validates parameters that are already in memory.
+     * @param jobParams The parameters to be passed to the job.
+     * @return true if the job can be scheduled, false otherwise.
+     */
+    @Override
+    default boolean validateJob(String jobParams) {
+        try (JobPayload payload = JobPayload.of(jobParams)) {
+            return validateJob(payload);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -41,4 +41,34 @@ public @interface Job {
     @AliasFor(annotation = Component.class)
     String value() default "";
 
+    /**
+     * How long a run of the job may execute before it is interrupted and reported as failed. 0 means no limit
+     * and a negative value uses {@code nextkala.agent.execution.timeout-seconds}. The property
+     * {@code nextkala.agent.execution.jobs.<name>.timeout-seconds} takes precedence over this value.
+     * @return The timeout in seconds.
+     */
+    long timeoutSeconds() default -1;
+
+    /**
+     * The name of a bulkhead, a pool of threads dedicated to the jobs that name it, so that they cannot be
+     * delayed by other jobs or delay them. When empty the job runs on the agent's shared executor, unless
+     * {@link #maxConcurrency()} or {@link #queueSize()} is set, in which case the job has a bulkhead of its own.
+     * @return The name of the bulkhead.
+     */
+    String bulkhead() default "";
+
+    /**
+     * The number of runs of the job's bulkhead that may execute at once. When jobs sharing a bulkhead declare
+     * different values the largest is used. 0 uses {@code nextkala.agent.bulkhead.default-max-concurrency}.
+     * @return The number of threads of the bulkhead.
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * The number of runs of the job's bulkhead that may wait for a thread before further runs are rejected.
+     * When jobs sharing a bulkhead declare different values the largest is used. A negative value uses
+     * {@code nextkala.agent.bulkhead.default-queue-size}.
+     * @return The capacity of the bulkhead's queue.
+     */
+    int queueSize() default -1;
 }
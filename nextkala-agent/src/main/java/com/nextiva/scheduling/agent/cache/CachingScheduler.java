@@ -0,0 +1,418 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.nextiva.scheduling.agent.transport.DeadlineExceededException;
+import com.nextiva.scheduling.api.CallOptions;
+import com.nextiva.scheduling.api.ExecutionQuery;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobQuery;
+import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.Scheduler;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+/**
+ * A Scheduler that caches job definitions and job parameters returned by another Scheduler, normally a
+ * SchedulerClient. Entries expire once the time to live has elapsed and the least recently used entry is
+ * evicted when the cache is full. Concurrent reads of an entry that is not cached share a single request to
+ * the delegate.
+ *
+ * <p>Entries for a job are invalidated when the job's parameters are set, or the job is started, enabled,
+ * disabled or deleted through this Scheduler. Changes made through any other client are only seen once the
+ * entry expires. Entries are cached per OAuth token, so a job read with one token is never returned to a
+ * caller using another. Results that are null, because the job does not exist or the request failed, are
+ * cached for a shorter time so that repeated reads of a missing job do not each reach NextKala.</p>
+ *
+ * <p>A caller that joins a request already in progress waits no longer than the timeout in its
+ * {@link CallOptions}, if it has one.</p>
+ *
+ * <p>Cached JobDefinitions are shared between callers and must not be modified.</p>
+ */
+public class CachingScheduler implements Scheduler {
+
+    private static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(5);
+
+    private final Scheduler delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final int maxSize;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a CachingScheduler.
+     * @param delegate The Scheduler whose results are cached.
+     * @param ttl How long an entry is cached.
+     * @param maxSize The maximum number of cached entries.
+     */
+    public CachingScheduler(Scheduler delegate, Duration ttl, int maxSize) {
+        this(delegate, ttl, maxSize, ttl.compareTo(DEFAULT_NEGATIVE_TTL) < 0 ? ttl : DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Create a CachingScheduler.
+     * @param delegate The Scheduler whose results are cached.
+     * @param ttl How long an entry is cached.
+     * @param maxSize The maximum number of cached entries.
+     * @param negativeTtl How long a null result is cached. Zero does not cache null results.
+     */
+    public CachingScheduler(Scheduler delegate, Duration ttl, int maxSize, Duration negativeTtl) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Return the Scheduler whose results are cached.
+     * @return The delegate.
+     */
+    public Scheduler getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String addJob(JobDefinition jobDefinition, String token) {
+        return delegate.addJob(jobDefinition, token);
+    }
+
+    @Override
+    public JobDefinition getJob(String id, String token) {
+        return get(new Key(Kind.JOB, id, token), () -> delegate.getJob(id, token), null);
+    }
+
+    @Override
+    public JobDefinition getJob(String id, String token, CallOptions options) {
+        return get(new Key(Kind.JOB, id, token), () -> delegate.getJob(id, token, options), options);
+    }
+
+    @Override
+    public String getJobParameters(String id, String token) {
+        return get(new Key(Kind.PARAMETERS, id, token), () -> delegate.getJobParameters(id, token), null);
+    }
+
+    @Override
+    public String getJobParameters(String id, String token, CallOptions options) {
+        return get(new Key(Kind.PARAMETERS, id, token), () -> delegate.getJobParameters(id, token, options),
+                options);
+    }
+
+    @Override
+    public void setJobParameters(String id, String params, String token) {
+        try {
+            delegate.setJobParameters(id, params, token);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void startJob(String id, String token) {
+        try {
+            delegate.startJob(id, token);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void enableJob(String id, String token) {
+        try {
+            delegate.enableJob(id, token);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void disableJob(String id, String token) {
+        try {
+            delegate.disableJob(id, token);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void deleteAllJobs(String token) {
+        try {
+            delegate.deleteAllJobs(token);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void deleteJob(String id, String token) {
+        try {
+            delegate.deleteJob(id, token);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public List<JobDefinition> listJobs(String token) {
+        return delegate.listJobs(token);
+    }
+
+    @Override
+    public List<JobDefinition> listJobs(String token, CallOptions options) {
+        return delegate.listJobs(token, options);
+    }
+
+    @Override
+    public boolean forEachJob(Consumer<? super JobDefinition> action, String token) {
+        return delegate.forEachJob(action, token);
+    }
+
+    @Override
+    public List<JobDefinition> findJobs(JobQuery query, String token) {
+        return delegate.findJobs(query, token);
+    }
+
+    @Override
+    public JobStat getJobExecutionStats(String executionId, String token) {
+        return delegate.getJobExecutionStats(executionId, token);
+    }
+
+    @Override
+    public JobStat getJobExecutionStats(String executionId, String token, CallOptions options) {
+        return delegate.getJobExecutionStats(executionId, token, options);
+    }
+
+    @Override
+    public List<JobStat> getAllJobExecutionStats(String jobId, String token) {
+        return delegate.getAllJobExecutionStats(jobId, token);
+    }
+
+    @Override
+    public List<JobStat> getAllJobExecutionStats(String jobId, String token, CallOptions options) {
+        return delegate.getAllJobExecutionStats(jobId, token, options);
+    }
+
+    @Override
+    public List<JobStat> findJobExecutionStats(String jobId, ExecutionQuery query, String token) {
+        return delegate.findJobExecutionStats(jobId, query, token);
+    }
+
+    @Override
+    public void updateJobExecutionStatus(String jobId, String executionId, JobStatus status, String token) {
+        delegate.updateJobExecutionStatus(jobId, executionId, status, token);
+    }
+
+    /**
+     * Remove all cached entries for a job.
+     * @param id The job's id.
+     */
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> Objects.equals(key.id, id));
+        }
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Return the number of cached entries, including entries whose request is still in progress.
+     * @return The number of entries.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Return the number of reads answered from the cache or by joining a request already in progress.
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of reads that caused a request to the delegate.
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of entries evicted because the cache was full.
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader, CallOptions options) {
+        long start = System.nanoTime();
+        Entry entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                evictExcess();
+                load = true;
+            }
+        }
+        if (!load) {
+            hits.incrementAndGet();
+            Duration timeout = options != null ? options.getTimeout() : null;
+            return (T) join(key, entry.value, timeout != null ? start + timeout.toNanos() : null);
+        }
+        misses.incrementAndGet();
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error ex) {
+            remove(key, entry);
+            entry.value.completeExceptionally(ex);
+            throw ex;
+        }
+        if (value != null) {
+            entry.expiresAt = System.nanoTime() + ttlNanos;
+        } else if (negativeTtlNanos > 0) {
+            entry.expiresAt = System.nanoTime() + negativeTtlNanos;
+        } else {
+            remove(key, entry);
+        }
+        entry.value.complete(value);
+        return value;
+    }
+
+    private void evictExcess() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    private static Object join(Key key, CompletableFuture<Object> value, Long deadline) {
+        try {
+            if (deadline == null) {
+                return value.join();
+            }
+            return value.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (CompletionException | ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new CompletionException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException(key.kind.callName);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException(key.kind.callName);
+        }
+    }
+
+    private enum Kind {
+        JOB("getJob"),
+        PARAMETERS("getJobParameters");
+
+        private final String callName;
+
+        Kind(String callName) {
+            this.callName = callName;
+        }
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final String id;
+        private final String token;
+
+        Key(Kind kind, String id, String token) {
+            this.kind = kind;
+            this.id = id;
+            this.token = token;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return kind == other.kind && Objects.equals(id, other.id) && Objects.equals(token, other.token);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, id, token);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        boolean isExpired(long now) {
+            return value.isDone() && now - expiresAt >= 0;
+        }
+    }
+}
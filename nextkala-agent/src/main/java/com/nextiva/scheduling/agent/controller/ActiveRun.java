@@ -0,0 +1,111 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A run that the agent has accepted and that has not yet ended, with the progress it has reported.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActiveRun {
+    @JsonProperty("job_name")
+    private final String jobName;
+    @JsonProperty("job_id")
+    private final String jobId;
+    @JsonProperty("run_id")
+    private final String runId;
+    // RFC 3339 time
+    @JsonProperty("started_at")
+    private final String startedAt;
+    @JsonProperty("percent_done")
+    private final Double percentDone;
+    @JsonProperty("count")
+    private final long count;
+    @JsonProperty("message")
+    private final String message;
+    // RFC 3339 time
+    @JsonProperty("last_progress_at")
+    private final String lastProgressAt;
+    @JsonProperty("stalled")
+    private final boolean stalled;
+
+    ActiveRun(RunningJobs.Execution execution) {
+        this.jobName = execution.getJobName();
+        this.jobId = execution.getJobId();
+        this.runId = execution.getRunId();
+        this.startedAt = execution.getStartedAt() != null ? execution.getStartedAt().toString() : null;
+        double percent = execution.getProgress().getPercentDone();
+        this.percentDone = percent >= 0 ? percent : null;
+        this.count = execution.getProgress().getCount();
+        this.message = execution.getProgress().getMessage();
+        ProgressMonitor.Sample sample = execution.getSample();
+        this.lastProgressAt = sample.getLastProgressAt() != null ? sample.getLastProgressAt().toString() : null;
+        this.stalled = sample.isStalled();
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * Return when the run started.
+     * @return The time, or null if the run is waiting for a thread.
+     */
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Return the percentage of the run that is complete.
+     * @return The percentage, or null if the run has not reported one.
+     */
+    public Double getPercentDone() {
+        return percentDone;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Return when the agent last saw the run's progress change.
+     * @return The time, or null if the run has not reported progress.
+     */
+    public String getLastProgressAt() {
+        return lastProgressAt;
+    }
+
+    public boolean isStalled() {
+        return stalled;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when the agent starts or stops draining. While draining the agent refuses new runs so that it can
+ * be stopped without losing any. Applications using Spring Boot may listen for it to change their readiness
+ * state.
+ */
+public class AgentDrainEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean draining;
+
+    /**
+     * Create an AgentDrainEvent.
+     * @param source The controller.
+     * @param draining true if the agent has started draining, false if it is accepting runs again.
+     */
+    public AgentDrainEvent(Object source, boolean draining) {
+        super(source);
+        this.draining = draining;
+    }
+
+    /**
+     * Determine whether the agent is draining.
+     * @return true if the agent is refusing new runs.
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+}
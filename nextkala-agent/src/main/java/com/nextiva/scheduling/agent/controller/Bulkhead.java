@@ -0,0 +1,95 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of threads dedicated to the jobs declaring it with the {@code @Job} annotation. A run is rejected
+ * when all of the bulkhead's threads are busy and its queue is full, however idle the rest of the agent is.
+ */
+final class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int queueSize;
+    private final int rejectionStatus;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create a Bulkhead.
+     * @param name The bulkhead's name.
+     * @param maxConcurrency The number of runs that may execute at once.
+     * @param queueSize The number of runs that may wait for a thread.
+     * @param rejectionStatus The HTTP status returned when a run is rejected.
+     * @param keepAliveSeconds How long an idle thread is retained.
+     */
+    Bulkhead(String name, int maxConcurrency, int queueSize, int rejectionStatus, long keepAliveSeconds) {
+        this.name = name;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueSize = Math.max(0, queueSize);
+        this.rejectionStatus = rejectionStatus;
+        BlockingQueue<Runnable> queue = this.queueSize > 0 ? new ArrayBlockingQueue<>(this.queueSize)
+                : new SynchronousQueue<>();
+        executor = new ThreadPoolExecutor(this.maxConcurrency, this.maxConcurrency, keepAliveSeconds,
+                TimeUnit.SECONDS, queue, new AgentThreadFactory("nextkala-" + name + "-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    int getQueueSize() {
+        return queueSize;
+    }
+
+    int getRejectionStatus() {
+        return rejectionStatus;
+    }
+
+    ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Return the number of runs executing.
+     * @return The number of runs.
+     */
+    int getActiveRuns() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Return the number of runs waiting for a thread.
+     * @return The number of runs.
+     */
+    int getQueuedRuns() {
+        return executor.getQueue().size();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * The times at which a run was scheduled by NextKala, received by the agent, started on an executor thread and
+ * completed. The lag between them is split into stages: delivery, from the scheduled time until the dispatch
+ * was received, and queue, from receipt until a thread started the run. The scheduled time and delivery lag are
+ * unknown unless NextKala sends the scheduled time or it is looked up before the run starts.
+ */
+final class DispatchTiming {
+
+    static final String STAGE_DELIVERY = "delivery";
+    static final String STAGE_QUEUE = "queue";
+    static final String STAGE_START = "start";
+
+    private static final Logger LOGGER = LogManager.getLogger(DispatchTiming.class);
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final String scheduledAtHeader;
+    private final long receivedAtMillis;
+    private final long receivedNanos;
+    private long startedNanos;
+    private Instant scheduledAt;
+    private CompletableFuture<Instant> lookup;
+
+    DispatchTiming(String scheduledAtHeader) {
+        this.scheduledAtHeader = scheduledAtHeader;
+        this.receivedAtMillis = System.currentTimeMillis();
+        this.receivedNanos = System.nanoTime();
+    }
+
+    /**
+     * Determine whether NextKala sent the scheduled time with the dispatch.
+     * @return true if the dispatch had a scheduled time.
+     */
+    boolean hasScheduledAtHeader() {
+        return scheduledAtHeader != null && !scheduledAtHeader.isEmpty();
+    }
+
+    /**
+     * Use a scheduled time that is being looked up because NextKala did not send one.
+     * @param scheduledAtLookup The lookup, which completes with null if the time cannot be found.
+     */
+    void lookUpScheduledAt(CompletableFuture<Instant> scheduledAtLookup) {
+        this.lookup = scheduledAtLookup;
+    }
+
+    /**
+     * Record that a thread has started the run and add the times known so far to the thread context. A scheduled
+     * time that is being looked up is waited for, for no longer than the lookup's timeout.
+     * @param nanos The time the run started, from System.nanoTime().
+     */
+    void started(long nanos) {
+        startedNanos = nanos;
+        scheduledAt = parse(scheduledAtHeader);
+        if (scheduledAt == null && lookup != null) {
+            scheduledAt = awaitLookup();
+        }
+        putScheduledAt();
+        ThreadContext.put("nextkala.receivedAt", Instant.ofEpochMilli(receivedAtMillis).toString());
+        ThreadContext.put("nextkala.queueLagMs", Long.toString(getQueueLagNanos() / NANOS_PER_MILLI));
+    }
+
+    /**
+     * Record that the run has completed and add its duration to the thread context.
+     * @param nanos The time the run completed, from System.nanoTime().
+     */
+    void completed(long nanos) {
+        ThreadContext.put("nextkala.runMs", Long.toString((nanos - startedNanos) / NANOS_PER_MILLI));
+    }
+
+    /**
+     * Return the time from the scheduled time until the dispatch was received.
+     * @return The lag in nanoseconds, or -1 if the scheduled time is unknown.
+     */
+    long getDeliveryLagNanos() {
+        if (scheduledAt == null) {
+            return -1;
+        }
+        long scheduledNanos = TimeUnit.SECONDS.toNanos(scheduledAt.getEpochSecond()) + scheduledAt.getNano();
+        return Math.max(0, receivedAtMillis * NANOS_PER_MILLI - scheduledNanos);
+    }
+
+    /**
+     * Return the time from receipt of the dispatch until a thread started the run.
+     * @return The lag in nanoseconds.
+     */
+    long getQueueLagNanos() {
+        return startedNanos - receivedNanos;
+    }
+
+    /**
+     * Return the time from the scheduled time until a thread started the run.
+     * @return The lag in nanoseconds, or -1 if the scheduled time is unknown.
+     */
+    long getStartLagNanos() {
+        long delivery = getDeliveryLagNanos();
+        return delivery < 0 ? -1 : delivery + getQueueLagNanos();
+    }
+
+    private void putScheduledAt() {
+        if (scheduledAt != null) {
+            ThreadContext.put("nextkala.scheduledAt", scheduledAt.toString());
+            ThreadContext.put("nextkala.deliveryLagMs", Long.toString(getDeliveryLagNanos() / NANOS_PER_MILLI));
+        }
+    }
+
+    /*
+     * A job whose runs last longer than its interval may have been attempted again since this run was
+     * dispatched. A last attempted time after receipt belongs to a later run, so the scheduled time is unknown.
+     */
+    private Instant awaitLookup() {
+        Instant instant;
+        try {
+            instant = lookup.join();
+        } catch (CancellationException | CompletionException ex) {
+            return null;
+        }
+        if (instant != null && instant.toEpochMilli() > receivedAtMillis) {
+            LOGGER.debug("Ignoring the last attempted run time {} as it is after the dispatch", instant);
+            return null;
+        }
+        return instant;
+    }
+
+    private static Instant parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (Character.isDigit(value.charAt(value.length() - 1)) && value.indexOf('-') < 0) {
+                return Instant.ofEpochMilli(Long.parseLong(value));
+            }
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            LOGGER.debug("Ignoring invalid scheduled time {}", value);
+            return null;
+        }
+    }
+}
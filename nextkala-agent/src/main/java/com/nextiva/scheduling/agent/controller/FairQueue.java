@@ -0,0 +1,359 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A bounded queue of runs that shares the executor's threads fairly between keys, normally the owners of the
+ * jobs, using start-time fair queueing. Each key has a weight and receives threads in proportion to it while
+ * it has runs waiting, so a key that dispatches many runs only delays its own. Each key may also be limited to
+ * a number of waiting runs; a run that would exceed the limit or the queue's capacity is refused.
+ *
+ * <p>Runs implementing {@link Keyed} are queued under their key; any other task is queued under the empty
+ * key.</p>
+ */
+final class FairQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final PriorityQueue<Entry> entries = new PriorityQueue<>();
+    private final Map<String, Flow> flows = new HashMap<>();
+    private final int capacity;
+    private final ToDoubleFunction<String> weights;
+    private final ToIntFunction<String> limits;
+    private final ObjLongConsumer<String> onDequeue;
+    private double virtualTime;
+    private long sequence;
+
+    /**
+     * Create a FairQueue.
+     * @param capacity The maximum number of runs waiting.
+     * @param weights Returns the weight of a key. Weights that are not positive are treated as 1.
+     * @param limits Returns the maximum number of runs of a key that may wait, or 0 for no limit other than the
+     *     queue's capacity.
+     * @param onDequeue Called with the key and the time waited when a run leaves the queue to be executed.
+     */
+    FairQueue(int capacity, ToDoubleFunction<String> weights, ToIntFunction<String> limits,
+            ObjLongConsumer<String> onDequeue) {
+        this.capacity = capacity;
+        this.weights = weights;
+        this.limits = limits;
+        this.onDequeue = onDequeue;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        String key = runnable instanceof Keyed ? ((Keyed) runnable).getQueueKey() : "";
+        lock.lock();
+        try {
+            return enqueue(runnable, key != null ? key : "");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+        String key = runnable instanceof Keyed ? ((Keyed) runnable).getQueueKey() : "";
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!enqueue(runnable, key != null ? key : "")) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable runnable) throws InterruptedException {
+        offer(runnable, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Runnable poll() {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = dequeue();
+        } finally {
+            lock.unlock();
+        }
+        return dequeued(entry);
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        Entry entry;
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            entry = dequeue();
+        } finally {
+            lock.unlock();
+        }
+        return dequeued(entry);
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        Entry entry;
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                notEmpty.await();
+            }
+            entry = dequeue();
+        } finally {
+            lock.unlock();
+        }
+        return dequeued(entry);
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            Entry entry = entries.peek();
+            return entry != null ? entry.task : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object task) {
+        lock.lock();
+        try {
+            for (Entry entry : entries) {
+                if (entry.task == task) {
+                    entries.remove(entry);
+                    removed(entry);
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+        int count = 0;
+        lock.lock();
+        try {
+            while (count < maxElements && !entries.isEmpty()) {
+                Entry entry = entries.poll();
+                removed(entry);
+                collection.add(entry.task);
+                ++count;
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Return the runs in the order they will be executed, as they were when this method was called.
+     * @return An iterator over the runs.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Entry> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(entries);
+        } finally {
+            lock.unlock();
+        }
+        snapshot.sort(null);
+        Iterator<Entry> iterator = snapshot.iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = iterator.next().task;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                FairQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    private boolean enqueue(Runnable runnable, String key) {
+        if (entries.size() >= capacity) {
+            return false;
+        }
+        Flow flow = flows.get(key);
+        if (flow == null) {
+            double weight = weights.applyAsDouble(key);
+            flow = new Flow(key, weight > 0 ? weight : 1, limits.applyAsInt(key), virtualTime);
+        } else if (flow.limit > 0 && flow.queued >= flow.limit) {
+            return false;
+        }
+        double start = Math.max(virtualTime, flow.finish);
+        flow.finish = start + 1 / flow.weight;
+        ++flow.queued;
+        flows.put(key, flow);
+        entries.add(new Entry(runnable, flow, start, sequence++, System.nanoTime()));
+        notEmpty.signal();
+        return true;
+    }
+
+    private Entry dequeue() {
+        Entry entry = entries.poll();
+        if (entry != null) {
+            virtualTime = entry.start;
+            removed(entry);
+            notFull.signal();
+        }
+        return entry;
+    }
+
+    private void removed(Entry entry) {
+        if (--entry.flow.queued == 0) {
+            flows.remove(entry.flow.key);
+        }
+    }
+
+    private Runnable dequeued(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        onDequeue.accept(entry.flow.key, System.nanoTime() - entry.enqueuedAt);
+        return entry.task;
+    }
+
+    /**
+     * A run that is queued under a key.
+     */
+    interface Keyed {
+        /**
+         * Return the key the run is queued under.
+         * @return The key.
+         */
+        String getQueueKey();
+    }
+
+    private static final class Flow {
+        private final String key;
+        private final double weight;
+        private final int limit;
+        private double finish;
+        private int queued;
+
+        Flow(String key, double weight, int limit, double finish) {
+            this.key = key;
+            this.weight = weight;
+            this.limit = limit;
+            this.finish = finish;
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final Runnable task;
+        private final Flow flow;
+        private final double start;
+        private final long sequence;
+        private final long enqueuedAt;
+
+        Entry(Runnable task, Flow flow, double start, long sequence, long enqueuedAt) {
+            this.task = task;
+            this.flow = flow;
+            this.start = start;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(start, other.start);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.nextiva.scheduling.api.CallOptions;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.Scheduler;
+
+/**
+ * Caches the owners of jobs for fair queueing without ever delaying a dispatch. An owner that is not cached, or
+ * whose entry has expired, is looked up from NextKala in the background. Until the lookup completes the caller
+ * gets the expired owner, or null if there is none.
+ */
+final class OwnerCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(OwnerCache.class);
+    private static final int LOOKUP_QUEUE = 100;
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Scheduler scheduler;
+    private final long ttlNanos;
+    private final CallOptions options;
+    private final Map<String, Entry> owners;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor lookups;
+
+    /**
+     * Create an OwnerCache.
+     * @param scheduler The Scheduler job definitions are read from.
+     * @param ttl How long an owner is cached.
+     * @param maxSize The maximum number of jobs whose owners are cached.
+     * @param timeout How long to wait for NextKala when looking up an owner.
+     */
+    OwnerCache(Scheduler scheduler, Duration ttl, int maxSize, Duration timeout) {
+        this.scheduler = scheduler;
+        this.ttlNanos = ttl.toNanos();
+        this.options = new CallOptions().timeout(timeout);
+        this.owners = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.lookups = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(LOOKUP_QUEUE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "nextkala-agent-owner-lookup");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        lookups.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Return the cached owner of a job, starting a lookup if it is not cached or has expired.
+     * @param jobId The job's id.
+     * @return The owner, or null if it is not known yet.
+     */
+    String getOwner(String jobId) {
+        Entry entry;
+        synchronized (owners) {
+            entry = owners.get(jobId);
+        }
+        if (entry == null || System.nanoTime() - entry.expiresAt >= 0) {
+            lookUp(jobId);
+        }
+        return entry != null ? entry.owner : null;
+    }
+
+    /**
+     * Record the owner of a job that was sent with its dispatch.
+     * @param jobId The job's id.
+     * @param owner The owner.
+     */
+    void put(String jobId, String owner) {
+        store(jobId, owner, ttlNanos);
+    }
+
+    /**
+     * Stop looking up owners.
+     */
+    void shutdown() {
+        lookups.shutdownNow();
+    }
+
+    private void store(String jobId, String owner, long ttl) {
+        synchronized (owners) {
+            owners.put(jobId, new Entry(owner, System.nanoTime() + ttl));
+        }
+    }
+
+    private void lookUp(String jobId) {
+        if (!pending.add(jobId)) {
+            return;
+        }
+        try {
+            lookups.execute(() -> load(jobId));
+        } catch (RejectedExecutionException ex) {
+            pending.remove(jobId);
+        }
+    }
+
+    private void load(String jobId) {
+        try {
+            JobDefinition job = scheduler.getJob(jobId, null, options);
+            store(jobId, job != null ? job.getOwner() : null, ttlNanos);
+        } catch (RuntimeException ex) {
+            LOGGER.debug("Unable to look up the owner of job {}: {}", jobId, ex.getMessage());
+            String owner;
+            synchronized (owners) {
+                Entry entry = owners.get(jobId);
+                owner = entry != null ? entry.owner : null;
+            }
+            store(jobId, owner, Math.min(ttlNanos, RETRY_NANOS));
+        } finally {
+            pending.remove(jobId);
+        }
+    }
+
+    private static final class Entry {
+        private final String owner;
+        private final long expiresAt;
+
+        Entry(String owner, long expiresAt) {
+            this.owner = owner;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.nextiva.scheduling.agent.RunProgress;
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.metrics.AgentMetrics;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+/**
+ * Samples the progress of running jobs periodically. A run whose progress has changed since the last heartbeat
+ * may be reported to NextKala as still running, so however often a job reports progress NextKala receives at
+ * most one update per heartbeat interval. A run that has reported progress and then reports none for the stall
+ * time is flagged as stalled and may be cancelled. Runs that never report progress are never flagged.
+ *
+ * <p>Heartbeats are sent on their own threads so that a slow response from NextKala does not delay sampling.
+ * A run has at most one heartbeat in flight, and none is sent once the run has ended.</p>
+ */
+final class ProgressMonitor {
+
+    private static final Logger LOGGER = LogManager.getLogger(ProgressMonitor.class);
+    private static final int HEARTBEAT_THREADS = 4;
+    private static final int HEARTBEAT_QUEUE = 100;
+
+    private final RunningJobs running;
+    private final SchedulerClient client;
+    private final AgentMetrics metrics;
+    private final long heartbeatNanos;
+    private final long stallNanos;
+    private final boolean cancelStalled;
+    private final ScheduledExecutorService sampler;
+    private final ThreadPoolExecutor heartbeats;
+
+    /**
+     * Create a ProgressMonitor and start sampling.
+     * @param running The runs.
+     * @param client The client heartbeats are sent with.
+     * @param metrics The metrics stalls are recorded with.
+     * @param periodNanos How often progress is sampled.
+     * @param heartbeatNanos The minimum time between heartbeats of a run, or 0 to send none.
+     * @param stallNanos How long a run may report no progress before it is stalled, or 0 to never flag runs.
+     * @param cancelStalled true to cancel stalled runs.
+     */
+    ProgressMonitor(RunningJobs running, SchedulerClient client, AgentMetrics metrics, long periodNanos,
+            long heartbeatNanos, long stallNanos, boolean cancelStalled) {
+        this.running = running;
+        this.client = client;
+        this.metrics = metrics;
+        this.heartbeatNanos = heartbeatNanos;
+        this.stallNanos = stallNanos;
+        this.cancelStalled = cancelStalled;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "nextkala-agent-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sample, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        this.sampler = executor;
+        this.heartbeats = new ThreadPoolExecutor(HEARTBEAT_THREADS, HEARTBEAT_THREADS, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(HEARTBEAT_QUEUE), ProgressMonitor::newHeartbeatThread);
+        heartbeats.allowCoreThreadTimeOut(true);
+    }
+
+    private static Thread newHeartbeatThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "nextkala-agent-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Stop sampling.
+     */
+    void shutdown() {
+        sampler.shutdownNow();
+        heartbeats.shutdownNow();
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        for (RunningJobs.Execution execution : running.getExecutions()) {
+            if (execution.getStartedAt() == null) {
+                continue;
+            }
+            try {
+                sample(execution, now);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Unable to sample the progress of run {}: {}", execution.getRunId(), ex.getMessage());
+            }
+        }
+    }
+
+    private void sample(RunningJobs.Execution execution, long now) {
+        Sample sample = execution.getSample();
+        boolean progressed = sample.update(execution.getProgress(), now);
+        if (heartbeatNanos > 0 && sample.heartbeatPending && !sample.heartbeatInFlight
+                && (!sample.heartbeatSent || now - sample.lastHeartbeatNanos >= heartbeatNanos)) {
+            sendHeartbeat(execution, sample, now);
+        }
+        if (!progressed && stallNanos > 0 && sample.lastProgressAt != null && !sample.stalled
+                && now - sample.lastProgressNanos >= stallNanos) {
+            sample.stalled = true;
+            LOGGER.warn("Run {} of job {} has reported no progress since {}", execution.getRunId(),
+                    execution.getJobName(), sample.lastProgressAt);
+            metrics.jobStalled(execution.getJobName());
+            if (cancelStalled) {
+                running.cancel(execution, RunningJobs.STALLED);
+            }
+        }
+    }
+
+    private void sendHeartbeat(RunningJobs.Execution execution, Sample sample, long now) {
+        sample.heartbeatPending = false;
+        sample.heartbeatSent = true;
+        sample.lastHeartbeatNanos = now;
+        sample.heartbeatInFlight = true;
+        try {
+            heartbeats.execute(() -> {
+                try {
+                    execution.heartbeat(() -> client.updateJobExecutionStatus(execution.getJobId(),
+                            execution.getRunId(), JobStatus.RUNNING));
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("Unable to send a heartbeat for run {}: {}", execution.getRunId(), ex.getMessage());
+                } finally {
+                    sample.heartbeatInFlight = false;
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            sample.heartbeatInFlight = false;
+            sample.heartbeatPending = true;
+        }
+    }
+
+    /**
+     * The progress of a run when it was last sampled.
+     */
+    static final class Sample {
+        private double percentDone = -1;
+        private long count;
+        private String message;
+        private long lastProgressNanos;
+        private long lastHeartbeatNanos;
+        private boolean heartbeatPending;
+        private boolean heartbeatSent;
+        private volatile boolean heartbeatInFlight;
+        private volatile Instant lastProgressAt;
+        private volatile boolean stalled;
+
+        /**
+         * Return when the run last reported progress.
+         * @return The time, or null if the run has not reported any.
+         */
+        Instant getLastProgressAt() {
+            return lastProgressAt;
+        }
+
+        /**
+         * Determine whether the run has stopped reporting progress.
+         * @return true if the run is stalled.
+         */
+        boolean isStalled() {
+            return stalled;
+        }
+
+        private boolean update(RunProgress progress, long now) {
+            double currentPercent = progress.getPercentDone();
+            long currentCount = progress.getCount();
+            String currentMessage = progress.getMessage();
+            if (Double.compare(currentPercent, percentDone) == 0 && currentCount == count
+                    && Objects.equals(currentMessage, message)) {
+                return false;
+            }
+            percentDone = currentPercent;
+            count = currentCount;
+            message = currentMessage;
+            lastProgressNanos = now;
+            lastProgressAt = Instant.now();
+            heartbeatPending = true;
+            stalled = false;
+            return true;
+        }
+    }
+}
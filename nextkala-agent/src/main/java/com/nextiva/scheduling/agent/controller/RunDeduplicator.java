@@ -0,0 +1,134 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+/**
+ * Remembers the runs that have been accepted so that a run NextKala dispatches again, normally because it did
+ * not receive the response to the first dispatch, is not executed twice. A run is remembered for as long as it
+ * is in flight. A completed run is forgotten once the retention time has passed since it completed, and when
+ * more than a fixed number of runs are remembered the run that completed longest ago is forgotten. Runs in
+ * flight are never forgotten to make room; there are never more of them than the executors accept.
+ */
+final class RunDeduplicator {
+
+    private final int maxRuns;
+    private final long retentionNanos;
+    private final Set<String> inFlight = new HashSet<>();
+    private final Map<String, Run> completed = new LinkedHashMap<>();
+
+    /**
+     * Create a RunDeduplicator.
+     * @param maxRuns The maximum number of runs remembered, or 0 to remember none.
+     * @param retentionNanos How long a completed run is remembered.
+     */
+    RunDeduplicator(int maxRuns, long retentionNanos) {
+        this.maxRuns = Math.max(0, maxRuns);
+        this.retentionNanos = retentionNanos;
+    }
+
+    /**
+     * Remember a run that is about to be accepted.
+     * @param runId The run's id.
+     * @return null if the run is new, otherwise the status of the run that was accepted before.
+     */
+    synchronized JobStatus accept(String runId) {
+        if (maxRuns == 0) {
+            return null;
+        }
+        expire(System.nanoTime());
+        if (inFlight.contains(runId)) {
+            return JobStatus.RUNNING;
+        }
+        Run run = completed.get(runId);
+        if (run != null) {
+            return run.status;
+        }
+        inFlight.add(runId);
+        trim();
+        return null;
+    }
+
+    /**
+     * Forget a run that was not accepted after all.
+     * @param runId The run's id.
+     */
+    synchronized void forget(String runId) {
+        inFlight.remove(runId);
+    }
+
+    /**
+     * Record that a run has completed. The run is remembered for the retention time from now.
+     * @param runId The run's id.
+     * @param status The final status of the run.
+     */
+    synchronized void complete(String runId, JobStatus status) {
+        if (inFlight.remove(runId)) {
+            completed.put(runId, new Run(status, System.nanoTime() + retentionNanos));
+            trim();
+        }
+    }
+
+    /**
+     * Return the number of runs remembered.
+     * @return The number of runs.
+     */
+    synchronized int size() {
+        return inFlight.size() + completed.size();
+    }
+
+    /**
+     * Forget completed runs whose retention time has passed. Completed runs are kept in the order they
+     * completed, so expiry stops at the first run that is still retained.
+     */
+    private void expire(long now) {
+        Iterator<Run> iterator = completed.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().expiresAt >= 0) {
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Forget the runs that completed longest ago while more than the maximum number of runs are remembered.
+     */
+    private void trim() {
+        Iterator<Run> iterator = completed.values().iterator();
+        while (size() > maxRuns && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Run {
+        private final JobStatus status;
+        private final long expiresAt;
+
+        Run(JobStatus status, long expiresAt) {
+            this.status = status;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import com.nextiva.scheduling.agent.RunProgress;
+
+/**
+ * Tracks the runs the agent has accepted until they end so that a run can be cancelled, either on request or
+ * because it has run for longer than its job's timeout. Cancelling a run that has started interrupts its
+ * thread, or cancels its future if it is asynchronous; a run that is still queued is not started. Whichever
+ * ends a run first, the run completing or its cancellation, decides its final status. A cancelled run is
+ * reported on a thread of its own, so that a slow report cannot delay other timeouts, and is tracked until it
+ * has been reported.
+ */
+final class RunningJobs {
+
+    static final String TIMEOUT = "timeout";
+    static final String CANCELLED = "cancelled";
+    static final String SHUTDOWN = "shutdown";
+    static final String STALLED = "stalled";
+    private static final String COMPLETED = "completed";
+    private static final long REPORT_SECONDS = 5;
+
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final ExecutorService reports;
+    private final BiConsumer<Execution, String> onCancel;
+
+    /**
+     * Create a RunningJobs.
+     * @param onCancel Called with the run and the reason when a run is cancelled.
+     */
+    RunningJobs(BiConsumer<Execution, String> onCancel) {
+        this.onCancel = onCancel;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "nextkala-agent-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.reports = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nextkala-agent-cancel");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Track a run that is about to be handed to the executor.
+     * @param jobName The name of the job.
+     * @param jobId The job's id.
+     * @param runId The run's id.
+     * @param timeoutNanos How long the run may execute once started, or 0 for no limit.
+     * @return The run, or null if a run with the same id is already being tracked.
+     */
+    Execution add(String jobName, String jobId, String runId, long timeoutNanos) {
+        Execution execution = new Execution(jobName, jobId, runId, timeoutNanos);
+        return executions.putIfAbsent(runId, execution) == null ? execution : null;
+    }
+
+    /**
+     * Stop tracking a run that the executor did not accept.
+     * @param execution The run.
+     */
+    void remove(Execution execution) {
+        removed(execution);
+    }
+
+    /**
+     * Record that a run is starting on the current thread and start its timeout.
+     * @param execution The run.
+     * @return false if the run was cancelled before it started and must not be executed.
+     */
+    boolean start(Execution execution) {
+        synchronized (execution) {
+            if (execution.outcome != null) {
+                return false;
+            }
+            execution.thread = Thread.currentThread();
+        }
+        execution.startedAt = Instant.now();
+        if (execution.timeoutNanos > 0) {
+            execution.timeout = timer.schedule(() -> cancel(execution, TIMEOUT), execution.timeoutNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Record that an asynchronous run's job has returned the future that completes when the run does, releasing
+     * the thread that started it. Must be called on that thread. Cancelling the run from now on cancels the
+     * future.
+     * @param execution The run.
+     * @param future The future.
+     */
+    void detach(Execution execution, Future<?> future) {
+        boolean cancelled;
+        synchronized (execution) {
+            execution.thread = null;
+            Thread.interrupted();
+            execution.future = future;
+            cancelled = execution.outcome != null;
+        }
+        if (cancelled) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Record that a run's job has completed. When called on the thread that started the run it clears any
+     * interrupt caused by a cancellation so that the thread can be reused.
+     * @param execution The run.
+     * @return true if the run completed, false if it had been cancelled or had already completed.
+     */
+    boolean finish(Execution execution) {
+        execution.endHeartbeats();
+        ScheduledFuture<?> timeout = execution.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        synchronized (execution) {
+            if (execution.thread == Thread.currentThread()) {
+                Thread.interrupted();
+            }
+            execution.thread = null;
+            if (execution.outcome != null) {
+                return false;
+            }
+            execution.outcome = COMPLETED;
+        }
+        removed(execution);
+        return true;
+    }
+
+    /**
+     * Cancel a run that has not ended.
+     * @param jobName The name of the run's job.
+     * @param runId The run's id.
+     * @return false if the job has no such run in progress.
+     */
+    boolean cancel(String jobName, String runId) {
+        Execution execution = executions.get(runId);
+        return execution != null && execution.jobName.equals(jobName) && cancel(execution, CANCELLED);
+    }
+
+    /**
+     * Cancel a run that has not ended.
+     * @param execution The run.
+     * @param reason Why the run is being cancelled.
+     * @return false if the run had already ended.
+     */
+    boolean cancel(Execution execution, String reason) {
+        Future<?> future;
+        synchronized (execution) {
+            if (execution.outcome != null) {
+                return false;
+            }
+            execution.outcome = reason;
+            if (execution.thread != null) {
+                execution.thread.interrupt();
+            }
+            future = execution.future;
+        }
+        execution.endHeartbeats();
+        try {
+            reports.execute(() -> report(execution, reason));
+        } catch (RejectedExecutionException ex) {
+            report(execution, reason);
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    /**
+     * Cancel every run that has not ended.
+     * @param reason Why the runs are being cancelled.
+     * @return The number of runs cancelled.
+     */
+    int cancelAll(String reason) {
+        int cancelled = 0;
+        for (Execution execution : executions.values()) {
+            if (cancel(execution, reason)) {
+                ++cancelled;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Return the runs queued or executing.
+     * @return The runs.
+     */
+    Collection<Execution> getExecutions() {
+        return Collections.unmodifiableCollection(executions.values());
+    }
+
+    /**
+     * Return the number of runs queued or executing.
+     * @return The number of runs.
+     */
+    int size() {
+        return executions.size();
+    }
+
+    /**
+     * Wait for every run to end.
+     * @param nanos How long to wait.
+     * @return true if no run is queued or executing.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    synchronized boolean awaitEmpty(long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        while (!executions.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Stop timing runs and wait for the cancelled runs to be reported.
+     */
+    void shutdown() {
+        timer.shutdownNow();
+        reports.shutdown();
+        try {
+            reports.awaitTermination(REPORT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(Execution execution, String reason) {
+        try {
+            onCancel.accept(execution, reason);
+        } finally {
+            removed(execution);
+        }
+    }
+
+    private void removed(Execution execution) {
+        if (executions.remove(execution.runId, execution) && executions.isEmpty()) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A run accepted by the agent.
+     */
+    static final class Execution {
+        private final String jobName;
+        private final String jobId;
+        private final String runId;
+        private final long timeoutNanos;
+        private Thread thread;
+        private String outcome;
+        private Future<?> future;
+        private volatile ScheduledFuture<?> timeout;
+        private volatile Instant startedAt;
+        private final RunProgress progress = new RunProgress();
+        private final ProgressMonitor.Sample sample = new ProgressMonitor.Sample();
+        private final Object heartbeatLock = new Object();
+        private boolean ended;
+
+        private Execution(String jobName, String jobId, String runId, long timeoutNanos) {
+            this.jobName = jobName;
+            this.jobId = jobId;
+            this.runId = runId;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        String getJobName() {
+            return jobName;
+        }
+
+        String getJobId() {
+            return jobId;
+        }
+
+        String getRunId() {
+            return runId;
+        }
+
+        RunProgress getProgress() {
+            return progress;
+        }
+
+        ProgressMonitor.Sample getSample() {
+            return sample;
+        }
+
+        /**
+         * Return when the run started.
+         * @return The time, or null if the run is queued.
+         */
+        Instant getStartedAt() {
+            return startedAt;
+        }
+
+        /**
+         * Send a heartbeat unless the run has ended. The run's final status is not sent until a heartbeat
+         * being sent has been, so a heartbeat can never overtake it.
+         * @param send Sends the heartbeat.
+         * @return false if the run has ended and no heartbeat was sent.
+         */
+        boolean heartbeat(Runnable send) {
+            synchronized (heartbeatLock) {
+                if (ended) {
+                    return false;
+                }
+                send.run();
+                return true;
+            }
+        }
+
+        /**
+         * Stop sending heartbeats, waiting for any heartbeat being sent.
+         */
+        void endHeartbeats() {
+            synchronized (heartbeatLock) {
+                ended = true;
+            }
+        }
+
+        /**
+         * Return why the run was cancelled.
+         * @return timeout, cancelled, shutdown or stalled, or null if the run has not been cancelled.
+         */
+        synchronized String getCancelReason() {
+            return outcome == null || COMPLETED.equals(outcome) ? null : outcome;
+        }
+    }
+}
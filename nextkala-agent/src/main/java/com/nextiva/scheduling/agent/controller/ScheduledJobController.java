@@ -17,27 +17,63 @@
 
 package com.nextiva.scheduling.agent.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import javax.validation.Valid;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.ThreadContext;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.nextiva.scheduling.agent.AsyncScheduledJob;
+import com.nextiva.scheduling.agent.JobPayload;
+import com.nextiva.scheduling.agent.RunProgress;
 import com.nextiva.scheduling.agent.ScheduledJob;
 import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.StreamingScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.metrics.AgentMetrics;
 import com.nextiva.scheduling.api.enums.JobStatus;
 
 import io.swagger.annotations.ApiOperation;
@@ -53,8 +89,11 @@ public class ScheduledJobController {
 
     private static final Logger LOGGER = LogManager.getLogger(ScheduledJobController.class);
     private static final int TIMEOUT = 15;
+    private static final String FAIR_QUEUE_JOB = "job";
+    private static final String FAIR_QUEUE_OWNER = "owner";
+    private static final int OWNER_CACHE_SIZE = 10000;
 
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private ExecutorService executorService;
 
     @Autowired
     private Map<String, ScheduledJob> scheduledJobMap;
@@ -62,68 +101,591 @@ public class ScheduledJobController {
     @Autowired
     private SchedulerClient schedulingClient;
 
+    @Autowired(required = false)
+    private AgentMetrics metrics;
+
+    @Value("${nextkala.agent.executor.core-pool-size:10}")
+    private int corePoolSize;
+
+    @Value("${nextkala.agent.executor.max-pool-size:50}")
+    private int maxPoolSize;
+
+    @Value("${nextkala.agent.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${nextkala.agent.executor.keep-alive-seconds:60}")
+    private long keepAliveSeconds;
+
+    @Value("${nextkala.agent.executor.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${nextkala.agent.executor.max-virtual-runs:10000}")
+    private int maxVirtualRuns;
+
+    @Value("${nextkala.agent.executor.rejection-status:429}")
+    private int rejectionStatus;
+
+    @Value("${nextkala.agent.executor.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    @Value("${nextkala.agent.dispatch-lag.look-up-scheduled-time:false}")
+    private boolean lookUpScheduledTime;
+
+    @Value("${nextkala.agent.dispatch-lag.look-up-timeout-ms:500}")
+    private long lookUpTimeoutMillis;
+
+    @Value("${nextkala.agent.dedupe.max-runs:10000}")
+    private int dedupeMaxRuns;
+
+    @Value("${nextkala.agent.dedupe.retention-seconds:600}")
+    private long dedupeRetentionSeconds;
+
+    @Value("${nextkala.agent.execution.timeout-seconds:0}")
+    private long defaultTimeoutSeconds;
+
+    @Value("${nextkala.agent.fair-queue.key:none}")
+    private String fairQueueKey;
+
+    @Value("${nextkala.agent.fair-queue.default-weight:1}")
+    private double defaultWeight;
+
+    @Value("${nextkala.agent.fair-queue.default-max-queued:0}")
+    private int defaultMaxQueued;
+
+    @Value("${nextkala.agent.fair-queue.owner-cache-seconds:300}")
+    private long ownerCacheSeconds;
+
+    @Value("${nextkala.agent.fair-queue.owner-lookup-timeout-ms:500}")
+    private long ownerLookupTimeoutMillis;
+
+    @Value("${nextkala.agent.bulkhead.default-max-concurrency:5}")
+    private int defaultBulkheadConcurrency;
+
+    @Value("${nextkala.agent.bulkhead.default-queue-size:10}")
+    private int defaultBulkheadQueueSize;
+
+    @Value("${nextkala.agent.progress.sample-seconds:5}")
+    private long progressSampleSeconds;
+
+    @Value("${nextkala.agent.progress.heartbeat-seconds:0}")
+    private long heartbeatSeconds;
+
+    @Value("${nextkala.agent.progress.stall-seconds:0}")
+    private long stallSeconds;
+
+    @Value("${nextkala.agent.progress.cancel-stalled:false}")
+    private boolean cancelStalled;
+
+    @Value("${nextkala.agent.drain.timeout-seconds:15}")
+    private long drainTimeoutSeconds;
+
+    @Value("${nextkala.agent.payload.spill-threshold-bytes:1048576}")
+    private int spillThresholdBytes;
+
+    @Value("${nextkala.agent.payload.temp-dir:}")
+    private String payloadDirectory;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile boolean draining;
+
+    private RunDeduplicator runs;
+    private RunningJobs running;
+    private ProgressMonitor progressMonitor;
+    private OwnerCache owners;
+    private ScheduledTimeLookup scheduledTimes;
+    private final Map<String, Bulkhead> bulkheads = new HashMap<>();
+    private final Map<String, Long> timeouts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void init() {
+        if (metrics == null) {
+            metrics = AgentMetrics.NONE;
+        }
+        checkRejectionStatus("nextkala.agent.executor.rejection-status", rejectionStatus);
+        runs = new RunDeduplicator(dedupeMaxRuns, TimeUnit.SECONDS.toNanos(dedupeRetentionSeconds));
+        running = new RunningJobs(this::cancelled);
+        progressMonitor = new ProgressMonitor(running, schedulingClient, metrics,
+                TimeUnit.SECONDS.toNanos(Math.max(1, progressSampleSeconds)),
+                TimeUnit.SECONDS.toNanos(heartbeatSeconds), TimeUnit.SECONDS.toNanos(stallSeconds), cancelStalled);
+        if (lookUpScheduledTime) {
+            scheduledTimes = new ScheduledTimeLookup(schedulingClient, Duration.ofMillis(lookUpTimeoutMillis));
+        }
+        createExecutor();
+        metrics.bindExecutor(this::getActiveRuns, this::getQueuedRuns);
+        createBulkheads();
+    }
+
+    private void createBulkheads() {
+        Map<String, Job> declared = new HashMap<>();
+        Map<String, int[]> sizes = new TreeMap<>();
+        scheduledJobMap.forEach((jobName, job) -> {
+            Job annotation = AnnotationUtils.findAnnotation(AopUtils.getTargetClass(job), Job.class);
+            if (annotation == null || annotation.bulkhead().isEmpty() && annotation.maxConcurrency() <= 0
+                    && annotation.queueSize() < 0) {
+                return;
+            }
+            String name = annotation.bulkhead().isEmpty() ? jobName : annotation.bulkhead();
+            declared.put(jobName, annotation);
+            int[] size = sizes.computeIfAbsent(name, key -> new int[] {0, -1});
+            size[0] = Math.max(size[0], annotation.maxConcurrency());
+            size[1] = Math.max(size[1], annotation.queueSize());
+        });
+        Map<String, Bulkhead> byName = new HashMap<>();
+        sizes.forEach((name, size) -> {
+            String prefix = "nextkala.agent.bulkheads." + name + ".";
+            Bulkhead bulkhead = new Bulkhead(name,
+                    environment.getProperty(prefix + "max-concurrency", Integer.class,
+                            size[0] > 0 ? size[0] : defaultBulkheadConcurrency),
+                    environment.getProperty(prefix + "queue-size", Integer.class,
+                            size[1] >= 0 ? size[1] : defaultBulkheadQueueSize),
+                    checkRejectionStatus(prefix + "rejection-status",
+                            environment.getProperty(prefix + "rejection-status", Integer.class, rejectionStatus)),
+                    keepAliveSeconds);
+            byName.put(name, bulkhead);
+            metrics.bindBulkhead(name, bulkhead::getActiveRuns, bulkhead::getQueuedRuns,
+                    bulkhead.getMaxConcurrency());
+            LOGGER.debug("Bulkhead {} created with {} threads and a queue of {}", name,
+                    bulkhead.getMaxConcurrency(), bulkhead.getQueueSize());
+        });
+        declared.forEach((jobName, annotation) -> bulkheads.put(jobName,
+                byName.get(annotation.bulkhead().isEmpty() ? jobName : annotation.bulkhead())));
+    }
+
+    /**
+     * Refuse a rejection status other than 429 or 503. Any other status would tell NextKala something other
+     * than "try again later", and a 2xx would record a run that never started.
+     * @param property The property the status was read from.
+     * @param status The status.
+     * @return The status.
+     */
+    private static int checkRejectionStatus(String property, int status) {
+        if (status != HttpStatus.TOO_MANY_REQUESTS.value() && status != HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            throw new IllegalStateException(property + " must be 429 or 503 but is " + status);
+        }
+        return status;
+    }
+
+    private List<ExecutorService> getExecutors() {
+        List<ExecutorService> executors = new ArrayList<>();
+        executors.add(executorService);
+        bulkheads.values().stream().distinct().forEach(bulkhead -> executors.add(bulkhead.getExecutor()));
+        return executors;
+    }
+
+    private void createExecutor() {
+        if (virtualThreads) {
+            if (VirtualThreadExecutor.isSupported()) {
+                executorService = new VirtualThreadExecutor(maxVirtualRuns);
+                LOGGER.debug("Job executor created using virtual threads with at most {} concurrent runs",
+                        maxVirtualRuns);
+                return;
+            }
+            LOGGER.warn("Virtual threads were requested but are not supported by this JVM. Using a thread pool");
+        }
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? createQueue() : new SynchronousQueue<>();
+        int maxThreads = Math.max(corePoolSize, maxPoolSize);
+        // A FairQueue refuses a run whose key is over its limit. The pool would take that as a full queue and
+        // start another thread for the run, so with a FairQueue every thread is a core thread.
+        int coreThreads = queue instanceof FairQueue ? maxThreads : corePoolSize;
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(coreThreads, maxThreads,
+                keepAliveSeconds, TimeUnit.SECONDS, queue, new AgentThreadFactory("nextkala-agent-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        threadPool.allowCoreThreadTimeOut(true);
+        executorService = threadPool;
+        LOGGER.debug("Job executor created with {} core threads, {} max threads and a queue of {}",
+                coreThreads, maxThreads, queueCapacity);
+    }
+
+    private BlockingQueue<Runnable> createQueue() {
+        if (FAIR_QUEUE_OWNER.equals(fairQueueKey)) {
+            owners = new OwnerCache(schedulingClient, Duration.ofSeconds(ownerCacheSeconds), OWNER_CACHE_SIZE,
+                    Duration.ofMillis(ownerLookupTimeoutMillis));
+        } else if (!FAIR_QUEUE_JOB.equals(fairQueueKey)) {
+            return new ArrayBlockingQueue<>(queueCapacity);
+        }
+        LOGGER.debug("Runs will be queued fairly by {}", fairQueueKey);
+        return new FairQueue(queueCapacity,
+                key -> environment.getProperty("nextkala.agent.fair-queue.weights." + key, Double.class,
+                        defaultWeight),
+                key -> environment.getProperty("nextkala.agent.fair-queue.max-queued." + key, Integer.class,
+                        defaultMaxQueued),
+                metrics::queueWait);
+    }
+
     @PreDestroy
     private void shutdown() {
-        executorService.shutdown();
+        if (!draining) {
+            draining = true;
+            LOGGER.info("Draining before shutdown with {} runs in progress", running.size());
+        }
+        List<ExecutorService> executors = getExecutors();
+        executors.forEach(ExecutorService::shutdown);
         try {
-            executorService.awaitTermination(TIMEOUT, TimeUnit.SECONDS);
+            if (!awaitTermination(executors, drainTimeoutSeconds)) {
+                abandonRuns(executors);
+            }
         } catch (final InterruptedException ex) {
-            executorService.shutdownNow();
-            try {
-                executorService.awaitTermination(TIMEOUT, TimeUnit.SECONDS);
-            } catch (final InterruptedException ie) {
+            abandonRuns(executors);
+            Thread.currentThread().interrupt();
+        } finally {
+            progressMonitor.shutdown();
+            running.shutdown();
+            if (scheduledTimes != null) {
+                scheduledTimes.shutdown();
+            }
+            if (owners != null) {
+                owners.shutdown();
+            }
+        }
+    }
+
+    private boolean awaitTermination(List<ExecutorService> executors, long seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (ExecutorService executor : executors) {
+            if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return running.awaitEmpty(deadline - System.nanoTime());
+    }
+
+    private void abandonRuns(List<ExecutorService> executors) {
+        int abandoned = running.cancelAll(RunningJobs.SHUTDOWN);
+        LOGGER.warn("{} runs had not completed after draining for {} seconds and were reported as failed",
+                abandoned, drainTimeoutSeconds);
+        executors.forEach(executor -> executor.shutdownNow().forEach(task -> {
+            if (task instanceof Agent) {
+                ((Agent) task).discard();
+            }
+        }));
+        try {
+            if (!awaitTermination(executors, TIMEOUT)) {
                 LOGGER.warn("Scheduled jobs may not have completed");
             }
+        } catch (final InterruptedException ie) {
+            LOGGER.warn("Scheduled jobs may not have completed");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop accepting runs so that the agent can be stopped without losing any. Dispatches are refused with
+     * 503 and a Retry-After header so that NextKala retries them, and the readiness endpoint reports that the
+     * agent is unavailable. Runs already accepted continue. When the agent is shut down it drains for up to
+     * {@code nextkala.agent.drain.timeout-seconds} and then reports the runs that have not completed as failed.
+     */
+    public void drain() {
+        if (!draining) {
+            draining = true;
+            LOGGER.info("Draining: refusing new runs with {} in progress", running.size());
+            eventPublisher.publishEvent(new AgentDrainEvent(this, true));
+        }
+    }
+
+    /**
+     * Accept runs again after {@link #drain()}.
+     * @return false if the agent is shutting down and cannot accept runs.
+     */
+    public boolean resume() {
+        if (executorService.isShutdown()) {
+            return false;
         }
+        if (draining) {
+            draining = false;
+            LOGGER.info("Accepting runs again");
+            eventPublisher.publishEvent(new AgentDrainEvent(this, false));
+        }
+        return true;
     }
 
     /**
-     * Handle a scheduled job request.
+     * Determine whether the agent is draining.
+     * @return true if the agent is refusing new runs.
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Start draining the agent.
+     * @return The response entity.
+     */
+    @ApiOperation(value = "Stop accepting runs", tags = { "agent", })
+    @ApiResponses(value = { @ApiResponse(code = 202, message = "The agent is draining") })
+    @PostMapping(value = "/private/v1/agent/drain")
+    public ResponseEntity<Void> startDraining() {
+        drain();
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Stop draining the agent.
+     * @return The response entity.
+     */
+    @ApiOperation(value = "Accept runs again", tags = { "agent", })
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "The agent is accepting runs"),
+            @ApiResponse(code = 409, message = "The agent is shutting down") })
+    @DeleteMapping(value = "/private/v1/agent/drain")
+    public ResponseEntity<Void> stopDraining() {
+        return new ResponseEntity<>(resume() ? HttpStatus.NO_CONTENT : HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Report whether the agent is ready to accept runs, for use as a readiness probe.
+     * @return The response entity.
+     */
+    @ApiOperation(value = "Determine whether the agent accepts runs", tags = { "agent", })
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The agent is accepting runs"),
+            @ApiResponse(code = 503, message = "The agent is draining") })
+    @GetMapping(value = "/private/v1/agent/ready")
+    public ResponseEntity<Void> ready() {
+        return new ResponseEntity<>(draining ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK);
+    }
+
+    /**
+     * Handle a scheduled job request. The job's parameters are read from the request body as a stream. For a
+     * {@link StreamingScheduledJob} a body larger than {@code nextkala.agent.payload.spill-threshold-bytes} is
+     * written to a temporary file rather than held in memory. A repeated dispatch, or one the agent has no room
+     * for, is answered without reading the body.
      * @param jobName The name of the job.
-     * @param jobParams A map of parameters to pass to the job.
+     * @param body The job's parameters.
+     * @param contentType The content type of the parameters.
      * @param jobId The job's id.
      * @param runId The execution id.
-     * @return The response entity.
+     * @param scheduledAt The time NextKala scheduled the run, as an RFC 3339 time or epoch milliseconds, if sent.
+     * @param owner The owner of the job, if sent, which is used as the run's key when queueing by owner.
+     * @return The response entity. When the executor is saturated the status will be the configured
+     *     rejection status with a Retry-After header, and while draining it will be 503 with a Retry-After
+     *     header. A run that has already been accepted is not run again;
+     *     the response is accepted with its current status in the NextKala-RunStatus header.
      */
     @ApiOperation(value = "Run a scheduled job", tags = { "scheduler", })
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "The job was dispatched"),
-            @ApiResponse(code = 404, message = "Job Not Found") })
+            @ApiResponse(code = 400, message = "The job parameters could not be read"),
+            @ApiResponse(code = 404, message = "Job Not Found"),
+            @ApiResponse(code = 429, message = "The agent is too busy to accept the job"),
+            @ApiResponse(code = 503, message = "The agent is unable to accept the job or is draining") })
     @PostMapping(value = "/private/v1/scheduledJob/{jobName}", produces = { "application/json" })
-    public ResponseEntity<Void> runJob(@ApiParam(value = "The job name") @PathVariable String jobName,
-            @ApiParam(value = "The job parameters") @Valid @RequestBody(required = false)
-                    String jobParams,
+    public ResponseEntity<Void> runJobRequest(@ApiParam(value = "The job name") @PathVariable String jobName,
+            InputStream body,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
             @RequestHeader(name = "NextKala-JobId", required = true) String jobId,
-            @RequestHeader(name = "NextKala-RunId", required = true) String runId) {
+            @RequestHeader(name = "NextKala-RunId", required = true) String runId,
+            @RequestHeader(name = "NextKala-ScheduledAt", required = false) String scheduledAt,
+            @RequestHeader(name = "NextKala-Owner", required = false) String owner) {
+        return dispatch(jobName, job -> readPayload(job, body, contentType), jobId, runId, scheduledAt, owner);
+    }
+
+    /**
+     * Run a scheduled job with parameters that are already in memory, without a scheduled time.
+     * @param jobName The name of the job.
+     * @param jobParams A map of parameters to pass to the job.
+     * @param jobId The job's id.
+     * @param runId The execution id.
+     * @return The response entity, as for {@link #runJobRequest}.
+     */
+    public ResponseEntity<Void> runJob(String jobName, String jobParams, String jobId, String runId) {
+        return runJob(jobName, jobParams, jobId, runId, null);
+    }
+
+    /**
+     * Run a scheduled job with parameters that are already in memory.
+     * @param jobName The name of the job.
+     * @param jobParams A map of parameters to pass to the job.
+     * @param jobId The job's id.
+     * @param runId The execution id.
+     * @param scheduledAt The time NextKala scheduled the run, as an RFC 3339 time or epoch milliseconds, if sent.
+     * @return The response entity, as for {@link #runJobRequest}.
+     */
+    public ResponseEntity<Void> runJob(String jobName, String jobParams, String jobId, String runId,
+            String scheduledAt) {
+        return dispatch(jobName, job -> JobPayload.of(jobParams), jobId, runId, scheduledAt, null);
+    }
+
+    /*
+     * Dispatches a run. The drain flag is read once, and a repeated or rejected dispatch is answered before the
+     * payload is read, so a storm of retries does not read or spill a payload it will not run. The executor may
+     * still reject a run that had room when it was checked. The payload is closed unless it is handed to the run.
+     */
+    private ResponseEntity<Void> dispatch(String jobName, PayloadReader reader, String jobId, String runId,
+            String scheduledAt, String owner) {
+        long start = System.nanoTime();
         ScheduledJob scheduledJob = scheduledJobMap.get(jobName);
-        if (scheduledJob != null) {
+        if (scheduledJob == null) {
+            LOGGER.error("Unable to locate job named {}", jobName);
+            metrics.dispatched(null, "not_found", System.nanoTime() - start);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (draining) {
+            LOGGER.info("Refused run {} of job {} while draining", runId, jobName);
+            metrics.dispatched(jobName, "draining", System.nanoTime() - start);
+            return rejected(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        JobStatus previous = runs.accept(runId);
+        if (previous != null) {
+            LOGGER.info("Ignoring repeated dispatch of run {} of job {} with status {}", runId, jobName, previous);
+            metrics.dispatched(jobName, "duplicate", System.nanoTime() - start);
+            return duplicate(previous);
+        }
+        Bulkhead bulkhead = bulkheads.get(jobName);
+        ExecutorService executor = bulkhead != null ? bulkhead.getExecutor() : executorService;
+        if (isSaturated(executor)) {
+            runs.forget(runId);
+            return reject(jobName, runId, bulkhead, start);
+        }
+        JobPayload payload;
+        try {
+            payload = reader.read(scheduledJob);
+        } catch (IOException ex) {
+            runs.forget(runId);
+            LOGGER.warn("Unable to read the parameters of run {} of job {}: {}", runId, jobName, ex.getMessage());
+            metrics.dispatched(jobName, "unreadable", System.nanoTime() - start);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        boolean dispatched = false;
+        try {
+            DispatchTiming timing = new DispatchTiming(scheduledAt);
+            if (scheduledTimes != null && !timing.hasScheduledAtHeader()) {
+                timing.lookUpScheduledAt(scheduledTimes.lookUp(jobId));
+            }
             Map<String, String> threadContext = ThreadContext.getContext();
-            executorService.submit(new Agent(jobName, jobParams, jobId, runId, scheduledJob, schedulingClient,
-                    threadContext));
+            RunningJobs.Execution execution = running.add(jobName, jobId, runId,
+                    timeouts.computeIfAbsent(jobName, name -> getTimeoutNanos(name, scheduledJob)));
+            if (execution == null) {
+                LOGGER.info("Ignoring repeated dispatch of run {} of job {} that is still running", runId, jobName);
+                metrics.dispatched(jobName, "duplicate", System.nanoTime() - start);
+                return duplicate(JobStatus.RUNNING);
+            }
+            try {
+                executor.execute(new Agent(jobName, payload, jobId, runId, scheduledJob, schedulingClient,
+                        threadContext, metrics, timing, runs, running, execution,
+                        getQueueKey(jobName, jobId, owner), executor));
+            } catch (RejectedExecutionException ex) {
+                running.remove(execution);
+                runs.forget(runId);
+                return reject(jobName, runId, bulkhead, start);
+            }
+            dispatched = true;
+            metrics.dispatched(jobName, "accepted", System.nanoTime() - start);
             return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        } finally {
+            if (!dispatched) {
+                payload.close();
+            }
+        }
+    }
+
+    private ResponseEntity<Void> reject(String jobName, String runId, Bulkhead bulkhead, long start) {
+        metrics.dispatched(jobName, "rejected", System.nanoTime() - start);
+        if (bulkhead != null) {
+            LOGGER.warn("Rejected run {} of job {} by bulkhead {}. Active runs: {}, queued runs: {}", runId,
+                    jobName, bulkhead.getName(), bulkhead.getActiveRuns(), bulkhead.getQueuedRuns());
+            metrics.bulkheadRejected(bulkhead.getName());
         } else {
-            LOGGER.error("Unable to locate job named {}", jobName);
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            LOGGER.warn("Rejected run {} of job {}. Active runs: {}, queued runs: {}", runId, jobName,
+                    getActiveRuns(), getQueuedRuns());
         }
+        return rejected(HttpStatus.valueOf(bulkhead != null ? bulkhead.getRejectionStatus() : rejectionStatus));
+    }
+
+    /*
+     * Whether every thread of the executor is busy and its queue is full. A FairQueue with room may still
+     * refuse a run whose key is over its limit, which the executor reports when the run is submitted.
+     */
+    private static boolean isSaturated(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            return pool.getActiveCount() >= pool.getMaximumPoolSize() && pool.getQueue().remainingCapacity() == 0;
+        }
+        return executor instanceof VirtualThreadExecutor && ((VirtualThreadExecutor) executor).isSaturated();
     }
 
     /**
-     * Vaalidate job creation.
+     * Cancel a run that is queued or executing. An executing run is interrupted and is reported as failed
+     * without waiting for the job to stop.
      * @param jobName The name of the job.
-     * @param jobParams A map of parameters to pass to the job.
+     * @param runId The execution id.
+     * @return The response entity.
+     */
+    @ApiOperation(value = "Cancel a run of a scheduled job", tags = { "scheduler", })
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "The run was cancelled"),
+            @ApiResponse(code = 404, message = "The job has no such run in progress") })
+    @DeleteMapping(value = "/private/v1/scheduledJob/{jobName}/{runId}")
+    public ResponseEntity<Void> cancelJob(@ApiParam(value = "The job name") @PathVariable String jobName,
+            @ApiParam(value = "The execution id") @PathVariable String runId) {
+        if (running.cancel(jobName, runId)) {
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        }
+        LOGGER.info("Unable to cancel run {} of job {}: it is not in progress", runId, jobName);
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * List the runs that are queued or executing with the progress they have reported.
+     * @return The runs.
+     */
+    @ApiOperation(value = "List the runs in progress", tags = { "agent", })
+    @GetMapping(value = "/private/v1/agent/runs", produces = { "application/json" })
+    public List<ActiveRun> listRuns() {
+        return running.getExecutions().stream().map(ActiveRun::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Vaalidate job creation. The job's parameters are read from the request body as for
+     * {@link #runJobRequest}.
+     * @param jobName The name of the job.
+     * @param body The job's parameters.
+     * @param contentType The content type of the parameters.
      * @return The response entity.
      */
     @ApiOperation(value = "Validate a job", tags = { "scheduler", })
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "The job was dispatched"),
+            @ApiResponse(code = 400, message = "The job parameters could not be read"),
             @ApiResponse(code = 404, message = "Job Not Found") })
     @PostMapping(value = "/private/v1/scheduledJob/{jobName}/validate", produces = { "application/json" })
-    public ResponseEntity<Boolean> validateJob(@ApiParam(value = "The job name") @PathVariable String jobName,
-            @ApiParam(value = "The job parameters") @Valid @RequestBody(required = false)
-                    String jobParams) {
+    public ResponseEntity<Boolean> validateJobRequest(
+            @ApiParam(value = "The job name") @PathVariable String jobName, InputStream body,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType) {
+        ScheduledJob scheduledJob = scheduledJobMap.get(jobName);
+        try (JobPayload payload = scheduledJob != null ? readPayload(scheduledJob, body, contentType) : null) {
+            return validate(jobName, payload);
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to read the parameters of job {}: {}", jobName, ex.getMessage());
+            return new ResponseEntity<>(Boolean.FALSE, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Validate job creation with parameters that are already in memory.
+     * @param jobName The name of the job.
+     * @param jobParams A map of parameters to pass to the job.
+     * @return The response entity.
+     */
+    public ResponseEntity<Boolean> validateJob(String jobName, String jobParams) {
+        try {
+            return validate(jobName, JobPayload.of(jobParams));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private ResponseEntity<Boolean> validate(String jobName, JobPayload payload) throws IOException {
         ScheduledJob scheduledJob = scheduledJobMap.get(jobName);
         if (scheduledJob != null) {
-            boolean result = scheduledJob.validateJob(jobParams);
+            boolean result = scheduledJob instanceof StreamingScheduledJob
+                    ? ((StreamingScheduledJob) scheduledJob).validateJob(payload)
+                    : scheduledJob.validateJob(payload.asString());
 
             return new ResponseEntity<>(result, HttpStatus.OK);
         } else {
@@ -132,46 +694,258 @@ public class ScheduledJobController {
         }
     }
 
-    private static class Agent implements Runnable {
-        private final String jobParams;
+    private JobPayload readPayload(ScheduledJob job, InputStream body, String contentType) throws IOException {
+        Charset charset = StandardCharsets.UTF_8;
+        if (contentType != null) {
+            try {
+                Charset declared = MediaType.parseMediaType(contentType).getCharset();
+                charset = declared != null ? declared : charset;
+            } catch (InvalidMediaTypeException ex) {
+                LOGGER.debug("Ignoring invalid content type {}", contentType);
+            }
+        }
+        if (body == null) {
+            return JobPayload.of(null);
+        }
+        if (job instanceof StreamingScheduledJob) {
+            return JobPayload.read(body, charset, spillThresholdBytes,
+                    payloadDirectory.isEmpty() ? null : Paths.get(payloadDirectory));
+        }
+        String params = StreamUtils.copyToString(body, charset);
+        return JobPayload.of(params.isEmpty() ? null : params);
+    }
+
+    private long getTimeoutNanos(String jobName, ScheduledJob job) {
+        Long seconds = environment.getProperty("nextkala.agent.execution.jobs." + jobName + ".timeout-seconds",
+                Long.class);
+        if (seconds == null) {
+            Job annotation = AnnotationUtils.findAnnotation(AopUtils.getTargetClass(job), Job.class);
+            seconds = annotation != null && annotation.timeoutSeconds() >= 0 ? annotation.timeoutSeconds()
+                    : defaultTimeoutSeconds;
+        }
+        return TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+    }
+
+    private String getQueueKey(String jobName, String jobId, String owner) {
+        if (owners == null) {
+            return jobName;
+        }
+        if (owner != null && !owner.isEmpty()) {
+            owners.put(jobId, owner);
+            return owner;
+        }
+        String cached = owners.getOwner(jobId);
+        return cached != null ? cached : jobName;
+    }
+
+    private void cancelled(RunningJobs.Execution execution, String reason) {
+        LOGGER.warn("Run {} of job {} was cancelled: {}", execution.getRunId(), execution.getJobName(), reason);
+        metrics.jobCancelled(execution.getJobName(), reason);
+        runs.complete(execution.getRunId(), JobStatus.FAILED);
+        try {
+            schedulingClient.updateJobExecutionStatus(execution.getJobId(), execution.getRunId(), JobStatus.FAILED);
+        } catch (Exception ex) {
+            LOGGER.warn("Unable to update job status for job execution {} due to {}", execution.getRunId(),
+                    ex.getMessage());
+        }
+    }
+
+    private int getActiveRuns() {
+        if (executorService instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executorService).getActiveCount();
+        }
+        return ((VirtualThreadExecutor) executorService).getActiveCount();
+    }
+
+    private int getQueuedRuns() {
+        if (executorService instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executorService).getQueue().size();
+        }
+        return 0;
+    }
+
+    private static ResponseEntity<Void> duplicate(JobStatus status) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("NextKala-RunStatus", status.getStatus());
+        return new ResponseEntity<>(headers, HttpStatus.ACCEPTED);
+    }
+
+    private ResponseEntity<Void> rejected(HttpStatus status) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds));
+        return new ResponseEntity<>(headers, status);
+    }
+
+    /**
+     * Reads the parameters of a run once it has been admitted.
+     */
+    @FunctionalInterface
+    private interface PayloadReader {
+        JobPayload read(ScheduledJob job) throws IOException;
+    }
+
+    private static class Agent implements Runnable, FairQueue.Keyed {
+        private final JobPayload payload;
         private final ScheduledJob job;
         private final String jobId;
         private final String executionId;
         private final String jobName;
         private final SchedulerClient client;
         private final Map<String, String> threadContext;
+        private final AgentMetrics metrics;
+        private final DispatchTiming timing;
+        private final RunDeduplicator runs;
+        private final RunningJobs running;
+        private final RunningJobs.Execution execution;
+        private final String queueKey;
+        private final Executor executor;
 
-        public Agent(String name, String jobParams, String jobId, String executionId, ScheduledJob job,
-                SchedulerClient client, Map<String, String> threadContext) {
-            this.jobParams = jobParams;
+        public Agent(String name, JobPayload payload, String jobId, String executionId, ScheduledJob job,
+                SchedulerClient client, Map<String, String> threadContext, AgentMetrics metrics,
+                DispatchTiming timing, RunDeduplicator runs, RunningJobs running, RunningJobs.Execution execution,
+                String queueKey, Executor executor) {
+            this.payload = payload;
             this.jobId = jobId;
             this.executionId = executionId;
             this.job = job;
             this.jobName = name;
             this.client = client;
             this.threadContext = threadContext;
+            this.metrics = metrics;
+            this.timing = timing;
+            this.runs = runs;
+            this.running = running;
+            this.execution = execution;
+            this.queueKey = queueKey;
+            this.executor = executor;
+        }
+
+        @Override
+        public String getQueueKey() {
+            return queueKey;
         }
 
         public void run() {
+            if (!running.start(execution)) {
+                LOGGER.info("Run {} of job {} was cancelled before it started", executionId, jobName);
+                payload.close();
+                return;
+            }
+            RunProgress.bind(execution.getProgress());
+            try {
+                execute();
+            } finally {
+                RunProgress.bind(null);
+            }
+        }
+
+        private void execute() {
+            long start = System.nanoTime();
+            metrics.jobStarted(jobName);
+            ThreadContext.putAll(threadContext);
+            timing.started(start);
+            int status;
             try {
                 LOGGER.info("Starting job {}", jobName);
-                ThreadContext.putAll(threadContext);
                 client.updateJobExecutionStatus(jobId, executionId, JobStatus.RUNNING);
-                int status = job.executeJob(jobId, executionId, jobParams);
-                client.updateJobExecutionStatus(jobId, executionId,
-                        status == 0 ? JobStatus.SUCCESS : JobStatus.FAILED);
-                LOGGER.info("Job {} completed with status {}", jobName, status);
+                if (job instanceof AsyncScheduledJob) {
+                    runAsync(start);
+                    return;
+                }
+                status = job instanceof StreamingScheduledJob
+                        ? ((StreamingScheduledJob) job).executeJob(jobId, executionId, payload)
+                        : job.executeJob(jobId, executionId, payload.asString());
             } catch (Throwable throwable) {
-                LOGGER.error("Job {} failed due to {}: {}", jobName, throwable.getClass().getName(),
-                        throwable.getMessage());
+                complete(start, null, throwable);
+                return;
+            }
+            complete(start, status, null);
+        }
+
+        private void runAsync(long start) throws IOException {
+            CompletableFuture<Integer> future = ((AsyncScheduledJob) job)
+                    .executeJobAsync(jobId, executionId, payload.asString()).toCompletableFuture();
+            running.detach(execution, future);
+            Map<String, String> context = ThreadContext.getContext();
+            ThreadContext.clearMap();
+            future.whenCompleteAsync((status, error) -> {
+                Map<String, String> previous = ThreadContext.getContext();
+                ThreadContext.clearMap();
+                ThreadContext.putAll(context);
                 try {
-                    client.updateJobExecutionStatus(jobId, executionId, JobStatus.FAILED);
-                } catch (Exception ex) {
-                    LOGGER.warn("Unable to update job status for job execution {} due to {}", executionId,
-                            ex.getMessage());
+                    complete(start, status, error);
+                } finally {
+                    ThreadContext.clearMap();
+                    ThreadContext.putAll(previous);
                 }
+            }, this::completeOnAgentThread);
+        }
+
+        /*
+         * Runs the completion of an asynchronous run on the agent's executor rather than on the thread that
+         * completed the job's future, which may belong to an HTTP client's event loop. If the executor refuses it,
+         * because it is full or shutting down, the completion runs on the calling thread so that it is not lost.
+         */
+        private void completeOnAgentThread(Runnable completion) {
+            try {
+                executor.execute(completion);
+            } catch (RejectedExecutionException ex) {
+                completion.run();
+            }
+        }
+
+        private void complete(long start, Integer status, Throwable error) {
+            boolean success = false;
+            try {
+                String reason = running.finish(execution) ? null : execution.getCancelReason();
+                if (reason != null) {
+                    ThreadContext.put("nextkala.cancelReason", reason);
+                    LOGGER.warn("Job {} stopped after it was cancelled: {}", jobName, reason);
+                } else if (error != null) {
+                    failed(error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                            : error);
+                } else {
+                    success = status != null && status == 0;
+                    client.updateJobExecutionStatus(jobId, executionId,
+                            success ? JobStatus.SUCCESS : JobStatus.FAILED);
+                    timing.completed(System.nanoTime());
+                    LOGGER.info("Job {} completed with status {}", jobName, status);
+                }
+            } catch (Throwable throwable) {
+                failed(throwable);
             } finally {
+                payload.close();
+                runs.complete(executionId, success ? JobStatus.SUCCESS : JobStatus.FAILED);
                 ThreadContext.clearMap();
+                metrics.jobFinished(jobName, success, System.nanoTime() - start);
+                recordLag();
+            }
+        }
+
+        /**
+         * Release the run's payload when it is removed from a queue without being run.
+         */
+        void discard() {
+            payload.close();
+        }
+
+        private void failed(Throwable throwable) {
+            LOGGER.error("Job {} failed due to {}: {}", jobName, throwable.getClass().getName(),
+                    throwable.getMessage());
+            try {
+                client.updateJobExecutionStatus(jobId, executionId, JobStatus.FAILED);
+            } catch (Exception ex) {
+                LOGGER.warn("Unable to update job status for job execution {} due to {}", executionId,
+                        ex.getMessage());
+            }
+        }
+
+        private void recordLag() {
+            metrics.dispatchLag(jobName, DispatchTiming.STAGE_QUEUE, timing.getQueueLagNanos());
+            long delivery = timing.getDeliveryLagNanos();
+            if (delivery >= 0) {
+                metrics.dispatchLag(jobName, DispatchTiming.STAGE_DELIVERY, delivery);
+                metrics.dispatchLag(jobName, DispatchTiming.STAGE_START, timing.getStartLagNanos());
             }
         }
     }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.nextiva.scheduling.api.CallOptions;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.Scheduler;
+
+/**
+ * Looks up the time NextKala last attempted a job, for runs dispatched without their scheduled time. NextKala
+ * has already advanced the job's next run time when it dispatches a run, so the last attempted run time is used.
+ * Lookups start when a run is dispatched and run in the background, so they overlap the time the run spends
+ * queued. Each is bounded by a timeout, after which the scheduled time is unknown.
+ */
+final class ScheduledTimeLookup {
+
+    private static final Logger LOGGER = LogManager.getLogger(ScheduledTimeLookup.class);
+    private static final int LOOKUP_THREADS = 2;
+    private static final int LOOKUP_QUEUE = 100;
+
+    private final Scheduler scheduler;
+    private final long timeoutNanos;
+    private final CallOptions options;
+    private final ThreadPoolExecutor lookups;
+
+    /**
+     * Create a ScheduledTimeLookup.
+     * @param scheduler The Scheduler job definitions are read from.
+     * @param timeout How long to wait for NextKala when looking up a scheduled time.
+     */
+    ScheduledTimeLookup(Scheduler scheduler, Duration timeout) {
+        this.scheduler = scheduler;
+        this.timeoutNanos = timeout.toNanos();
+        this.options = new CallOptions().timeout(timeout);
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "nextkala-agent-scheduled-time-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.lookups = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(LOOKUP_QUEUE), threadFactory);
+        lookups.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Start looking up the time NextKala last attempted a job.
+     * @param jobId The job's id.
+     * @return The time, which completes with null if it cannot be found within the timeout.
+     */
+    CompletableFuture<Instant> lookUp(String jobId) {
+        try {
+            return CompletableFuture.supplyAsync(() -> load(jobId), lookups)
+                    .completeOnTimeout(null, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            LOGGER.debug("Not looking up the scheduled time of job {}: too many lookups in progress", jobId);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Stop looking up scheduled times.
+     */
+    void shutdown() {
+        lookups.shutdownNow();
+    }
+
+    private Instant load(String jobId) {
+        try {
+            JobDefinition job = scheduler.getJob(jobId, null, options);
+            return job != null && job.getMetadata() != null ? job.getMetadata().getLastAttemptedRunInstant() : null;
+        } catch (RuntimeException ex) {
+            LOGGER.debug("Unable to look up the scheduled time of job {}: {}", jobId, ex.getMessage());
+            return null;
+        }
+    }
+}
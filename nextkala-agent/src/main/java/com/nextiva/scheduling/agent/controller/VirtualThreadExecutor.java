@@ -0,0 +1,145 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.controller;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs each task on its own virtual thread, limiting the number of tasks that may be in flight at once.
+ * Virtual threads require Java 21. They are located reflectively so that the agent continues to build
+ * and run on Java 11; {@link #isSupported()} reports whether the running JVM provides them.
+ */
+class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final Logger LOGGER = LogManager.getLogger(VirtualThreadExecutor.class);
+    private static final ThreadFactory FACTORY = createFactory("nextkala-agent-virtual-");
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxRuns;
+
+    VirtualThreadExecutor(int maxRuns) {
+        if (FACTORY == null) {
+            throw new IllegalStateException("Virtual threads are not supported by this JVM");
+        }
+        this.maxRuns = maxRuns;
+        this.permits = new Semaphore(maxRuns);
+        this.executor = newThreadPerTaskExecutor(FACTORY);
+    }
+
+    /**
+     * Determine whether virtual threads are available.
+     * @return true if the JVM supports virtual threads.
+     */
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * Return the number of tasks that are currently running.
+     * @return the number of active tasks.
+     */
+    int getActiveCount() {
+        return maxRuns - permits.availablePermits();
+    }
+
+    /**
+     * Determine whether the maximum number of tasks are running.
+     * @return true if a task submitted now would be rejected.
+     */
+    boolean isSaturated() {
+        return permits.availablePermits() == 0;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Maximum of " + maxRuns + " concurrent runs reached");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to create a virtual thread executor", ex);
+        }
+    }
+
+    private static ThreadFactory createFactory(String prefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            LOGGER.debug("Virtual threads are not available: {}", ex.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.metrics;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Receives measurements of job dispatch, job execution and scheduler client calls. The default methods do
+ * nothing, so implementations only override the measurements they record. {@link MicrometerAgentMetrics}
+ * records them with Micrometer.
+ */
+public interface AgentMetrics {
+
+    /**
+     * Metrics that record nothing.
+     */
+    AgentMetrics NONE = new AgentMetrics() { };
+
+    /**
+     * Record the handling of a dispatch request.
+     * @param jobName The name of the job, or null if no job has the requested name.
+     * @param result The result of the request: accepted, rejected, draining, duplicate or not_found.
+     * @param nanos The time taken to accept or refuse the run.
+     */
+    default void dispatched(String jobName, String result, long nanos) {
+    }
+
+    /**
+     * Record the lag of one stage between the time a run was scheduled and the time it started.
+     * @param jobName The name of the job.
+     * @param stage The stage: delivery, from the scheduled time until the dispatch was received; queue, from
+     *     receipt until a thread started the run; or start, the sum of both.
+     * @param nanos The lag.
+     */
+    default void dispatchLag(String jobName, String stage, long nanos) {
+    }
+
+    /**
+     * Record the time a run waited in the fair queue for a thread.
+     * @param key The key the run was queued under: its job's owner or name.
+     * @param nanos The time waited.
+     */
+    default void queueWait(String key, long nanos) {
+    }
+
+    /**
+     * Record that a job run has started.
+     * @param jobName The name of the job.
+     */
+    default void jobStarted(String jobName) {
+    }
+
+    /**
+     * Record that a job run has finished.
+     * @param jobName The name of the job.
+     * @param success true if the job succeeded.
+     * @param nanos The duration of the run.
+     */
+    default void jobFinished(String jobName, boolean success, long nanos) {
+    }
+
+    /**
+     * Record that a run was cancelled before it completed.
+     * @param jobName The name of the job.
+     * @param reason Why it was cancelled: timeout; cancelled, when requested; shutdown, when it had not
+     *     ended by the drain deadline; or stalled, when it stopped reporting progress.
+     */
+    default void jobCancelled(String jobName, String reason) {
+    }
+
+    /**
+     * Record that a run has stopped reporting progress.
+     * @param jobName The name of the job.
+     */
+    default void jobStalled(String jobName) {
+    }
+
+    /**
+     * Observe the job executor.
+     * @param activeRuns Returns the number of runs executing.
+     * @param queuedRuns Returns the number of runs waiting for a thread.
+     */
+    default void bindExecutor(IntSupplier activeRuns, IntSupplier queuedRuns) {
+    }
+
+    /**
+     * Observe a bulkhead, a pool of threads dedicated to some jobs.
+     * @param name The bulkhead's name.
+     * @param activeRuns Returns the number of runs executing.
+     * @param queuedRuns Returns the number of runs waiting for a thread.
+     * @param maxConcurrency The number of runs that may execute at once.
+     */
+    default void bindBulkhead(String name, IntSupplier activeRuns, IntSupplier queuedRuns, int maxConcurrency) {
+    }
+
+    /**
+     * Record that a bulkhead rejected a run because its threads were busy and its queue was full.
+     * @param name The bulkhead's name.
+     */
+    default void bulkheadRejected(String name) {
+    }
+
+    /**
+     * Record a call to NextKala.
+     * @param endpoint The name of the SchedulerClient method.
+     * @param error The exception thrown by the call, or null if it succeeded.
+     * @param nanos The duration of the call.
+     */
+    default void clientCall(String endpoint, Throwable error, long nanos) {
+    }
+
+    /**
+     * Record a batch of execution status updates sent by a StatusReporter.
+     * @param batchSize The number of updates sent.
+     * @param nanos The time taken to send the batch.
+     */
+    default void statusFlushed(int batchSize, long nanos) {
+    }
+}
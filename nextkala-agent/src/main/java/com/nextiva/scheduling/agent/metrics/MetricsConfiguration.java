@@ -0,0 +1,76 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.metrics;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.cache.CachingScheduler;
+import com.nextiva.scheduling.agent.transport.PooledTransport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Instruments the agent with Micrometer when Micrometer is on the classpath and a MeterRegistry bean is
+ * present. Once all singletons have been created, every SchedulerClient bean records its calls, and the
+ * SchedulerClient, PooledTransport and CachingScheduler beans are observed by gauges and counters.
+ */
+@Configuration
+@Conditional(MicrometerPresentCondition.class)
+public class MetricsConfiguration {
+
+    /**
+     * Create the agent metrics.
+     * @param registry The meter registry, if there is one.
+     * @return Metrics recorded to the registry, or metrics that record nothing if there is no registry.
+     */
+    @Bean
+    public AgentMetrics agentMetrics(ObjectProvider<MeterRegistry> registry) {
+        MeterRegistry meterRegistry = registry.getIfAvailable();
+        return meterRegistry != null ? new MicrometerAgentMetrics(meterRegistry) : AgentMetrics.NONE;
+    }
+
+    /**
+     * Bind the agent's components to the metrics once they have all been created.
+     * @param beanFactory The bean factory.
+     * @param metrics The agent metrics.
+     * @return The binder.
+     */
+    @Bean
+    public SmartInitializingSingleton agentMetricsBinder(ListableBeanFactory beanFactory, AgentMetrics metrics) {
+        return () -> {
+            if (!(metrics instanceof MicrometerAgentMetrics)) {
+                return;
+            }
+            MicrometerAgentMetrics micrometer = (MicrometerAgentMetrics) metrics;
+            beanFactory.getBeansOfType(SchedulerClient.class).values().forEach(client -> {
+                client.setMetrics(micrometer);
+                micrometer.bindClient(client);
+            });
+            beanFactory.getBeansOfType(PooledTransport.class).values().forEach(micrometer::bindTransport);
+            beanFactory.getBeansOfType(CachingScheduler.class).forEach((name, cache) -> micrometer.bindCache(cache,
+                    name));
+        };
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.web.client.HttpStatusCodeException;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.cache.CachingScheduler;
+import com.nextiva.scheduling.agent.resilience.CircuitBreaker;
+import com.nextiva.scheduling.agent.resilience.Resilience;
+import com.nextiva.scheduling.agent.status.StatusReporter;
+import com.nextiva.scheduling.agent.transport.PoolStats;
+import com.nextiva.scheduling.agent.transport.PooledTransport;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records agent measurements with Micrometer. Meters are created the first time a job, dispatch result or
+ * client call outcome is seen and are then reused.
+ *
+ * <table>
+ * <caption>Meters</caption>
+ * <tr><th>Name</th><th>Type</th><th>Tags</th></tr>
+ * <tr><td>nextkala.dispatch</td><td>Timer</td><td>job, result</td></tr>
+ * <tr><td>nextkala.dispatch.lag</td><td>Timer</td><td>job, stage</td></tr>
+ * <tr><td>nextkala.queue.wait</td><td>Timer</td><td>key</td></tr>
+ * <tr><td>nextkala.job.runs</td><td>Timer</td><td>job, outcome</td></tr>
+ * <tr><td>nextkala.job.active</td><td>Gauge</td><td>job</td></tr>
+ * <tr><td>nextkala.job.cancellations</td><td>Counter</td><td>job, reason</td></tr>
+ * <tr><td>nextkala.job.stalls</td><td>Counter</td><td>job</td></tr>
+ * <tr><td>nextkala.executor.active, nextkala.executor.queued</td><td>Gauge</td><td></td></tr>
+ * <tr><td>nextkala.bulkhead.active, nextkala.bulkhead.queued, nextkala.bulkhead.utilization</td>
+ * <td>Gauge</td><td>bulkhead</td></tr>
+ * <tr><td>nextkala.bulkhead.rejections</td><td>Counter</td><td>bulkhead</td></tr>
+ * <tr><td>nextkala.client.requests</td><td>Timer</td><td>endpoint, outcome, error</td></tr>
+ * </table>
+ *
+ * <p>Timers publish percentile histograms and their counts give the number of dispatches, runs and calls with
+ * each outcome. The bind methods add meters that observe the state of other agent components.</p>
+ */
+public class MicrometerAgentMetrics implements AgentMetrics {
+
+    private static final String UNKNOWN_JOB = "unknown";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> dispatches = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lags = new ConcurrentHashMap<>();
+    private final Map<String, Timer> waits = new ConcurrentHashMap<>();
+    private final Map<String, JobMeters> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Timer> calls = new ConcurrentHashMap<>();
+    private final Map<String, Counter> cancellations = new ConcurrentHashMap<>();
+    private final Map<String, Counter> bulkheadRejections = new ConcurrentHashMap<>();
+    private final Map<String, Counter> stalls = new ConcurrentHashMap<>();
+    private final Timer statusFlushes;
+
+    /**
+     * Create a MicrometerAgentMetrics.
+     * @param registry The registry meters are added to.
+     */
+    public MicrometerAgentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.statusFlushes = Timer.builder("nextkala.status.flush")
+                .description("Time taken to send a batch of status updates")
+                .register(registry);
+    }
+
+    @Override
+    public void dispatched(String jobName, String result, long nanos) {
+        String job = jobName != null ? jobName : UNKNOWN_JOB;
+        dispatches.computeIfAbsent(job + ':' + result, key -> Timer.builder("nextkala.dispatch")
+                .description("Time taken to accept or refuse a job run")
+                .tags("job", job, "result", result)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void dispatchLag(String jobName, String stage, long nanos) {
+        lags.computeIfAbsent(jobName + ':' + stage, key -> Timer.builder("nextkala.dispatch.lag")
+                .description("Lag between the scheduled time of a run and its start, by stage")
+                .tags("job", jobName, "stage", stage)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void queueWait(String key, long nanos) {
+        waits.computeIfAbsent(key, k -> Timer.builder("nextkala.queue.wait")
+                .description("Time runs waited in the fair queue, by owner or job")
+                .tags("key", key)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void jobStarted(String jobName) {
+        jobMeters(jobName).active.incrementAndGet();
+    }
+
+    @Override
+    public void jobFinished(String jobName, boolean success, long nanos) {
+        JobMeters meters = jobMeters(jobName);
+        meters.active.decrementAndGet();
+        (success ? meters.successes : meters.failures).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void jobCancelled(String jobName, String reason) {
+        cancellations.computeIfAbsent(jobName + ':' + reason, key -> Counter.builder("nextkala.job.cancellations")
+                .description("Runs cancelled before they completed")
+                .tags("job", jobName, "reason", reason)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void jobStalled(String jobName) {
+        stalls.computeIfAbsent(jobName, key -> Counter.builder("nextkala.job.stalls")
+                .description("Runs that stopped reporting progress")
+                .tag("job", jobName)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void bindExecutor(IntSupplier activeRuns, IntSupplier queuedRuns) {
+        Gauge.builder("nextkala.executor.active", activeRuns, IntSupplier::getAsInt)
+                .description("Job runs executing")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("nextkala.executor.queued", queuedRuns, IntSupplier::getAsInt)
+                .description("Job runs waiting for a thread")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    @Override
+    public void bindBulkhead(String name, IntSupplier activeRuns, IntSupplier queuedRuns, int maxConcurrency) {
+        Gauge.builder("nextkala.bulkhead.active", activeRuns, IntSupplier::getAsInt)
+                .description("Runs of the bulkhead executing")
+                .tag("bulkhead", name)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("nextkala.bulkhead.queued", queuedRuns, IntSupplier::getAsInt)
+                .description("Runs of the bulkhead waiting for a thread")
+                .tag("bulkhead", name)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("nextkala.bulkhead.utilization", activeRuns, runs -> runs.getAsInt() / (double) maxConcurrency)
+                .description("Fraction of the bulkhead's threads in use")
+                .tag("bulkhead", name)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    @Override
+    public void bulkheadRejected(String name) {
+        bulkheadRejections.computeIfAbsent(name, key -> Counter.builder("nextkala.bulkhead.rejections")
+                .description("Runs rejected because the bulkhead was full")
+                .tag("bulkhead", name)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void clientCall(String endpoint, Throwable error, long nanos) {
+        String errorTag = error == null ? "none" : error instanceof HttpStatusCodeException
+                ? Integer.toString(((HttpStatusCodeException) error).getRawStatusCode())
+                : error.getClass().getSimpleName();
+        calls.computeIfAbsent(endpoint + ':' + errorTag, key -> Timer.builder("nextkala.client.requests")
+                .description("Calls to NextKala")
+                .tags("endpoint", endpoint, "outcome", error == null ? "success" : "error", "error", errorTag)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void statusFlushed(int batchSize, long nanos) {
+        statusFlushes.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Observe the hedged requests, status reporter and resilience of a SchedulerClient.
+     * @param client The client.
+     */
+    public void bindClient(SchedulerClient client) {
+        counter("nextkala.client.hedges", Tags.empty(), client, SchedulerClient::getHedgeCount);
+        counter("nextkala.client.hedges.won", Tags.empty(), client, SchedulerClient::getHedgeWinCount);
+        counter("nextkala.status.updates", Tags.of("state", "submitted"), client,
+                c -> reporter(c, StatusReporter::getSubmittedCount));
+        counter("nextkala.status.updates", Tags.of("state", "coalesced"), client,
+                c -> reporter(c, StatusReporter::getCoalescedCount));
+        counter("nextkala.status.updates", Tags.of("state", "sent"), client,
+                c -> reporter(c, StatusReporter::getSentCount));
+        counter("nextkala.status.updates", Tags.of("state", "failed"), client,
+                c -> reporter(c, StatusReporter::getFailedCount));
+        counter("nextkala.status.updates", Tags.of("state", "rejected"), client,
+                c -> reporter(c, StatusReporter::getRejectedCount));
+        counter("nextkala.status.batches", Tags.empty(), client, c -> reporter(c, StatusReporter::getBatchCount));
+        Gauge.builder("nextkala.status.pending", client, c -> reporter(c, StatusReporter::getPendingCount))
+                .description("Status updates waiting to be sent")
+                .register(registry);
+        counter("nextkala.client.retries", Tags.empty(), client, c -> resilience(c, Resilience::getRetryCount));
+        counter("nextkala.client.retries.refused", Tags.empty(), client,
+                c -> resilience(c, Resilience::getBudgetExhaustedCount));
+        Gauge.builder("nextkala.client.circuits.open", client, c -> resilience(c, MicrometerAgentMetrics::openCircuits))
+                .description("Endpoints whose circuit is open")
+                .register(registry);
+    }
+
+    /**
+     * Observe the connection pool of a transport.
+     * @param transport The transport.
+     */
+    public void bindTransport(PooledTransport transport) {
+        poolGauge("nextkala.transport.connections", "leased", transport, PoolStats::getLeased);
+        poolGauge("nextkala.transport.connections", "available", transport, PoolStats::getAvailable);
+        poolGauge("nextkala.transport.connections", "pending", transport, PoolStats::getPending);
+        poolGauge("nextkala.transport.connections.max", null, transport, PoolStats::getMax);
+    }
+
+    /**
+     * Observe a job definition cache.
+     * @param cache The cache.
+     * @param name The name of the cache, used as the cache tag.
+     */
+    public void bindCache(CachingScheduler cache, String name) {
+        counter("nextkala.cache.requests", Tags.of("cache", name, "result", "hit"), cache,
+                CachingScheduler::getHitCount);
+        counter("nextkala.cache.requests", Tags.of("cache", name, "result", "miss"), cache,
+                CachingScheduler::getMissCount);
+        counter("nextkala.cache.evictions", Tags.of("cache", name), cache, CachingScheduler::getEvictionCount);
+        Gauge.builder("nextkala.cache.size", cache, CachingScheduler::size)
+                .tags("cache", name)
+                .register(registry);
+    }
+
+    private JobMeters jobMeters(String jobName) {
+        return jobs.computeIfAbsent(jobName, JobMeters::new);
+    }
+
+    private <T> void counter(String name, Tags tags, T obj, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, obj, count).tags(tags).register(registry);
+    }
+
+    private void poolGauge(String name, String state, PooledTransport transport, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(name, transport, t -> {
+            PoolStats stats = t.getPoolStats();
+            return stats != null ? value.applyAsDouble(stats) : Double.NaN;
+        }).tags(state != null ? Tags.of("state", state) : Tags.empty()).register(registry);
+    }
+
+    private static double reporter(SchedulerClient client, ToDoubleFunction<StatusReporter> value) {
+        StatusReporter reporter = client.getStatusReporter();
+        return reporter != null ? value.applyAsDouble(reporter) : 0;
+    }
+
+    private static double resilience(SchedulerClient client, ToDoubleFunction<Resilience> value) {
+        Resilience resilience = client.getResilience();
+        return resilience != null ? value.applyAsDouble(resilience) : 0;
+    }
+
+    private static double openCircuits(Resilience resilience) {
+        return resilience.getCircuitBreakers().stream()
+                .filter(breaker -> breaker.getState() == CircuitBreaker.State.OPEN)
+                .count();
+    }
+
+    private final class JobMeters {
+        private final Timer successes;
+        private final Timer failures;
+        private final AtomicInteger active = new AtomicInteger();
+
+        JobMeters(String jobName) {
+            successes = runs(jobName, "success");
+            failures = runs(jobName, "failure");
+            Gauge.builder("nextkala.job.active", active, AtomicInteger::get)
+                    .description("Runs of the job executing")
+                    .tag("job", jobName)
+                    .register(registry);
+        }
+
+        private Timer runs(String jobName, String outcome) {
+            return Timer.builder("nextkala.job.runs")
+                    .description("Duration of job runs")
+                    .tags("job", jobName, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
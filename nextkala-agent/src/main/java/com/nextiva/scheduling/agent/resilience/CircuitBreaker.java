@@ -0,0 +1,149 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A circuit breaker for one NextKala endpoint. The circuit opens after a number of consecutive failures and
+ * rejects calls until the open duration has elapsed. A single trial call is then allowed; its success closes
+ * the circuit and its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The state of a circuit.
+     */
+    public enum State {
+        /**
+         * Calls are allowed.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+        /**
+         * A trial call is in progress or allowed.
+         */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    CircuitBreaker(String name, int failureThreshold, long openNanos) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Return the name of the endpoint.
+     * @return The endpoint's name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the state of the circuit.
+     * @return The state.
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Return the number of calls that succeeded.
+     * @return The number of successes.
+     */
+    public long getSuccessCount() {
+        return successes.get();
+    }
+
+    /**
+     * Return the number of calls that failed.
+     * @return The number of failures.
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Return the number of calls rejected because the circuit was open.
+     * @return The number of rejections.
+     */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    /**
+     * Determine whether a call may be made.
+     * @return true if the call may be made.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN && !trialInProgress) {
+            trialInProgress = true;
+            return true;
+        }
+        rejections.incrementAndGet();
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        successes.incrementAndGet();
+        consecutiveFailures = 0;
+        trialInProgress = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Record a call whose outcome says nothing about the endpoint's health, such as one that failed while its
+     * response was being processed.
+     */
+    synchronized void onIgnored() {
+        trialInProgress = false;
+    }
+
+    synchronized void onFailure() {
+        failures.incrementAndGet();
+        trialInProgress = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+}
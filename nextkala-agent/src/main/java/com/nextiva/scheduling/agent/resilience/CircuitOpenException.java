@@ -0,0 +1,47 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.resilience;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling NextKala while the circuit for an endpoint is open.
+ */
+public class CircuitOpenException extends RestClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String endpoint;
+
+    /**
+     * Create a CircuitOpenException.
+     * @param name The name of the endpoint.
+     */
+    public CircuitOpenException(String name) {
+        super("Circuit for " + name + " is open");
+        this.endpoint = name;
+    }
+
+    /**
+     * Return the name of the endpoint whose circuit is open.
+     * @return The endpoint's name.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
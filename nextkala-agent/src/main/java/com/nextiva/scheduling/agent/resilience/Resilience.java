@@ -0,0 +1,192 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.resilience;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.nextiva.scheduling.agent.transport.Cancellation;
+import com.nextiva.scheduling.agent.transport.Deadline;
+
+/**
+ * Applies a circuit breaker per endpoint and retries failed idempotent calls with exponential backoff and full
+ * jitter. A call fails when NextKala cannot be reached, does not respond in time, returns a 5xx status or
+ * returns 429. Other 4xx statuses show that NextKala is healthy and are passed to the caller without a retry.
+ * Retries are limited by a {@link RetryBudget} shared by all endpoints so that they cannot multiply the load on
+ * NextKala while it is struggling. A retry is not attempted if the caller's {@link Deadline} would expire
+ * before it is sent, and neither a timeout caused by the caller's deadline nor a request aborted by a
+ * {@link Cancellation} counts against the endpoint.
+ */
+public class Resilience {
+
+    private static final Logger LOGGER = LogManager.getLogger(Resilience.class);
+
+    private final ResilienceSettings settings;
+    private final RetryBudget retryBudget;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * Create a Resilience.
+     * @param settings The settings.
+     */
+    public Resilience(ResilienceSettings settings) {
+        this.settings = settings;
+        this.retryBudget = new RetryBudget(settings.getRetryRatio(), settings.getMinRetriesPerSecond());
+    }
+
+    /**
+     * Make a call through the endpoint's circuit breaker, retrying it if it fails and is idempotent.
+     * @param name The name of the endpoint.
+     * @param idempotent true if the call may be repeated safely.
+     * @param call The call.
+     * @param <T> The type of the result.
+     * @return The result of the call.
+     * @throws CircuitOpenException if the endpoint's circuit is open.
+     */
+    public <T> T call(String name, boolean idempotent, Supplier<T> call) {
+        CircuitBreaker breaker = getCircuitBreaker(name);
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException(name);
+        }
+        retryBudget.deposit();
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = call.get();
+                breaker.onSuccess();
+                return result;
+            } catch (HttpStatusCodeException ex) {
+                if (!isFailure(ex)) {
+                    breaker.onSuccess();
+                    throw ex;
+                }
+                breaker.onFailure();
+                if (!retry(name, idempotent, attempt, breaker)) {
+                    throw ex;
+                }
+            } catch (ResourceAccessException ex) {
+                Deadline deadline = Deadline.current();
+                Cancellation cancellation = Cancellation.current();
+                if (deadline != null && deadline.isExpired() || cancellation != null && cancellation.isCancelled()) {
+                    breaker.onIgnored();
+                    throw ex;
+                }
+                breaker.onFailure();
+                if (!retry(name, idempotent, attempt, breaker)) {
+                    throw ex;
+                }
+            } catch (RuntimeException ex) {
+                breaker.onIgnored();
+                throw ex;
+            }
+            ++attempt;
+        }
+    }
+
+    /**
+     * Return the circuit breaker of an endpoint.
+     * @param name The name of the endpoint.
+     * @return The circuit breaker.
+     */
+    public CircuitBreaker getCircuitBreaker(String name) {
+        return circuitBreakers.computeIfAbsent(name, key -> new CircuitBreaker(key, settings.getFailureThreshold(),
+                settings.getOpenDuration().toNanos()));
+    }
+
+    /**
+     * Return the circuit breakers of the endpoints that have been called.
+     * @return The circuit breakers.
+     */
+    public Collection<CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableCollection(circuitBreakers.values());
+    }
+
+    /**
+     * Return the number of retries made.
+     * @return The number of retries.
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Return the number of retries that were not made because the retry budget was exhausted.
+     * @return The number of retries refused by the budget.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * Return the number of retries the budget currently allows.
+     * @return The retry budget's balance.
+     */
+    public double getRetryBudgetBalance() {
+        return retryBudget.getBalance();
+    }
+
+    private boolean retry(String name, boolean idempotent, int attempt, CircuitBreaker breaker) {
+        if (!idempotent || attempt >= settings.getMaxAttempts()) {
+            return false;
+        }
+        long bound = Math.min(settings.getMaxBackoff().toNanos(),
+                settings.getInitialBackoff().toNanos() << Math.min(attempt - 1, 30));
+        long delay = bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0;
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.remainingNanos() <= delay) {
+            LOGGER.debug("Not retrying {}: the deadline would expire", name);
+            return false;
+        }
+        if (!retryBudget.tryWithdraw()) {
+            budgetExhausted.incrementAndGet();
+            LOGGER.debug("Not retrying {}: the retry budget is exhausted", name);
+            return false;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (!breaker.tryAcquire()) {
+            return false;
+        }
+        retries.incrementAndGet();
+        LOGGER.debug("Retrying {}, attempt {}", name, attempt + 1);
+        return true;
+    }
+
+    private static boolean isFailure(HttpStatusCodeException ex) {
+        return ex instanceof HttpServerErrorException || ex.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+    }
+}
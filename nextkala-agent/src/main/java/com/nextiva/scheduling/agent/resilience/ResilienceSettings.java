@@ -0,0 +1,148 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.resilience;
+
+import java.time.Duration;
+
+/**
+ * Settings for the circuit breakers and retries applied to SchedulerClient calls.
+ */
+public class ResilienceSettings {
+
+    private int failureThreshold = 5;
+    private Duration openDuration = Duration.ofSeconds(10);
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(100);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    private double retryRatio = 0.1;
+    private int minRetriesPerSecond = 1;
+
+    /**
+     * Return the number of consecutive failures that opens an endpoint's circuit.
+     * @return The failure threshold.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Set the number of consecutive failures that opens an endpoint's circuit.
+     * @param failureThreshold The failure threshold.
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Return how long a circuit stays open before a trial call is allowed.
+     * @return The open duration.
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Set how long a circuit stays open before a trial call is allowed.
+     * @param openDuration The open duration.
+     */
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Return the maximum number of attempts of an idempotent call, including the first.
+     * @return The maximum number of attempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Set the maximum number of attempts of an idempotent call, including the first.
+     * @param maxAttempts The maximum number of attempts.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Return the upper bound of the delay before the first retry.
+     * @return The initial backoff.
+     */
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * Set the upper bound of the delay before the first retry. The bound doubles with each retry.
+     * @param initialBackoff The initial backoff.
+     */
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Return the largest upper bound of the delay before a retry.
+     * @return The maximum backoff.
+     */
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Set the largest upper bound of the delay before a retry.
+     * @param maxBackoff The maximum backoff.
+     */
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Return the number of retries allowed for each call made.
+     * @return The retry ratio.
+     */
+    public double getRetryRatio() {
+        return retryRatio;
+    }
+
+    /**
+     * Set the number of retries allowed for each call made. A ratio of 0.1 allows at most one retry for every ten
+     * calls, so retries can add no more than 10% to the load on NextKala.
+     * @param retryRatio The retry ratio.
+     */
+    public void setRetryRatio(double retryRatio) {
+        this.retryRatio = retryRatio;
+    }
+
+    /**
+     * Return the number of retries allowed each second regardless of the retry ratio.
+     * @return The minimum number of retries per second.
+     */
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    /**
+     * Set the number of retries allowed each second regardless of the retry ratio, so that a client making
+     * few calls can still retry.
+     * @param minRetriesPerSecond The minimum number of retries per second.
+     */
+    public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+        this.minRetriesPerSecond = minRetriesPerSecond;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.resilience;
+
+/**
+ * Limits retries to a fraction of the calls made. Each call deposits the retry ratio into the budget and
+ * each retry withdraws one. The budget is also credited with the minimum number of retries every second, and
+ * holds at most ten seconds' worth of that minimum plus the deposits of a hundred calls.
+ */
+final class RetryBudget {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int RESERVE_SECONDS = 10;
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double capacity;
+    private double balance;
+    private long lastRefill;
+
+    RetryBudget(double ratio, int minRetriesPerSecond) {
+        this.ratio = Math.max(0, ratio);
+        this.minPerSecond = Math.max(0, minRetriesPerSecond);
+        this.capacity = this.minPerSecond * RESERVE_SECONDS + Math.max(1, this.ratio * 100);
+        this.balance = this.minPerSecond * RESERVE_SECONDS;
+        this.lastRefill = System.nanoTime();
+    }
+
+    synchronized void deposit() {
+        refill();
+        balance = Math.min(capacity, balance + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        refill();
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+
+    synchronized double getBalance() {
+        refill();
+        return balance;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double seconds = (double) (now - lastRefill) / NANOS_PER_SECOND;
+        lastRefill = now;
+        balance = Math.min(capacity, balance + seconds * minPerSecond);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.status;
+
+/**
+ * Notified each time the StatusReporter sends a batch of status updates.
+ */
+@FunctionalInterface
+public interface FlushListener {
+
+    /**
+     * Called after a batch has been sent.
+     * @param batchSize The number of updates that were sent.
+     * @param failed The number of updates NextKala did not accept.
+     * @param coalesced The number of updates that were dropped because a later update superseded them.
+     * @param durationNanos The time taken to send the batch.
+     */
+    void onFlush(int batchSize, int failed, int coalesced, long durationNanos);
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.status;
+
+/**
+ * The outcome of sending a status update to NextKala.
+ */
+public enum SendOutcome {
+    /**
+     * NextKala accepted the update.
+     */
+    ACCEPTED,
+    /**
+     * The update could not be delivered or NextKala was unable to process it. It may be accepted if it is sent
+     * again later.
+     */
+    RETRY,
+    /**
+     * NextKala refused the update and will refuse it again if it is resent.
+     */
+    REJECTED
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+/**
+ * An append-only file of execution status updates that have not yet been accepted by NextKala. Each update is
+ * appended before it is sent and an acknowledgement is appended once NextKala accepts it. When the outbox is
+ * opened any updates that were never acknowledged are recovered so they can be sent again in the order they
+ * were written. Writes are not forced to disk individually; {@link #sync()} forces all outstanding writes and
+ * is called once per batch.
+ *
+ * <p>The segment is truncated whenever every update has been acknowledged. Once most of the records in the
+ * segment are acknowledged updates and their acknowledgements it is compacted by writing the unacknowledged
+ * updates to a new segment, which then atomically replaces the old one.</p>
+ *
+ * <p>OAuth tokens are not written to the outbox. Recovered updates are sent without a token.</p>
+ */
+public class StatusOutbox implements AutoCloseable {
+
+    /**
+     * The name of the segment file within the outbox directory.
+     */
+    public static final String SEGMENT_NAME = "status-outbox.log";
+
+    /**
+     * The minimum number of records in the segment before it is compacted.
+     */
+    public static final int MIN_COMPACTION_RECORDS = 1024;
+
+    private static final Logger LOGGER = LogManager.getLogger(StatusOutbox.class);
+    private static final byte UPDATE = 1;
+    private static final byte ACK = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final Path segment;
+    private final Map<Long, StatusUpdate> unacknowledged = new TreeMap<>();
+    private FileChannel channel;
+    private long nextSequence;
+    private long records;
+    private boolean dirty;
+
+    /**
+     * Open the outbox in the specified directory, recovering any unacknowledged updates.
+     * @param directory The directory that holds the outbox segment. It is created if it does not exist.
+     * @throws IOException if the outbox cannot be opened.
+     */
+    public StatusOutbox(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.segment = directory.resolve(SEGMENT_NAME);
+        this.channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recover();
+        compactIfNeeded();
+    }
+
+    /**
+     * Append an update to the outbox.
+     * @param update The status update.
+     * @return The sequence number assigned to the update.
+     */
+    public synchronized long append(StatusUpdate update) {
+        long sequence = nextSequence++;
+        try {
+            write(List.of(updateRecord(sequence, update)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write to " + segment, ex);
+        }
+        unacknowledged.put(sequence, update);
+        return sequence;
+    }
+
+    /**
+     * Record that NextKala has accepted, or rejected, the updates with the specified sequence numbers. Once every
+     * update has been acknowledged the segment is truncated.
+     * @param sequences The sequence numbers of the updates.
+     */
+    public synchronized void acknowledge(Collection<Long> sequences) {
+        if (!unacknowledged.keySet().removeAll(sequences)) {
+            return;
+        }
+        try {
+            if (unacknowledged.isEmpty()) {
+                channel.truncate(0);
+                channel.position(0);
+                records = 0;
+                dirty = true;
+                return;
+            }
+            List<byte[]> acks = new ArrayList<>(sequences.size());
+            for (Long sequence : sequences) {
+                acks.add(ByteBuffer.allocate(1 + Long.BYTES).put(ACK).putLong(sequence).array());
+            }
+            write(acks);
+            compactIfNeeded();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write to " + segment, ex);
+        }
+    }
+
+    /**
+     * Return the updates that have not been acknowledged, ordered by sequence number.
+     * @return A Map of sequence number to update.
+     */
+    public synchronized Map<Long, StatusUpdate> getUnacknowledged() {
+        return new TreeMap<>(unacknowledged);
+    }
+
+    /**
+     * Force all writes to the storage device.
+     */
+    public synchronized void sync() {
+        if (dirty) {
+            try {
+                channel.force(false);
+                dirty = false;
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Unable to sync " + segment, ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * Return the number of records in the segment, including acknowledgements.
+     * @return The number of records.
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        writeRecords(channel, batch);
+        records += batch.size();
+        dirty = true;
+    }
+
+    /*
+     * Rewrites the segment when at least three quarters of its records are acknowledged updates and their
+     * acknowledgements, so the segment and the time taken to recover it stay proportional to the number of
+     * unacknowledged updates. Should the rewrite fail the existing segment continues to be used.
+     */
+    private void compactIfNeeded() throws IOException {
+        if (records < MIN_COMPACTION_RECORDS || unacknowledged.size() * 4L > records) {
+            return;
+        }
+        Path compacted = segment.resolveSibling(SEGMENT_NAME + ".tmp");
+        List<byte[]> live = new ArrayList<>(unacknowledged.size());
+        for (Map.Entry<Long, StatusUpdate> entry : unacknowledged.entrySet()) {
+            live.add(updateRecord(entry.getKey(), entry.getValue()));
+        }
+        try {
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeRecords(out, live);
+                out.force(false);
+            }
+            Files.move(compacted, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to compact {} due to {}", segment, ex.getMessage());
+            Files.deleteIfExists(compacted);
+            return;
+        }
+        LOGGER.debug("Compacted {} from {} to {} records", segment, records, live.size());
+        channel.close();
+        channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        records = live.size();
+        dirty = false;
+    }
+
+    private static void writeRecords(FileChannel target, List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] record : batch) {
+            size += HEADER_SIZE + record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] record : batch) {
+            crc.reset();
+            crc.update(record);
+            buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static byte[] updateRecord(long sequence, StatusUpdate update) throws IOException {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+                DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(UPDATE);
+            out.writeLong(sequence);
+            out.writeUTF(update.getJobId());
+            out.writeUTF(update.getExecutionId());
+            out.writeUTF(update.getStatus().getStatus());
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        List<Long> acknowledged = new ArrayList<>();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            final int checksum = header.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            while (body.hasRemaining()) {
+                if (channel.read(body, position + HEADER_SIZE + body.position()) < 0) {
+                    break;
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            readRecord(body.array(), acknowledged);
+            position += HEADER_SIZE + length;
+            ++records;
+        }
+        if (position < size) {
+            LOGGER.warn("Discarding {} bytes of incomplete records at the end of {}", size - position, segment);
+            channel.truncate(position);
+        }
+        unacknowledged.keySet().removeAll(acknowledged);
+        channel.position(position);
+        if (!unacknowledged.isEmpty()) {
+            LOGGER.info("Recovered {} unsent status updates from {}", unacknowledged.size(), segment);
+        }
+    }
+
+    private void readRecord(byte[] record, List<Long> acknowledged) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            long sequence = in.readLong();
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (type == ACK) {
+                acknowledged.add(sequence);
+            } else if (type == UPDATE) {
+                String jobId = in.readUTF();
+                String executionId = in.readUTF();
+                JobStatus status = JobStatus.getStatus(in.readUTF());
+                if (status != null) {
+                    unacknowledged.put(sequence, new StatusUpdate(jobId, executionId, status, null));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.status;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Buffers job execution status updates for a short window and sends them to NextKala in batches. While an
+ * update is buffered any later update for the same execution replaces it, so a RUNNING status that has already
+ * been overtaken by SUCCESS or FAILED is never sent. A batch is sent once the window elapses after the first
+ * buffered update or as soon as the maximum batch size is reached, whichever comes first.
+ *
+ * <p>When a {@link StatusOutbox} is provided each update is written to it before being buffered, updates
+ * recovered from the outbox are sent first, and updates that could not be delivered are retried with exponential
+ * backoff until they are accepted. Updates NextKala rejects outright, such as those for a job that has been
+ * deleted, are logged and removed from the outbox so they do not hold back later updates. Without an outbox
+ * updates that fail are logged and discarded.</p>
+ */
+public class StatusReporter implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(StatusReporter.class);
+    private static final int CLOSE_TIMEOUT = 15;
+    private static final long MIN_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final StatusSender sender;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final StatusOutbox outbox;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final List<FlushListener> flushListeners = new CopyOnWriteArrayList<>();
+    private volatile FlushListener flushListener;
+    private int coalescedSinceFlush;
+    private int consecutiveFailures;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    /**
+     * Create a StatusReporter.
+     * @param sender Sends each update to NextKala.
+     * @param window The maximum time an update is held before it is sent.
+     * @param maxBatchSize The number of buffered updates that causes a batch to be sent immediately.
+     */
+    public StatusReporter(StatusSender sender, Duration window, int maxBatchSize) {
+        this(sender, window, maxBatchSize, null);
+    }
+
+    /**
+     * Create a StatusReporter that records updates in an outbox until NextKala accepts them.
+     * @param sender Sends each update to NextKala.
+     * @param window The maximum time an update is held before it is sent.
+     * @param maxBatchSize The number of buffered updates that causes a batch to be sent immediately.
+     * @param outbox The outbox or null if updates should not be persisted.
+     */
+    public StatusReporter(StatusSender sender, Duration window, int maxBatchSize, StatusOutbox outbox) {
+        this.sender = sender;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.outbox = outbox;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "nextkala-status-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler = executor;
+        if (outbox != null) {
+            synchronized (pending) {
+                outbox.getUnacknowledged().forEach((sequence, update) -> buffer(update, sequence));
+                if (!pending.isEmpty()) {
+                    flushScheduled = true;
+                    scheduler.execute(this::flush);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the listener that is notified after each batch is sent.
+     * @param flushListener The listener.
+     */
+    public void setFlushListener(FlushListener flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * Add a listener that is notified after each batch is sent. Unlike the listener passed to
+     * {@link #setFlushListener(FlushListener)} it is not replaced when that listener is changed.
+     * @param listener The listener.
+     */
+    public void addFlushListener(FlushListener listener) {
+        flushListeners.add(listener);
+    }
+
+    /**
+     * Queue a status update to be sent.
+     * @param update The status update.
+     */
+    public void submit(StatusUpdate update) {
+        submitted.incrementAndGet();
+        synchronized (pending) {
+            if (!closed) {
+                long sequence = outbox != null ? outbox.append(update) : -1;
+                buffer(update, sequence);
+                if (pending.size() >= maxBatchSize && consecutiveFailures == 0) {
+                    flushScheduled = true;
+                    scheduler.execute(this::flush);
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+        }
+        send(List.of(new Pending(update, -1)), 0);
+    }
+
+    /**
+     * Send all buffered updates. Batches are sent one at a time so updates for an execution are always sent
+     * in the order they were submitted.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    /**
+     * Send any buffered updates and stop the reporter. Updates submitted after the reporter has been closed
+     * are sent immediately. Updates that could not be sent remain in the outbox, if there is one.
+     */
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Unable to close the status outbox due to {}", ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Return the number of updates submitted to the reporter.
+     * @return The number of updates submitted.
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Return the number of updates that were superseded before they were sent.
+     * @return The number of coalesced updates.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Return the number of updates accepted by NextKala.
+     * @return The number of updates sent.
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * Return the number of attempts to send an update that NextKala did not accept.
+     * @return The number of failed updates.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Return the number of updates NextKala rejected. Rejected updates are not retried.
+     * @return The number of rejected updates.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Return the number of batches that have been sent.
+     * @return The number of batches.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Return the number of updates waiting to be sent.
+     * @return The number of pending updates.
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /*
+     * Must be called while holding the lock on pending.
+     */
+    private void buffer(StatusUpdate update, long sequence) {
+        String key = key(update);
+        Pending previous = pending.get(key);
+        if (previous == null) {
+            pending.put(key, new Pending(update, sequence));
+            return;
+        }
+        ++coalescedSinceFlush;
+        coalesced.incrementAndGet();
+        if (update.supersedes(previous.update)) {
+            previous.update = update;
+        } else {
+            LOGGER.debug("Dropping {} as {} is already pending", update, previous.update);
+        }
+        previous.addSequence(sequence);
+    }
+
+    private void flushPending() {
+        while (true) {
+            List<Pending> batch;
+            int coalescedCount;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    flushScheduled = false;
+                    return;
+                }
+                batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+                Iterator<Pending> iter = pending.values().iterator();
+                while (iter.hasNext() && batch.size() < maxBatchSize) {
+                    batch.add(iter.next());
+                    iter.remove();
+                }
+                coalescedCount = coalescedSinceFlush;
+                coalescedSinceFlush = 0;
+            }
+            if (outbox != null) {
+                outbox.sync();
+            }
+            List<Pending> unsent = send(batch, coalescedCount);
+            if (!unsent.isEmpty()) {
+                retry(unsent);
+                return;
+            }
+        }
+    }
+
+    /*
+     * Sends the batch, returning any updates that must be retried. When an outbox is in use the first update that
+     * could not be delivered stops the batch since NextKala is most likely unavailable. Rejected updates are
+     * acknowledged so they leave the outbox.
+     */
+    private List<Pending> send(List<Pending> batch, int coalescedCount) {
+        long start = System.nanoTime();
+        int failures = 0;
+        List<Pending> unsent = List.of();
+        List<Long> acknowledged = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); ++i) {
+            Pending entry = batch.get(i);
+            SendOutcome outcome;
+            try {
+                outcome = sender.send(entry.update);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Unable to send {} due to {}", entry.update, ex.getMessage());
+                outcome = SendOutcome.RETRY;
+            }
+            if (outcome == SendOutcome.ACCEPTED) {
+                sent.incrementAndGet();
+                entry.collectSequences(acknowledged);
+            } else if (outcome == SendOutcome.REJECTED) {
+                ++failures;
+                failed.incrementAndGet();
+                rejected.incrementAndGet();
+                LOGGER.warn("Discarding {} as NextKala rejected it", entry.update);
+                entry.collectSequences(acknowledged);
+            } else {
+                ++failures;
+                failed.incrementAndGet();
+                if (outbox != null) {
+                    unsent = batch.subList(i, batch.size());
+                    break;
+                }
+            }
+        }
+        if (outbox != null) {
+            outbox.acknowledge(acknowledged);
+        }
+        long duration = System.nanoTime() - start;
+        batches.incrementAndGet();
+        LOGGER.debug("Sent {} status updates in {} ns with {} failures", batch.size() - unsent.size(), duration,
+                failures);
+        FlushListener listener = flushListener;
+        if (listener != null) {
+            listener.onFlush(batch.size() - unsent.size(), failures, coalescedCount, duration);
+        }
+        for (FlushListener added : flushListeners) {
+            added.onFlush(batch.size() - unsent.size(), failures, coalescedCount, duration);
+        }
+        if (unsent.isEmpty()) {
+            synchronized (pending) {
+                consecutiveFailures = 0;
+            }
+        }
+        return unsent;
+    }
+
+    private void retry(List<Pending> unsent) {
+        synchronized (pending) {
+            Map<String, Pending> newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            for (Pending entry : unsent) {
+                pending.put(key(entry.update), entry);
+            }
+            newer.forEach((key, entry) -> {
+                Pending previous = pending.get(key);
+                if (previous == null) {
+                    pending.put(key, entry);
+                } else {
+                    if (entry.update.supersedes(previous.update)) {
+                        previous.update = entry.update;
+                    }
+                    previous.sequences.addAll(entry.sequences);
+                }
+            });
+            ++consecutiveFailures;
+            long base = Math.max(MIN_RETRY_NANOS, windowNanos);
+            long delay = Math.min(MAX_RETRY_NANOS, base << Math.min(consecutiveFailures, 16));
+            LOGGER.warn("Unable to send {} status updates. Retrying in {} ms", pending.size(),
+                    TimeUnit.NANOSECONDS.toMillis(delay));
+            if (!closed) {
+                scheduler.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static String key(StatusUpdate update) {
+        return update.getJobId() + '/' + update.getExecutionId();
+    }
+
+    /**
+     * A buffered update along with the outbox sequence numbers of every update it replaced.
+     */
+    private static class Pending {
+        private final List<Long> sequences = new ArrayList<>(2);
+        private StatusUpdate update;
+
+        Pending(StatusUpdate update, long sequence) {
+            this.update = update;
+            addSequence(sequence);
+        }
+
+        void addSequence(long sequence) {
+            if (sequence >= 0) {
+                sequences.add(sequence);
+            }
+        }
+
+        void collectSequences(List<Long> target) {
+            target.addAll(sequences);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.status;
+
+import java.util.Objects;
+
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+/**
+ * A change to the status of a job execution that is waiting to be sent to NextKala.
+ */
+public final class StatusUpdate {
+
+    private final String jobId;
+    private final String executionId;
+    private final JobStatus status;
+    private final String token;
+
+    /**
+     * Create a status update.
+     * @param jobId The job's id.
+     * @param executionId The job execution's id.
+     * @param status The new job status.
+     * @param token The OAuth token. May be null.
+     */
+    public StatusUpdate(String jobId, String executionId, JobStatus status, String token) {
+        this.jobId = Objects.requireNonNull(jobId, "jobId");
+        this.executionId = Objects.requireNonNull(executionId, "executionId");
+        this.status = Objects.requireNonNull(status, "status");
+        this.token = token;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Determine whether this update should replace an update for the same execution that has not been sent yet.
+     * A terminal status always replaces a RUNNING or STARTED status but a RUNNING status never replaces a
+     * terminal one.
+     * @param previous The update that is waiting to be sent.
+     * @return true if this update supersedes the previous one.
+     */
+    public boolean supersedes(StatusUpdate previous) {
+        return rank(status) >= rank(previous.status);
+    }
+
+    @Override
+    public String toString() {
+        return "StatusUpdate[jobId=" + jobId + ", executionId=" + executionId + ", status=" + status + "]";
+    }
+
+    private static int rank(JobStatus status) {
+        switch (status) {
+            case STARTED:
+                return 0;
+            case RUNNING:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.transport;
+
+import java.util.function.Supplier;
+
+/**
+ * A way to abandon a call that is in progress. While a call runs with a cancellation the cancellation is bound
+ * to the calling thread, and the transports created by {@link PooledTransport} abort the request in flight
+ * when it is cancelled, so that the calling thread is released at once rather than when the answer arrives.
+ */
+public final class Cancellation {
+
+    private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<>();
+
+    private Runnable abort;
+    private boolean cancelled;
+
+    /**
+     * Return the cancellation bound to the current thread.
+     * @return The cancellation or null if the current call cannot be cancelled.
+     */
+    public static Cancellation current() {
+        return CURRENT.get();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Make a call with this cancellation bound to the current thread.
+     * @param call The call.
+     * @param <T> The type of the result.
+     * @return The result of the call.
+     */
+    public <T> T run(Supplier<T> call) {
+        Cancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Cancel the call, aborting the request it has in flight.
+     */
+    public void cancel() {
+        Runnable current;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            current = abort;
+            abort = null;
+        }
+        if (current != null) {
+            current.run();
+        }
+    }
+
+    /**
+     * Register the way to abort the request the current thread is about to send. The request is aborted at once
+     * if its call has already been cancelled.
+     * @param requestAbort Aborts the request.
+     */
+    static void onCancel(Runnable requestAbort) {
+        Cancellation cancellation = CURRENT.get();
+        if (cancellation == null) {
+            return;
+        }
+        synchronized (cancellation) {
+            if (!cancellation.cancelled) {
+                cancellation.abort = requestAbort;
+                return;
+            }
+        }
+        requestAbort.run();
+    }
+}
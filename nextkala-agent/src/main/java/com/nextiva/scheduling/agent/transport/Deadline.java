@@ -0,0 +1,101 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.transport;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The time by which a call must complete. While a call runs within a deadline the deadline is bound to the
+ * calling thread, and the transports created by {@link PooledTransport} limit connect, pool acquire and read
+ * timeouts to the time remaining. Retries are not attempted once too little time remains. Each timeout is
+ * limited when its wait begins, so with Apache HttpClient a response whose data keeps arriving can take longer
+ * than the deadline; only the wait for each read is bounded by it.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Create a deadline that expires after a timeout.
+     * @param timeout The time allowed.
+     * @return The deadline.
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Return the deadline bound to the current thread.
+     * @return The deadline or null if the current call has no deadline.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Return the time remaining before the deadline expires.
+     * @return The remaining time in nanoseconds, which is not positive once the deadline has expired.
+     */
+    public long remainingNanos() {
+        return expiresAt - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Make a call with this deadline bound to the current thread.
+     * @param call The call.
+     * @param <T> The type of the result.
+     * @return The result of the call.
+     */
+    public <T> T run(Supplier<T> call) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Limit a timeout to the time remaining before the deadline.
+     * @param timeoutMillis The timeout in milliseconds, or zero for none.
+     * @return The lesser of the timeout and the remaining time, never less than one millisecond.
+     */
+    int limit(int timeoutMillis) {
+        long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos() + 999_999));
+        long limit = timeoutMillis > 0 ? Math.min(timeoutMillis, remaining) : remaining;
+        return (int) Math.min(Integer.MAX_VALUE, limit);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.transport;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when a call does not complete before its deadline.
+ */
+public class DeadlineExceededException extends RestClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create a DeadlineExceededException.
+     * @param name The name of the call.
+     */
+    public DeadlineExceededException(String name) {
+        super("Deadline exceeded for " + name);
+    }
+}
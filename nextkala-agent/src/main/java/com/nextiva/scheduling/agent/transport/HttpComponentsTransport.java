@@ -0,0 +1,139 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.agent.transport;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * The pooled keep-alive connections of a PooledTransport, managed by Apache HttpClient. Kept apart from
+ * PooledTransport so that the transport can be used when Apache HttpClient is not on the class path.
+ */
+final class HttpComponentsTransport {
+
+    private static final Logger LOGGER = LogManager.getLogger(HttpComponentsTransport.class);
+
+    private final ClientHttpRequestFactory requestFactory;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    private HttpComponentsTransport(TransportSettings settings) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(settings.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity((int) settings.getValidateAfterInactivity().toMillis());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) settings.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) settings.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) settings.getPoolAcquireTimeout().toMillis())
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(settings.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        requestFactory = new DeadlineRequestFactory(httpClient, requestConfig);
+    }
+
+    /**
+     * Create the connection pool.
+     * @param settings The transport settings.
+     * @return The connection pool.
+     */
+    static HttpComponentsTransport create(TransportSettings settings) {
+        HttpComponentsTransport transport = new HttpComponentsTransport(settings);
+        LOGGER.debug("Created pooled transport with {} connections and {} per route", settings.getMaxConnections(),
+                settings.getMaxConnectionsPerRoute());
+        return transport;
+    }
+
+    ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * Return the current state of the connection pool.
+     * @return The pool statistics.
+     */
+    PoolStats getPoolStats() {
+        org.apache.http.pool.PoolStats stats = connectionManager.getTotalStats();
+        return new PoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    /**
+     * Close all connections and stop the idle connection evictor.
+     */
+    void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to close HTTP client: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Limits the timeouts of each request to the time remaining before the current thread's deadline, and
+     * aborts the request when the current thread's call is cancelled.
+     */
+    private static final class DeadlineRequestFactory extends HttpComponentsClientHttpRequestFactory {
+        private final RequestConfig requestConfig;
+
+        DeadlineRequestFactory(CloseableHttpClient httpClient, RequestConfig requestConfig) {
+            super(httpClient);
+            this.requestConfig = requestConfig;
+        }
+
+        @Override
+        protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+            Cancellation.onCancel(request::abort);
+            return request;
+        }
+
+        @Override
+        protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+            Deadline deadline = Deadline.current();
+            if (deadline == null) {
+                return null;
+            }
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(RequestConfig.copy(requestConfig)
+                    .setConnectTimeout(deadline.limit(requestConfig.getConnectTimeout()))
+                    .setSocketTimeout(deadline.limit(requestConfig.getSocketTimeout()))
+                    .setConnectionRequestTimeout(deadline.limit(requestConfig.getConnectionRequestTimeout()))
+                    .build());
+            return context;
+        }
+    }
+}
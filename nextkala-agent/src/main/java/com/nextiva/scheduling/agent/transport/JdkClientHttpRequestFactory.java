@@ -0,0 +1,181 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A ClientHttpRequestFactory that sends requests with the JDK's HttpClient, which supports HTTP/2. A request
+ * stops being waited for when the current thread's call is cancelled.
+ */
+final class JdkClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    /**
+     * Headers the JDK's HttpClient sets itself and does not allow to be set.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host",
+            "upgrade");
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+
+    JdkClientHttpRequestFactory(HttpClient client, Duration readTimeout) {
+        this.client = client;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod method) {
+        return new JdkClientHttpRequest(uri, method);
+    }
+
+    private final class JdkClientHttpRequest extends AbstractClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        JdkClientHttpRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            HttpRequest.BodyPublisher publisher = body.size() == 0 ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(body.toByteArray());
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri).method(method.name(), publisher);
+            Deadline deadline = Deadline.current();
+            if (deadline != null) {
+                int timeoutMillis = readTimeout != null ? (int) readTimeout.toMillis() : 0;
+                builder.timeout(Duration.ofMillis(deadline.limit(timeoutMillis)));
+            } else if (readTimeout != null) {
+                builder.timeout(readTimeout);
+            }
+            headers.forEach((name, values) -> {
+                if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    values.forEach(value -> builder.header(name, value));
+                }
+            });
+            CompletableFuture<HttpResponse<InputStream>> response = client.sendAsync(builder.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            Cancellation.onCancel(() -> response.cancel(true));
+            try {
+                return new JdkClientHttpResponse(response.get());
+            } catch (CancellationException ex) {
+                throw new InterruptedIOException("Cancelled while waiting for " + uri);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new IOException("Request to " + uri + " failed", ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + uri);
+            }
+        }
+    }
+
+    private static final class JdkClientHttpResponse extends AbstractClientHttpResponse {
+        private final HttpResponse<InputStream> response;
+        private HttpHeaders headers;
+
+        JdkClientHttpResponse(HttpResponse<InputStream> response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getStatusText() {
+            HttpStatus status = HttpStatus.resolve(response.statusCode());
+            return status != null ? status.getReasonPhrase() : "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders result = new HttpHeaders();
+                response.headers().map().forEach((name, values) -> {
+                    if (!name.startsWith(":")) {
+                        result.addAll(name, values);
+                    }
+                });
+                headers = HttpHeaders.readOnlyHttpHeaders(result);
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return response.body();
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.body().close();
+            } catch (IOException ex) {
+                // The response has already been read or abandoned.
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.transport;
+
+import java.net.http.HttpClient;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * A production HTTP transport for SchedulerClient. By default requests are sent over pooled keep-alive
+ * connections managed by Apache HttpClient, with per-route limits, connect, read and pool acquire timeouts,
+ * and a background thread that closes connections once they have been idle for the idle timeout. When HTTP/2
+ * is enabled, or Apache HttpClient is not on the class path, requests are sent with the JDK's HttpClient
+ * instead, which keeps its own connections and ignores the pool settings.
+ *
+ * <p>A PooledTransport should be created once and closed when the application stops:</p>
+ * <pre>
+ * PooledTransport transport = PooledTransport.create(settings);
+ * SchedulerClient client = new SchedulerClient(transport.createRestTemplate(), baseUri);
+ * </pre>
+ */
+public final class PooledTransport implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(PooledTransport.class);
+    private static final boolean HTTP_COMPONENTS_PRESENT = ClassUtils.isPresent(
+            "org.apache.http.impl.client.CloseableHttpClient", PooledTransport.class.getClassLoader());
+
+    private final ClientHttpRequestFactory requestFactory;
+    private final HttpComponentsTransport pool;
+
+    private PooledTransport(ClientHttpRequestFactory requestFactory, HttpComponentsTransport pool) {
+        this.requestFactory = requestFactory;
+        this.pool = pool;
+    }
+
+    /**
+     * Create a transport.
+     * @param settings The transport settings.
+     * @return The transport.
+     */
+    public static PooledTransport create(TransportSettings settings) {
+        if (settings.isHttp2() || !HTTP_COMPONENTS_PRESENT) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(settings.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(settings.getConnectTimeout())
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .build();
+            if (settings.isHttp2()) {
+                LOGGER.debug("Created HTTP/2 transport");
+            } else {
+                LOGGER.info("Apache HttpClient is not on the class path, requests will be sent with the JDK's "
+                        + "HttpClient");
+            }
+            return new PooledTransport(new JdkClientHttpRequestFactory(client, settings.getReadTimeout()), null);
+        }
+        HttpComponentsTransport pool = HttpComponentsTransport.create(settings);
+        return new PooledTransport(pool.getRequestFactory(), pool);
+    }
+
+    /**
+     * Return the request factory to use with a RestTemplate.
+     * @return The request factory.
+     */
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * Create a RestTemplate that uses this transport.
+     * @return The RestTemplate.
+     */
+    public RestTemplate createRestTemplate() {
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Return the current state of the connection pool.
+     * @return The pool statistics or null if the JDK's HttpClient is used.
+     */
+    public PoolStats getPoolStats() {
+        return pool != null ? pool.getPoolStats() : null;
+    }
+
+    /**
+     * Close all connections and stop the idle connection evictor.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.agent.transport;
+
+import java.time.Duration;
+
+/**
+ * Settings for the HTTP transport created by {@link PooledTransport}. The defaults suit an agent that
+ * sends status updates to a single NextKala service.
+ */
+public class TransportSettings {
+
+    private int maxConnections = 100;
+    private int maxConnectionsPerRoute = 50;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    private Duration poolAcquireTimeout = Duration.ofSeconds(2);
+    private Duration idleTimeout = Duration.ofSeconds(30);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    private boolean http2;
+
+    /**
+     * Return the maximum number of pooled connections.
+     * @return The maximum number of connections.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Set the maximum number of pooled connections.
+     * @param maxConnections The maximum number of connections.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Return the maximum number of pooled connections to a single host and port.
+     * @return The maximum number of connections per route.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Set the maximum number of pooled connections to a single host and port.
+     * @param maxConnectionsPerRoute The maximum number of connections per route.
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Return how long to wait for a connection to be established.
+     * @return The connect timeout.
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Set how long to wait for a connection to be established.
+     * @param connectTimeout The connect timeout.
+     */
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Return how long to wait for response data.
+     * @return The read timeout.
+     */
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Set how long to wait for response data.
+     * @param readTimeout The read timeout.
+     */
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Return how long to wait for a pooled connection to become available.
+     * @return The pool acquire timeout.
+     */
+    public Duration getPoolAcquireTimeout() {
+        return poolAcquireTimeout;
+    }
+
+    /**
+     * Set how long to wait for a pooled connection to become available.
+     * @param poolAcquireTimeout The pool acquire timeout.
+     */
+    public void setPoolAcquireTimeout(Duration poolAcquireTimeout) {
+        this.poolAcquireTimeout = poolAcquireTimeout;
+    }
+
+    /**
+     * Return how long a pooled connection may be idle before it is closed.
+     * @return The idle timeout.
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Set how long a pooled connection may be idle before it is closed.
+     * @param idleTimeout The idle timeout.
+     */
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Return how long a pooled connection may be idle before it is checked before reuse.
+     * @return The inactivity period.
+     */
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Set how long a pooled connection may be idle before it is checked before reuse.
+     * @param validateAfterInactivity The inactivity period.
+     */
+    public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Return whether HTTP/2 is used.
+     * @return true if HTTP/2 is used.
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * Set whether HTTP/2 is used. HTTP/2 requests are multiplexed over a single connection to each host by the
+     * JDK's HttpClient, so the pool settings and pool statistics do not apply.
+     * @param http2 true to use HTTP/2.
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+}
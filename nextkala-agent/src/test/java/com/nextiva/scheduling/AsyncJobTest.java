@@ -0,0 +1,171 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.AsyncScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test jobs that run asynchronously.
+ */
+public class AsyncJobTest {
+
+    private static volatile CompletableFuture<Integer> result;
+
+    /**
+     * Create the future the job returns.
+     */
+    @Before
+    public void setUp() {
+        result = new CompletableFuture<>();
+    }
+
+    @Test
+    public void testThreadReleased() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = createContext()) {
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Async", null, "1", "a1", null).getStatusCode());
+            awaitIdle(registry);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "2", "q1", null).getStatusCode());
+            assertEquals(1, await(registry.find("nextkala.job.runs").tags("job", "Quick", "outcome", "success"))
+                    .count());
+            assertEquals(1, registry.get("nextkala.job.active").tag("job", "Async").gauge().value(), 0);
+            result.complete(0);
+            assertEquals(1, await(registry.find("nextkala.job.runs").tags("job", "Async", "outcome", "success"))
+                    .count());
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = createContext()) {
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Async", null, "1", "a2", null).getStatusCode());
+            awaitIdle(registry);
+            assertEquals(HttpStatus.ACCEPTED, controller.cancelJob("Async", "a2").getStatusCode());
+            assertTrue(result.isCancelled());
+            assertEquals(1, await(registry.find("nextkala.job.runs").tags("job", "Async", "outcome", "failure"))
+                    .count());
+        }
+    }
+
+    @Test
+    public void testCompletingThreadKeepsItsContext() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = createContext()) {
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Async", null, "1", "a3", null).getStatusCode());
+            awaitIdle(registry);
+            AtomicReference<String> after = new AtomicReference<>();
+            Thread loop = new Thread(() -> {
+                ThreadContext.put("loop", "client");
+                result.complete(0);
+                after.set(ThreadContext.get("loop"));
+            });
+            loop.start();
+            loop.join(5000);
+            assertEquals("client", after.get());
+            assertEquals(1, await(registry.find("nextkala.job.runs").tags("job", "Async", "outcome", "success"))
+                    .count());
+        }
+    }
+
+    private static AnnotationConfigApplicationContext createContext() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("nextkala.agent.executor.core-pool-size", "1");
+        properties.put("nextkala.agent.executor.max-pool-size", "1");
+        properties.put("nextkala.agent.executor.queue-capacity", "0");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.register(MetricsTest.AgentConfiguration.class, AsyncJob.class);
+        context.refresh();
+        context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                .andRespond(withNoContent());
+        return context;
+    }
+
+    private static void awaitIdle(MeterRegistry registry) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((result.getNumberOfDependents() == 0
+                || registry.get("nextkala.executor.active").gauge().value() > 0)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, registry.get("nextkala.executor.active").gauge().value(), 0);
+    }
+
+    private static Timer await(Search search) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Timer timer = search.timer();
+        while ((timer == null || timer.count() == 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            timer = search.timer();
+        }
+        assertNotNull(timer);
+        return timer;
+    }
+
+    /**
+     * A job that completes when the test completes its future.
+     */
+    @Job("Async")
+    public static class AsyncJob extends AbstractScheduledJob implements AsyncScheduledJob {
+
+        @Override
+        public CompletionStage<Integer> executeJobAsync(String jobId, String executionId, String jobParams) {
+            return result;
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nextiva.scheduling.agent.AsyncSchedulerClient;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.enums.JobStatus;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test the non-blocking scheduler client against a local HTTP server.
+ */
+public class AsyncSchedulerClientTest {
+
+    private final Map<String, String> requests = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private AsyncSchedulerClient client;
+
+    /**
+     * Start the server.
+     * @throws IOException if the server cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/job/", this::handle);
+        server.start();
+        client = new AsyncSchedulerClient("http://localhost:" + server.getAddress().getPort());
+    }
+
+    /**
+     * Stop the server.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testAddJob() throws Exception {
+        JobDefinition definition = new JobDefinition();
+        definition.setName("Hello");
+        assertEquals("abc", client.addJob(definition, "token").get(5, TimeUnit.SECONDS));
+        assertEquals("Bearer token", requests.get("POST /api/v1/job/"));
+    }
+
+    @Test
+    public void testGetJob() throws Exception {
+        JobDefinition definition = client.getJob("abc").get(5, TimeUnit.SECONDS);
+        assertEquals("abc", definition.getId());
+        assertEquals("Hello", definition.getName());
+        assertNull(client.getJob("missing").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrentStatusUpdates() throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[50];
+        for (int i = 0; i < futures.length; ++i) {
+            futures[i] = client.updateJobExecutionStatus("abc", "run" + i, JobStatus.SUCCESS);
+        }
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < futures.length; ++i) {
+            assertEquals("\"Success\"", requests.get("PUT /api/v1/job/abc/executions/run" + i + "/"));
+        }
+    }
+
+    @Test
+    public void testListJobs() throws Exception {
+        List<JobDefinition> jobs = client.listJobs().get(5, TimeUnit.SECONDS);
+        assertEquals(2, jobs.size());
+        assertEquals("def", jobs.get(1).getId());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String key = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+        byte[] requestBody = exchange.getRequestBody().readAllBytes();
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        requests.put(key, requestBody.length > 0 && auth == null ? new String(requestBody, StandardCharsets.UTF_8)
+                : String.valueOf(auth));
+        switch (key) {
+            case "POST /api/v1/job/":
+                respond(exchange, 200, "{\"id\":\"abc\"}");
+                break;
+            case "GET /api/v1/job/abc/":
+                respond(exchange, 200, "{\"id\":\"abc\",\"name\":\"Hello\",\"unknown\":1}");
+                break;
+            case "GET /api/v1/job/":
+                respond(exchange, 200, "[{\"id\":\"abc\"},{\"id\":\"def\"}]");
+                break;
+            default:
+                if (key.startsWith("PUT ")) {
+                    exchange.sendResponseHeaders(204, -1);
+                    exchange.close();
+                } else {
+                    respond(exchange, 404, "");
+                }
+                break;
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test that dispatches are rejected once the job executor is saturated.
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(value = ScheduledJobController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ContextConfiguration(classes = {HelloTestApplication.class, BlockingJob.class})
+@TestPropertySource(properties = {
+        "nextkala.agent.executor.core-pool-size=1",
+        "nextkala.agent.executor.max-pool-size=1",
+        "nextkala.agent.executor.queue-capacity=1",
+        "nextkala.agent.executor.retry-after-seconds=7"})
+public class BackpressureTest {
+
+    private static final String BLOCKING_JOB = "/private/v1/scheduledJob/Blocking";
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    private MockRestServiceServer mockServer;
+
+    @Autowired
+    private ScheduledJobController controller;
+
+    private boolean bodyRead;
+
+    @Test
+    public void testRejectWhenSaturated() throws Exception {
+        CountDownLatch puts = new CountDownLatch(4);
+        mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(request -> {
+            puts.countDown();
+            return withNoContent().createResponse(request);
+        });
+        mockMvc.perform(post(BLOCKING_JOB).header("NextKala-JobId", "11111").header("NextKala-RunId", "1"))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post(BLOCKING_JOB).header("NextKala-JobId", "11111").header("NextKala-RunId", "2"))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post(BLOCKING_JOB).header("NextKala-JobId", "11111").header("NextKala-RunId", "3"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+        assertTrue("The first run did not start", BlockingJob.started.await(5, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                controller.runJobRequest("Blocking", body(), null, "11111", "4", null, null).getStatusCode());
+        assertEquals(HttpStatus.ACCEPTED,
+                controller.runJobRequest("Blocking", body(), null, "11111", "1", null, null).getStatusCode());
+        assertFalse("The body of a refused run was read", bodyRead);
+        BlockingJob.release.countDown();
+        assertTrue("Accepted runs did not complete", puts.await(5, TimeUnit.SECONDS));
+    }
+
+    private InputStream body() {
+        return new ByteArrayInputStream(new byte[] {'{', '}'}) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                bodyRead = true;
+                return super.read(buffer, offset, length);
+            }
+        };
+    }
+}
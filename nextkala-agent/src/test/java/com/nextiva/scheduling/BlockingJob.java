@@ -0,0 +1,50 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+
+/**
+ * Test job that blocks until it is released.
+ */
+@Job("Blocking")
+public class BlockingJob extends AbstractScheduledJob {
+
+    public static CountDownLatch started = new CountDownLatch(1);
+    public static CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public int executeJob(String jobId, String executionId, String jobParams) {
+        started.countDown();
+        try {
+            return release.await(10, TimeUnit.SECONDS) ? 0 : 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    @Override
+    public boolean validateJob(String jobParams) {
+        return true;
+    }
+}
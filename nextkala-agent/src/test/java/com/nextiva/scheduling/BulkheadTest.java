@@ -0,0 +1,121 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test that jobs declaring a bulkhead run on their own threads.
+ */
+public class BulkheadTest {
+
+    private static final CountDownLatch STARTED = new CountDownLatch(1);
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+    private static volatile String threadName;
+
+    @Test
+    public void testBulkhead() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                MetricsTest.AgentConfiguration.class, ReportJob.class)) {
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Report", null, "1", "r1", null).getStatusCode());
+            assertTrue(STARTED.await(5, TimeUnit.SECONDS));
+            assertTrue(threadName.startsWith("nextkala-reports-"));
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, controller.runJob("Report", null, "1", "r2", null)
+                    .getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "2", "q1", null).getStatusCode());
+            assertEquals(1, registry.get("nextkala.bulkhead.rejections").tag("bulkhead", "reports").counter()
+                    .count(), 0);
+            assertEquals(1, registry.get("nextkala.bulkhead.active").tag("bulkhead", "reports").gauge().value(), 0);
+            assertEquals(1, registry.get("nextkala.bulkhead.utilization").tag("bulkhead", "reports").gauge()
+                    .value(), 0);
+            RELEASE.countDown();
+        }
+    }
+
+    @Test
+    public void testRejectionStatusMustBeRetryable() {
+        assertRefused("nextkala.agent.executor.rejection-status");
+        assertRefused("nextkala.agent.bulkheads.reports.rejection-status");
+    }
+
+    private static void assertRefused(String property) {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                    Collections.singletonMap(property, "200")));
+            context.register(MetricsTest.AgentConfiguration.class, ReportJob.class);
+            context.refresh();
+            fail("Started with " + property + " of 200");
+        } catch (BeanCreationException ex) {
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+            assertTrue(cause instanceof IllegalStateException);
+            assertEquals(property + " must be 429 or 503 but is 200", cause.getMessage());
+        }
+    }
+
+    /**
+     * A job with a bulkhead of one thread and no queue that holds its thread until released.
+     */
+    @Job(value = "Report", bulkhead = "reports", maxConcurrency = 1, queueSize = 0)
+    public static class ReportJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            threadName = Thread.currentThread().getName();
+            STARTED.countDown();
+            try {
+                return RELEASE.await(5, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException ex) {
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.nextiva.scheduling.agent.cache.CachingScheduler;
+import com.nextiva.scheduling.agent.transport.DeadlineExceededException;
+import com.nextiva.scheduling.api.CallOptions;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.Scheduler;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test caching of job definitions and parameters.
+ */
+public class CachingSchedulerTest {
+
+    private final CountingScheduler delegate = new CountingScheduler();
+
+    @Test
+    public void testRepeatedReadsAreCached() {
+        CachingScheduler scheduler = new CachingScheduler(delegate, Duration.ofMinutes(1), 10);
+        JobDefinition job = scheduler.getJob("job1");
+        assertSame(job, scheduler.getJob("job1"));
+        assertEquals("params-job1", scheduler.getJobParameters("job1"));
+        assertEquals("params-job1", scheduler.getJobParameters("job1"));
+        assertEquals(2, delegate.reads.get());
+        assertEquals(2, scheduler.getHitCount());
+        assertEquals(2, scheduler.getMissCount());
+    }
+
+    @Test
+    public void testConcurrentReadsShareOneRequest() throws Exception {
+        delegate.release = new CountDownLatch(1);
+        CachingScheduler scheduler = new CachingScheduler(delegate, Duration.ofMinutes(1), 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<JobDefinition>> results = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(() -> scheduler.getJob("job1")));
+            }
+            assertTrue(delegate.started.await(2, TimeUnit.SECONDS));
+            while (scheduler.getHitCount() < 7) {
+                Thread.sleep(1);
+            }
+            delegate.release.countDown();
+            for (Future<JobDefinition> result : results) {
+                assertSame(results.get(0).get(2, TimeUnit.SECONDS), result.get(2, TimeUnit.SECONDS));
+            }
+            assertEquals(1, delegate.reads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWritesInvalidate() {
+        CachingScheduler scheduler = new CachingScheduler(delegate, Duration.ofMinutes(1), 10);
+        scheduler.getJob("job1");
+        scheduler.getJobParameters("job1");
+        scheduler.getJob("job2");
+        scheduler.setJobParameters("job1", "new");
+        assertEquals(1, scheduler.size());
+        scheduler.getJob("job1");
+        scheduler.disableJob("job1");
+        scheduler.getJob("job1");
+        scheduler.enableJob("job1");
+        scheduler.getJob("job1");
+        scheduler.deleteJob("job2");
+        assertEquals(1, scheduler.size());
+        assertEquals(6, delegate.reads.get());
+    }
+
+    @Test
+    public void testExpiryAndEviction() throws Exception {
+        CachingScheduler scheduler = new CachingScheduler(delegate, Duration.ofMillis(20), 2);
+        scheduler.getJob("job1");
+        Thread.sleep(40);
+        scheduler.getJob("job1");
+        assertEquals(2, delegate.reads.get());
+        scheduler.getJob("job2");
+        scheduler.getJob("job3");
+        assertEquals(2, scheduler.size());
+        assertEquals(1, scheduler.getEvictionCount());
+    }
+
+    @Test
+    public void testMissingJobIsCachedBriefly() throws InterruptedException {
+        CachingScheduler scheduler = new CachingScheduler(delegate, Duration.ofMinutes(1), 10, Duration.ofMillis(50));
+        assertNull(scheduler.getJob("missing"));
+        assertNull(scheduler.getJob("missing"));
+        assertEquals(1, delegate.reads.get());
+        Thread.sleep(60);
+        assertNull(scheduler.getJob("missing"));
+        assertEquals(2, delegate.reads.get());
+        CachingScheduler uncached = new CachingScheduler(delegate, Duration.ofMinutes(1), 10, Duration.ZERO);
+        assertNull(uncached.getJob("missing"));
+        assertEquals(0, uncached.size());
+    }
+
+    @Test
+    public void testWaitersObserveTheirDeadline() throws Exception {
+        delegate.release = new CountDownLatch(1);
+        CachingScheduler scheduler = new CachingScheduler(delegate, Duration.ofMinutes(1), 10);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<JobDefinition> first = executor.submit(() -> scheduler.getJob("job1"));
+            assertTrue(delegate.started.await(5, TimeUnit.SECONDS));
+            long start = System.nanoTime();
+            try {
+                scheduler.getJob("job1", null, new CallOptions().timeout(Duration.ofMillis(50)));
+                fail("The waiter should have timed out");
+            } catch (DeadlineExceededException ex) {
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            }
+            delegate.release.countDown();
+            assertEquals("job1", first.get(5, TimeUnit.SECONDS).getId());
+        } finally {
+            delegate.release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static class CountingScheduler implements Scheduler {
+        private final AtomicInteger reads = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch release;
+
+        @Override
+        public JobDefinition getJob(String id, String token) {
+            read();
+            if (id.equals("missing")) {
+                return null;
+            }
+            JobDefinition job = new JobDefinition();
+            job.setId(id);
+            return job;
+        }
+
+        @Override
+        public String getJobParameters(String id, String token) {
+            read();
+            return "params-" + id;
+        }
+
+        private void read() {
+            reads.incrementAndGet();
+            started.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public String addJob(JobDefinition jobDefinition, String token) {
+            return null;
+        }
+
+        @Override
+        public void setJobParameters(String id, String params, String token) {
+        }
+
+        @Override
+        public void startJob(String id, String token) {
+        }
+
+        @Override
+        public void enableJob(String id, String token) {
+        }
+
+        @Override
+        public void disableJob(String id, String token) {
+        }
+
+        @Override
+        public void deleteAllJobs(String token) {
+        }
+
+        @Override
+        public void deleteJob(String id, String token) {
+        }
+
+        @Override
+        public List<JobDefinition> listJobs(String token) {
+            return null;
+        }
+
+        @Override
+        public JobStat getJobExecutionStats(String executionId, String token) {
+            return null;
+        }
+
+        @Override
+        public List<JobStat> getAllJobExecutionStats(String jobId, String token) {
+            return null;
+        }
+
+        @Override
+        public void updateJobExecutionStatus(String jobId, String executionId, JobStatus status, String token) {
+        }
+    }
+}
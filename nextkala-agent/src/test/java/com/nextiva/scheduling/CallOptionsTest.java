@@ -0,0 +1,159 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.transport.DeadlineExceededException;
+import com.nextiva.scheduling.agent.transport.PooledTransport;
+import com.nextiva.scheduling.agent.transport.TransportSettings;
+import com.nextiva.scheduling.api.CallOptions;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test deadlines and hedged reads against a local HTTP server whose first response is slow.
+ */
+public class CallOptionsTest {
+
+    private static final long SLOW_MILLIS = 2000;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> sendingThreads = new CopyOnWriteArrayList<>();
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private PooledTransport transport;
+    private SchedulerClient client;
+
+    /**
+     * Start the server.
+     * @throws IOException if the server cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/job/", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+        transport = PooledTransport.create(new TransportSettings());
+        RestTemplate template = transport.createRestTemplate();
+        template.getInterceptors().add((request, body, execution) -> {
+            sendingThreads.add(Thread.currentThread().getName());
+            return execution.execute(request, body);
+        });
+        client = new SchedulerClient(template, "http://localhost:" + server.getAddress().getPort());
+    }
+
+    /**
+     * Stop the server.
+     */
+    @After
+    public void tearDown() {
+        client.close();
+        transport.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testDeadlineLimitsRead() {
+        long start = System.nanoTime();
+        try {
+            client.getJob("abc", null, new CallOptions().timeout(Duration.ofMillis(200)));
+            fail("Expected the read to time out");
+        } catch (ResourceAccessException ex) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < SLOW_MILLIS);
+        }
+    }
+
+    @Test
+    public void testExpiredDeadlineSendsNoRequest() {
+        try {
+            client.getJob("abc", null, new CallOptions().timeout(Duration.ZERO));
+            fail("Expected the deadline to be exceeded");
+        } catch (DeadlineExceededException ex) {
+            assertEquals(0, requests.get());
+        }
+    }
+
+    @Test
+    public void testHedgedReadUsesFirstAnswer() {
+        long start = System.nanoTime();
+        JobDefinition job = client.getJob("abc", null, new CallOptions().timeout(Duration.ofSeconds(1))
+                .hedgeAfter(Duration.ofMillis(50)));
+        assertEquals("abc", job.getId());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < SLOW_MILLIS);
+        assertEquals(2, requests.get());
+        assertEquals(1, client.getHedgeCount());
+        assertEquals(1, client.getHedgeWinCount());
+        assertEquals(Thread.currentThread().getName(), sendingThreads.get(0));
+        assertTrue(sendingThreads.get(1).startsWith("nextkala-hedge-"));
+    }
+
+    @Test
+    public void testFastReadIsNotHedged() {
+        requests.set(1);
+        JobDefinition job = client.getJob("abc", null, new CallOptions().hedgeAfter(Duration.ofSeconds(1)));
+        assertEquals("abc", job.getId());
+        assertEquals(2, requests.get());
+        assertEquals(0, client.getHedgeCount());
+    }
+
+    /**
+     * The first request is answered slowly and every later request immediately.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (requests.incrementAndGet() == 1) {
+            try {
+                Thread.sleep(SLOW_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] bytes = "{\"id\":\"abc\",\"name\":\"Hello\"}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test execution timeouts and the cancellation of runs.
+ */
+public class CancellationTest {
+
+    private static volatile CountDownLatch started;
+    private static volatile CountDownLatch interrupted;
+
+    /**
+     * Reset the job's latches.
+     */
+    @Before
+    public void setUp() {
+        started = new CountDownLatch(1);
+        interrupted = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                MetricsTest.AgentConfiguration.class, SleepyJob.class)) {
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Sleepy", null, "11111", "1", null)
+                    .getStatusCode());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            Counter cancellations = awaitCancellation(context.getBean(MeterRegistry.class), "timeout");
+            assertEquals(1, cancellations.count(), 0);
+            assertEquals(HttpStatus.NOT_FOUND, controller.cancelJob("Sleepy", "1").getStatusCode());
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                MetricsTest.AgentConfiguration.class, SleepyJob.class)) {
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Sleepy", null, "11111", "2", null)
+                    .getStatusCode());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.NOT_FOUND, controller.cancelJob("Quick", "2").getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.cancelJob("Sleepy", "2").getStatusCode());
+            assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.NOT_FOUND, controller.cancelJob("Sleepy", "2").getStatusCode());
+            Counter cancellations = awaitCancellation(context.getBean(MeterRegistry.class), "cancelled");
+            assertEquals(1, cancellations.count(), 0);
+        }
+    }
+
+    @Test
+    public void testCancelledRunIsTrackedUntilReported() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                MetricsTest.AgentConfiguration.class, SleepyJob.class)) {
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            CountDownLatch reported = new CountDownLatch(1);
+            AtomicInteger tracked = new AtomicInteger(-1);
+            AtomicReference<String> reportingThread = new AtomicReference<>();
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(request -> {
+                if (((MockClientHttpRequest) request).getBodyAsString().contains("Failed")) {
+                    tracked.set(controller.listRuns().size());
+                    reportingThread.set(Thread.currentThread().getName());
+                    reported.countDown();
+                }
+                return withNoContent().createResponse(request);
+            });
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Sleepy", null, "11111", "3", null)
+                    .getStatusCode());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.ACCEPTED, controller.cancelJob("Sleepy", "3").getStatusCode());
+            assertTrue(reported.await(5, TimeUnit.SECONDS));
+            assertEquals(1, tracked.get());
+            assertEquals("nextkala-agent-cancel", reportingThread.get());
+            assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        }
+    }
+
+    private static Counter awaitCancellation(MeterRegistry registry, String reason) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Counter counter = null;
+        while (counter == null && System.nanoTime() < deadline) {
+            counter = registry.find("nextkala.job.cancellations").tags("job", "Sleepy", "reason", reason).counter();
+            Thread.sleep(10);
+        }
+        assertNotNull(counter);
+        return counter;
+    }
+
+    /**
+     * A job that sleeps until it is interrupted.
+     */
+    @Job(value = "Sleepy", timeoutSeconds = 1)
+    public static class SleepyJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                return 0;
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
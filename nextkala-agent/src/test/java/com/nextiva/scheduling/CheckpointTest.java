@@ -0,0 +1,250 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.Checkpoint;
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.Scheduler;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test debouncing and merging of checkpoints.
+ */
+public class CheckpointTest {
+
+    private final ParamsScheduler scheduler = new ParamsScheduler();
+
+    @Test
+    public void testWritesAreDebounced() {
+        scheduler.params = "{}";
+        try (Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "{}", Duration.ofHours(1), true)) {
+            assertTrue(checkpoint.put("offset", 1));
+            assertFalse(checkpoint.put("offset", 2));
+            assertFalse(checkpoint.put("offset", 3));
+            assertEquals(1, scheduler.writes.size());
+        }
+        assertEquals(2, scheduler.writes.size());
+        assertEquals("{\"offset\":3}", scheduler.params);
+    }
+
+    @Test
+    public void testUnchangedStateIsNotWritten() {
+        scheduler.params = "state";
+        Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "state", Duration.ZERO, true);
+        assertTrue(checkpoint.set("state"));
+        assertTrue(checkpoint.set("next"));
+        assertTrue(checkpoint.set("next"));
+        assertTrue(checkpoint.flush());
+        checkpoint.close();
+        assertEquals(List.of("next"), scheduler.writes);
+        assertEquals(1, checkpoint.getWriteCount());
+        assertEquals(4, checkpoint.getSkippedCount());
+    }
+
+    @Test
+    public void testConcurrentChangesAreMerged() {
+        scheduler.params = "{\"offset\":0,\"owner\":\"a\",\"stale\":true}";
+        Checkpoint checkpoint = new Checkpoint(scheduler, "job1", scheduler.params, Duration.ZERO, true);
+        scheduler.params = "{\"offset\":0,\"owner\":\"b\",\"stale\":true}";
+        checkpoint.put("offset", 10);
+        checkpoint.remove("stale");
+        assertEquals("{\"offset\":10,\"owner\":\"b\"}", scheduler.params);
+        assertEquals(scheduler.params, checkpoint.get());
+        assertEquals(1, checkpoint.getConflictCount());
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() {
+        scheduler.params = "old";
+        Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "old", Duration.ofHours(1), true);
+        scheduler.unavailable = true;
+        assertFalse(checkpoint.set("new"));
+        scheduler.unavailable = false;
+        assertTrue(checkpoint.flush());
+        assertEquals("new", scheduler.params);
+    }
+
+    @Test
+    public void testDeferredWriteIsFlushed() throws InterruptedException {
+        scheduler.params = "{}";
+        try (Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "{}", Duration.ofMillis(100), true)) {
+            assertTrue(checkpoint.put("offset", 1));
+            assertFalse(checkpoint.put("offset", 2));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (scheduler.writes.size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("{\"offset\":2}", scheduler.params);
+            assertEquals(2, checkpoint.getWriteCount());
+        }
+        assertEquals(2, scheduler.writes.size());
+    }
+
+    @Test
+    public void testReformattedParametersAreNotAConflict() {
+        scheduler.params = "{ \"offset\": 0 }";
+        Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "{\"offset\":0}", Duration.ZERO, true);
+        checkpoint.put("offset", 1);
+        assertEquals("{\"offset\":1}", scheduler.params);
+        assertEquals(0, checkpoint.getConflictCount());
+    }
+
+    @Test
+    public void testUnverifiedWritesDoNotRead() {
+        scheduler.params = "{\"offset\":0,\"owner\":\"b\"}";
+        Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "{\"offset\":0}", Duration.ZERO, false);
+        checkpoint.put("offset", 1);
+        assertEquals("{\"offset\":1}", scheduler.params);
+        assertEquals(0, scheduler.reads);
+    }
+
+    @Test
+    public void testStartsWithoutParameters() {
+        String uri = "http://localhost:8888/api/v1/job/job1/params/";
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+        mockServer.expect(requestTo(uri)).andExpect(method(HttpMethod.GET)).andRespond(withSuccess());
+        mockServer.expect(requestTo(uri)).andExpect(method(HttpMethod.PUT))
+                .andExpect(content().string("{\"offset\":1}")).andRespond(withStatus(HttpStatus.NO_CONTENT));
+        SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+        Checkpoint checkpoint = new Checkpoint(client, "job1", null, Duration.ZERO, true);
+        assertTrue(checkpoint.put("offset", 1));
+        mockServer.verify();
+        assertEquals(1, checkpoint.getWriteCount());
+        assertEquals(0, checkpoint.getConflictCount());
+    }
+
+    @Test
+    public void testSlowWriteDoesNotBlockChanges() throws Exception {
+        scheduler.params = "{}";
+        scheduler.writing = new CountDownLatch(1);
+        scheduler.release = new CountDownLatch(1);
+        Checkpoint checkpoint = new Checkpoint(scheduler, "job1", "{}", Duration.ofHours(1), true);
+        final CompletableFuture<Boolean> written = CompletableFuture.supplyAsync(() -> checkpoint.put("offset", 1));
+        assertTrue(scheduler.writing.await(5, TimeUnit.SECONDS));
+        assertFalse(checkpoint.put("offset", 2));
+        assertEquals("{\"offset\":2}", checkpoint.get());
+        scheduler.release.countDown();
+        assertTrue(written.get(5, TimeUnit.SECONDS));
+        checkpoint.close();
+        assertEquals(List.of("{\"offset\":1}", "{\"offset\":2}"), scheduler.writes);
+    }
+
+    private static class ParamsScheduler implements Scheduler {
+        private final List<String> writes = new CopyOnWriteArrayList<>();
+        private volatile String params;
+        private boolean unavailable;
+        private int reads;
+        private CountDownLatch writing;
+        private CountDownLatch release;
+
+        @Override
+        public String getJobParameters(String id, String token) {
+            ++reads;
+            return unavailable ? null : params;
+        }
+
+        @Override
+        public void setJobParameters(String id, String params, String token) {
+            if (release != null) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writes.add(params);
+            this.params = params;
+        }
+
+        @Override
+        public JobDefinition getJob(String id, String token) {
+            return null;
+        }
+
+        @Override
+        public String addJob(JobDefinition jobDefinition, String token) {
+            return null;
+        }
+
+        @Override
+        public void startJob(String id, String token) {
+        }
+
+        @Override
+        public void enableJob(String id, String token) {
+        }
+
+        @Override
+        public void disableJob(String id, String token) {
+        }
+
+        @Override
+        public void deleteAllJobs(String token) {
+        }
+
+        @Override
+        public void deleteJob(String id, String token) {
+        }
+
+        @Override
+        public List<JobDefinition> listJobs(String token) {
+            return null;
+        }
+
+        @Override
+        public JobStat getJobExecutionStats(String executionId, String token) {
+            return null;
+        }
+
+        @Override
+        public List<JobStat> getAllJobExecutionStats(String jobId, String token) {
+            return null;
+        }
+
+        @Override
+        public void updateJobExecutionStatus(String jobId, String executionId, JobStatus status, String token) {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test that a run NextKala dispatches again is not executed twice.
+ */
+public class DedupeTest {
+
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+    private static final AtomicInteger HOLD_RUNS = new AtomicInteger();
+
+    @Test
+    public void testDuplicateDispatch() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                MetricsTest.AgentConfiguration.class)) {
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "11111", "1", null).getStatusCode());
+            final Timer runs = MetricsTest.awaitRun(registry, "Quick");
+            ResponseEntity<Void> response = controller.runJob("Quick", null, "11111", "1", null);
+            assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+            assertEquals("Success", response.getHeaders().getFirst("NextKala-RunStatus"));
+            Thread.sleep(100);
+            assertEquals(1, runs.count());
+            assertEquals(1, registry.get("nextkala.dispatch").tags("job", "Quick", "result", "duplicate")
+                    .timer().count());
+        }
+    }
+
+    @Test
+    public void testRunInFlightIsNotForgotten() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                    Collections.singletonMap("nextkala.agent.dedupe.max-runs", "1")));
+            context.register(MetricsTest.AgentConfiguration.class, HoldJob.class);
+            context.refresh();
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Hold", null, "1", "h1", null).getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "2", "q1", null).getStatusCode());
+            MetricsTest.awaitRun(registry, "Quick");
+            RELEASE.countDown();
+            MetricsTest.awaitRun(registry, "Hold");
+            ResponseEntity<Void> response = controller.runJob("Hold", null, "1", "h1", null);
+            assertEquals("Success", response.getHeaders().getFirst("NextKala-RunStatus"));
+            assertEquals(1, HOLD_RUNS.get());
+        }
+    }
+
+    /**
+     * A job that holds its thread until released.
+     */
+    @Job("Hold")
+    public static class HoldJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            HOLD_RUNS.incrementAndGet();
+            try {
+                return RELEASE.await(5, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException ex) {
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.AgentDrainEvent;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test draining the agent.
+ */
+public class DrainTest {
+
+    private static volatile CountDownLatch started;
+    private static volatile CountDownLatch interrupted;
+
+    /**
+     * Reset the job's latches.
+     */
+    @Before
+    public void setUp() {
+        started = new CountDownLatch(1);
+        interrupted = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testDrainAndResume() {
+        List<AgentDrainEvent> events = new CopyOnWriteArrayList<>();
+        try (AnnotationConfigApplicationContext context = createContext()) {
+            context.addApplicationListener((ApplicationListener<AgentDrainEvent>) events::add);
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.OK, controller.ready().getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.startDraining().getStatusCode());
+            assertTrue(controller.isDraining());
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, controller.ready().getStatusCode());
+            ResponseEntity<Void> response = controller.runJob("Quick", null, "11111", "1", null);
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+            assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+            assertEquals(HttpStatus.NO_CONTENT, controller.stopDraining().getStatusCode());
+            assertFalse(controller.isDraining());
+            assertEquals(HttpStatus.OK, controller.ready().getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "11111", "1", null).getStatusCode());
+            assertEquals(2, events.size());
+            assertTrue(events.get(0).isDraining());
+            assertFalse(events.get(1).isDraining());
+        }
+    }
+
+    @Test
+    public void testAbandonAtDeadline() throws InterruptedException {
+        MeterRegistry registry;
+        try (AnnotationConfigApplicationContext context = createContext()) {
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Waiting", null, "11111", "1", null)
+                    .getStatusCode());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertNotNull(registry.find("nextkala.job.cancellations").tags("job", "Waiting", "reason", "shutdown")
+                .counter());
+    }
+
+    private static AnnotationConfigApplicationContext createContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("nextkala.agent.drain.timeout-seconds", "1")));
+        context.register(MetricsTest.AgentConfiguration.class, WaitingJob.class);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * A job that waits until it is interrupted.
+     */
+    @Job("Waiting")
+    public static class WaitingJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                return 0;
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
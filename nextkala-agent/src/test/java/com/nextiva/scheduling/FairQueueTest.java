@@ -0,0 +1,282 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test that queued runs are shared fairly between jobs.
+ */
+public class FairQueueTest {
+
+    private static final CountDownLatch STARTED = new CountDownLatch(1);
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+    private static final CountDownLatch FLOOD_STARTED = new CountDownLatch(2);
+    private static final CountDownLatch FLOOD_RELEASE = new CountDownLatch(1);
+    private static final CountDownLatch HOLD_STARTED = new CountDownLatch(1);
+    private static final CountDownLatch HOLD_RELEASE = new CountDownLatch(1);
+    private static final List<String> RUNS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Clear the runs recorded by other tests.
+     */
+    @Before
+    public void setUp() {
+        RUNS.clear();
+    }
+
+    @Test
+    public void testFairQueue() throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("nextkala.agent.executor.core-pool-size", "1");
+        properties.put("nextkala.agent.executor.max-pool-size", "1");
+        properties.put("nextkala.agent.executor.queue-capacity", "10");
+        properties.put("nextkala.agent.fair-queue.key", "job");
+        properties.put("nextkala.agent.fair-queue.max-queued.Noisy", "3");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.register(MetricsTest.AgentConfiguration.class, GateJob.class, NoisyJob.class, QuietJob.class);
+            context.refresh();
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Gate", null, "1", "g", null).getStatusCode());
+            assertTrue(STARTED.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i <= 3; ++i) {
+                assertEquals(HttpStatus.ACCEPTED, controller.runJob("Noisy", null, "2", "n" + i, null)
+                        .getStatusCode());
+            }
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, controller.runJob("Noisy", null, "2", "n4", null)
+                    .getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quiet", null, "3", "q1", null).getStatusCode());
+            RELEASE.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (RUNS.size() < 4 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("Noisy", "Quiet", "Noisy", "Noisy"), RUNS);
+            assertNotNull(context.getBean(MeterRegistry.class).find("nextkala.queue.wait").tag("key", "Quiet")
+                    .timer());
+        }
+    }
+
+    @Test
+    public void testKeyOverLimitIsRejected() throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("nextkala.agent.executor.core-pool-size", "1");
+        properties.put("nextkala.agent.executor.max-pool-size", "2");
+        properties.put("nextkala.agent.executor.queue-capacity", "10");
+        properties.put("nextkala.agent.fair-queue.key", "job");
+        properties.put("nextkala.agent.fair-queue.max-queued.Flood", "1");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.register(MetricsTest.AgentConfiguration.class, FloodJob.class, QuietJob.class);
+            context.refresh();
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Flood", null, "4", "f1", null).getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Flood", null, "4", "f2", null).getStatusCode());
+            assertTrue(FLOOD_STARTED.await(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Flood", null, "4", "f3", null).getStatusCode());
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, controller.runJob("Flood", null, "4", "f4", null)
+                    .getStatusCode());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quiet", null, "3", "q2", null).getStatusCode());
+            FLOOD_RELEASE.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!RUNS.contains("Quiet") && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(RUNS.contains("Quiet"));
+        }
+    }
+
+    @Test
+    public void testOwnerLookupDoesNotDelayDispatch() throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("nextkala.agent.executor.core-pool-size", "1");
+        properties.put("nextkala.agent.executor.max-pool-size", "1");
+        properties.put("nextkala.agent.executor.queue-capacity", "10");
+        properties.put("nextkala.agent.fair-queue.key", "owner");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.register(MetricsTest.AgentConfiguration.class, HoldJob.class, QuietJob.class);
+            context.refresh();
+            MockRestServiceServer server = MockRestServiceServer.bindTo(context.getBean(RestTemplate.class))
+                    .ignoreExpectOrder(true).build();
+            server.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            server.expect(ExpectedCount.manyTimes(), method(HttpMethod.GET)).andRespond(request -> {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return withSuccess("{\"id\":\"6\",\"owner\":\"bob\"}", MediaType.APPLICATION_JSON)
+                        .createResponse(request);
+            });
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJobRequest("Hold", new ByteArrayInputStream(new byte[0]),
+                    null, "5", "h1", null, "carol").getStatusCode());
+            assertTrue(HOLD_STARTED.await(5, TimeUnit.SECONDS));
+            long start = System.nanoTime();
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quiet", null, "6", "q3", null).getStatusCode());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(HttpStatus.ACCEPTED, controller.runJobRequest("Quiet", new ByteArrayInputStream(new byte[0]),
+                    null, "7", "q4", null, "alice").getStatusCode());
+            HOLD_RELEASE.countDown();
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((registry.find("nextkala.queue.wait").tag("key", "Quiet").timer() == null
+                    || registry.find("nextkala.queue.wait").tag("key", "alice").timer() == null)
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotNull(registry.find("nextkala.queue.wait").tag("key", "Quiet").timer());
+            assertNotNull(registry.find("nextkala.queue.wait").tag("key", "alice").timer());
+        }
+    }
+
+    /**
+     * A job that holds its thread until released.
+     */
+    @Job("Gate")
+    public static class GateJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            STARTED.countDown();
+            try {
+                return RELEASE.await(5, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException ex) {
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+
+    /**
+     * A job that holds its thread until the flood is released.
+     */
+    @Job("Flood")
+    public static class FloodJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            FLOOD_STARTED.countDown();
+            try {
+                return FLOOD_RELEASE.await(5, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException ex) {
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+
+    /**
+     * A job that holds its thread until the owner test releases it.
+     */
+    @Job("Hold")
+    public static class HoldJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            HOLD_STARTED.countDown();
+            try {
+                return HOLD_RELEASE.await(5, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException ex) {
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+
+    /**
+     * A job that records that it ran.
+     */
+    public abstract static class RecordingJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            RUNS.add(getClass().getSimpleName().replace("Job", ""));
+            return 0;
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+
+    /**
+     * A job dispatched many times.
+     */
+    @Job("Noisy")
+    public static class NoisyJob extends RecordingJob {
+    }
+
+    /**
+     * A job dispatched once.
+     */
+    @Job("Quiet")
+    public static class QuietJob extends RecordingJob {
+    }
+}
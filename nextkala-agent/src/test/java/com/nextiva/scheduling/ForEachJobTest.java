@@ -0,0 +1,87 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.api.enums.JobType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test streaming the job list.
+ */
+public class ForEachJobTest {
+
+    private static final String JOBS_URI = "http://localhost:8888/api/v1/job/";
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+    private final SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+
+    @Test
+    public void testJobsArePassedToAction() {
+        mockServer.expect(requestTo(JOBS_URI)).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[{\"id\":\"1\",\"name\":\"One\",\"type\":1,\"unknown\":{\"a\":[1]}},"
+                        + "{\"id\":\"2\",\"name\":\"Two\"},{\"id\":\"3\"}]", MediaType.APPLICATION_JSON));
+        List<String> ids = new ArrayList<>();
+        assertTrue(client.forEachJob(job -> ids.add(job.getId())));
+        assertEquals(List.of("1", "2", "3"), ids);
+        mockServer.verify();
+    }
+
+    @Test
+    public void testJobFieldsAreRead() {
+        mockServer.expect(requestTo(JOBS_URI))
+                .andRespond(withSuccess("[{\"id\":\"1\",\"name\":\"One\",\"type\":1,\"parent_jobs\":[\"0\"]}]",
+                        MediaType.APPLICATION_JSON));
+        assertTrue(client.forEachJob(job -> {
+            assertEquals("One", job.getName());
+            assertEquals(JobType.REMOTE_JOB, job.getType());
+            assertEquals("0", job.getParentJobs()[0]);
+        }));
+    }
+
+    @Test
+    public void testEmptyList() {
+        mockServer.expect(requestTo(JOBS_URI)).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+        assertTrue(client.forEachJob(job -> {
+            throw new AssertionError("No jobs expected");
+        }));
+    }
+
+    @Test
+    public void testFailure() {
+        mockServer.expect(requestTo(JOBS_URI)).andRespond(withServerError());
+        assertFalse(client.forEachJob(job -> { }));
+    }
+}
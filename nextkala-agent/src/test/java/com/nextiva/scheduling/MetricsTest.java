@@ -0,0 +1,312 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.ScheduledJob;
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+import com.nextiva.scheduling.agent.metrics.MetricsConfiguration;
+import com.nextiva.scheduling.agent.metrics.MicrometerAgentMetrics;
+import com.nextiva.scheduling.agent.status.StatusReporter;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test the Micrometer instrumentation of the controller and client.
+ */
+public class MetricsTest {
+
+    private static final String JOB_URI = "http://localhost:8888/api/v1/job/1/";
+
+    @Test
+    public void testClientCalls() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+        SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+        MeterRegistry registry = new SimpleMeterRegistry();
+        client.setMetrics(new MicrometerAgentMetrics(registry));
+        mockServer.expect(requestTo(JOB_URI)).andRespond(withSuccess("{\"id\":\"1\"}", MediaType.APPLICATION_JSON));
+        mockServer.expect(requestTo(JOB_URI)).andRespond(withServerError());
+        assertNotNull(client.getJob("1"));
+        assertNull(client.getJob("1"));
+        assertEquals(1, registry.get("nextkala.client.requests").tags("endpoint", "getJob", "outcome", "success")
+                .timer().count());
+        assertEquals(1, registry.get("nextkala.client.requests").tags("endpoint", "getJob", "error", "500")
+                .timer().count());
+        mockServer.verify();
+    }
+
+    @Test
+    public void testStatusBatches() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+        SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerAgentMetrics metrics = new MicrometerAgentMetrics(registry);
+        client.setMetrics(metrics);
+        metrics.bindClient(client);
+        mockServer.expect(ExpectedCount.twice(), requestTo("http://localhost:8888/api/v1/job/1/executions/run1/"))
+                .andExpect(method(HttpMethod.PUT)).andRespond(withNoContent());
+        StatusReporter reporter = client.enableStatusBatching(Duration.ofMinutes(1), 100);
+        client.updateJobExecutionStatus("1", "run1", JobStatus.RUNNING, null);
+        reporter.flush();
+        client.updateJobExecutionStatus("1", "run1", JobStatus.SUCCESS, null);
+        reporter.flush();
+        mockServer.verify();
+        assertEquals(2, registry.get("nextkala.status.batches").functionCounter().count(), 0);
+        assertEquals(2, registry.get("nextkala.status.flush").timer().count());
+        assertEquals(2, registry.get("nextkala.status.updates").tags("state", "sent").functionCounter().count(), 0);
+        reporter.close();
+    }
+
+    @Test
+    public void testDispatchAndRuns() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                AgentConfiguration.class)) {
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "11111", "1", null).getStatusCode());
+            assertEquals(HttpStatus.NOT_FOUND, controller.runJob("Missing", null, "11111", "2", null).getStatusCode());
+            assertEquals(1, registry.get("nextkala.dispatch").tags("job", "Quick", "result", "accepted")
+                    .timer().count());
+            assertEquals(1, registry.get("nextkala.dispatch").tags("job", "unknown", "result", "not_found")
+                    .timer().count());
+            Timer runs = awaitRun(registry, "Quick");
+            assertEquals(1, runs.count());
+            assertEquals(0, registry.get("nextkala.job.active").tag("job", "Quick").gauge().value(), 0);
+            assertEquals(0, registry.get("nextkala.executor.queued").gauge().value(), 0);
+            assertEquals(2, registry.get("nextkala.client.requests").tags("endpoint", "updateJobExecutionStatus")
+                    .timer().count());
+        }
+    }
+
+    @Test
+    public void testDispatchLag() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                AgentConfiguration.class)) {
+            MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+            mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            String scheduledAt = Instant.now().minusSeconds(2).toString();
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Quick", null, "11111", "1", scheduledAt)
+                    .getStatusCode());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            Timer start = null;
+            while (start == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                start = registry.find("nextkala.dispatch.lag").tags("job", "Quick", "stage", "start").timer();
+            }
+            assertNotNull(start);
+            assertEquals(1, start.count());
+            Timer delivery = registry.get("nextkala.dispatch.lag").tags("job", "Quick", "stage", "delivery")
+                    .timer();
+            Timer queue = registry.get("nextkala.dispatch.lag").tags("job", "Quick", "stage", "queue").timer();
+            assertTrue(delivery.totalTime(TimeUnit.MILLISECONDS) >= 1900);
+            assertTrue(queue.totalTime(TimeUnit.MILLISECONDS) < 2000);
+            assertEquals(delivery.totalTime(TimeUnit.NANOSECONDS) + queue.totalTime(TimeUnit.NANOSECONDS),
+                    start.totalTime(TimeUnit.NANOSECONDS), 0);
+        }
+    }
+
+    @Test
+    public void testLookedUpDispatchLagOfFailedRun() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = createLookUpContext(Instant.now().minusSeconds(2))) {
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Failing", null, "1", "1").getStatusCode());
+            Timer start = awaitLag(registry, "Failing", "start");
+            assertNotNull(start);
+            assertEquals(1, start.count());
+            Timer delivery = registry.get("nextkala.dispatch.lag").tags("job", "Failing", "stage", "delivery")
+                    .timer();
+            assertTrue(delivery.totalTime(TimeUnit.MILLISECONDS) >= 1900);
+        }
+    }
+
+    @Test
+    public void testLaterAttemptIsNotDispatchLag() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = createLookUpContext(Instant.now().plusSeconds(60))) {
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Failing", null, "1", "1").getStatusCode());
+            assertNotNull(awaitLag(registry, "Failing", "queue"));
+            assertNull(registry.find("nextkala.dispatch.lag").tags("job", "Failing", "stage", "delivery").timer());
+        }
+    }
+
+    private static AnnotationConfigApplicationContext createLookUpContext(Instant lastAttemptedRun) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("nextkala.agent.dispatch-lag.look-up-scheduled-time", "true")));
+        context.register(AgentConfiguration.class);
+        context.registerBean("Failing", ScheduledJob.class, () -> new AbstractScheduledJob() {
+            @Override
+            public int executeJob(String jobId, String executionId, String jobParams) {
+                return 1;
+            }
+
+            @Override
+            public boolean validateJob(String jobParams) {
+                return true;
+            }
+        });
+        context.refresh();
+        MockRestServiceServer mockServer = context.getBean(MockRestServiceServer.class);
+        mockServer.expect(ExpectedCount.once(), requestTo(JOB_URI)).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\":\"1\",\"metadata\":{\"last_attempted_run\":\""
+                        + lastAttemptedRun + "\"}}", MediaType.APPLICATION_JSON));
+        mockServer.expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT)).andRespond(withNoContent());
+        return context;
+    }
+
+    private static Timer awaitLag(MeterRegistry registry, String job, String stage) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Timer lag = null;
+        while (lag == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            lag = registry.find("nextkala.dispatch.lag").tags("job", job, "stage", stage).timer();
+        }
+        return lag;
+    }
+
+    /**
+     * Wait for a successful run of a job to be recorded.
+     * @param registry The meter registry.
+     * @param job The name of the job.
+     * @return The timer of the job's successful runs.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    static Timer awaitRun(MeterRegistry registry, String job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Timer runs = null;
+        while ((runs == null || runs.count() == 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            runs = registry.find("nextkala.job.runs").tags("job", job, "outcome", "success").timer();
+        }
+        assertNotNull(runs);
+        return runs;
+    }
+
+    /**
+     * The agent's beans with a meter registry.
+     */
+    @Import(MetricsConfiguration.class)
+    public static class AgentConfiguration {
+
+        /**
+         * Create the meter registry.
+         * @return The registry.
+         */
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /**
+         * Create the controller.
+         * @return The controller.
+         */
+        @Bean
+        public ScheduledJobController controller() {
+            return new ScheduledJobController();
+        }
+
+        /**
+         * Create the job.
+         * @return The job.
+         */
+        @Bean("Quick")
+        public ScheduledJob job() {
+            return new AbstractScheduledJob() {
+                @Override
+                public int executeJob(String jobId, String executionId, String jobParams) {
+                    return 0;
+                }
+
+                @Override
+                public boolean validateJob(String jobParams) {
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Create the RestTemplate.
+         * @return The RestTemplate.
+         */
+        @Bean
+        public RestTemplate restTemplate() {
+            return new RestTemplate();
+        }
+
+        /**
+         * Create the mock server.
+         * @param restTemplate The RestTemplate.
+         * @return The mock server.
+         */
+        @Bean
+        public MockRestServiceServer mockServer(RestTemplate restTemplate) {
+            return MockRestServiceServer.bindTo(restTemplate).build();
+        }
+
+        /**
+         * Create the client.
+         * @param restTemplate The RestTemplate.
+         * @return The client.
+         */
+        @Bean
+        public SchedulerClient client(RestTemplate restTemplate) {
+            return new SchedulerClient(restTemplate, "http://localhost:8888/");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.status.SendOutcome;
+import com.nextiva.scheduling.agent.transport.PoolStats;
+import com.nextiva.scheduling.agent.transport.PooledTransport;
+import com.nextiva.scheduling.agent.transport.TransportSettings;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.enums.JobStatus;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test the pooled and HTTP/2 transports against a local HTTP server.
+ */
+public class PooledTransportTest {
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private String baseUri;
+
+    /**
+     * Start the server.
+     * @throws IOException if the server cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v1/job/", this::handle);
+        server.start();
+        baseUri = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Stop the server.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionsAreReused() {
+        TransportSettings settings = new TransportSettings();
+        settings.setMaxConnectionsPerRoute(2);
+        try (PooledTransport transport = PooledTransport.create(settings)) {
+            SchedulerClient client = new SchedulerClient(transport.createRestTemplate(), baseUri);
+            for (int i = 0; i < 20; ++i) {
+                assertEquals(SendOutcome.ACCEPTED,
+                        client.sendJobExecutionStatus("abc", "run" + i, JobStatus.RUNNING, "token"));
+            }
+            assertEquals("abc", client.getJob("abc").getId());
+            assertEquals(1, clientPorts.size());
+            PoolStats stats = transport.getPoolStats();
+            assertEquals(0, stats.getLeased());
+            assertEquals(1, stats.getAvailable());
+            assertEquals(100, stats.getMax());
+        }
+    }
+
+    @Test
+    public void testHttp2Transport() {
+        TransportSettings settings = new TransportSettings();
+        settings.setHttp2(true);
+        try (PooledTransport transport = PooledTransport.create(settings)) {
+            SchedulerClient client = new SchedulerClient(transport.createRestTemplate(), baseUri);
+            JobDefinition definition = new JobDefinition();
+            definition.setName("Hello");
+            assertEquals("abc", client.addJob(definition, "token"));
+            assertEquals("Hello", client.getJob("abc").getName());
+            assertEquals(SendOutcome.ACCEPTED, client.sendJobExecutionStatus("abc", "run1", JobStatus.SUCCESS, null));
+            assertNull(client.getJob("missing"));
+            assertNull(transport.getPoolStats());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().readAllBytes();
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if (method.equals("POST")) {
+            respond(exchange, 200, "{\"id\":\"abc\"}");
+        } else if (method.equals("GET") && path.equals("/api/v1/job/abc/")) {
+            respond(exchange, 200, "{\"id\":\"abc\",\"name\":\"Hello\"}");
+        } else if (method.equals("PUT")) {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.RunProgress;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ActiveRun;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test the reporting of progress by running jobs.
+ */
+public class ProgressTest {
+
+    private static final CountDownLatch REPORTED = new CountDownLatch(1);
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    @Test
+    public void testProgress() throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("nextkala.agent.progress.sample-seconds", "1");
+        properties.put("nextkala.agent.progress.heartbeat-seconds", "1");
+        properties.put("nextkala.agent.progress.stall-seconds", "1");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.register(MetricsTest.AgentConfiguration.class, ReportingJob.class);
+            context.refresh();
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            final MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Reporting", null, "1", "p1", null).getStatusCode());
+            assertTrue(REPORTED.await(5, TimeUnit.SECONDS));
+            List<ActiveRun> runs = controller.listRuns();
+            assertEquals(1, runs.size());
+            assertEquals("p1", runs.get(0).getRunId());
+            assertEquals(50, runs.get(0).getPercentDone(), 0);
+            assertEquals(10, runs.get(0).getCount());
+            assertEquals("Halfway", runs.get(0).getMessage());
+            assertNotNull(runs.get(0).getStartedAt());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Counter stalls = null;
+            while (stalls == null && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                stalls = registry.find("nextkala.job.stalls").tag("job", "Reporting").counter();
+            }
+            assertNotNull(stalls);
+            assertTrue(controller.listRuns().get(0).isStalled());
+            assertEquals(2, registry.get("nextkala.client.requests").tags("endpoint", "updateJobExecutionStatus")
+                    .timer().count());
+            RELEASE.countDown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentMustBeANumber() {
+        new RunProgress().percentDone(Double.NaN);
+    }
+
+    /**
+     * A job that reports progress once and then waits until released.
+     */
+    @Job("Reporting")
+    public static class ReportingJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            for (int i = 0; i < 10; ++i) {
+                getProgress().increment();
+            }
+            reportProgress(50, "Halfway");
+            REPORTED.countDown();
+            try {
+                return RELEASE.await(10, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException ex) {
+                return 1;
+            }
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
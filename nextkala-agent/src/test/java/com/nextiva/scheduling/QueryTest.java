@@ -0,0 +1,118 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.api.ExecutionQuery;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobQuery;
+import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.enums.JobType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test filtered and paged job and execution queries.
+ */
+public class QueryTest {
+
+    private static final String JOBS_URI = "http://localhost:8888/api/v1/job/";
+    private static final String EXECUTIONS_URI = "http://localhost:8888/api/v1/job/1/executions/";
+    private static final String JOBS = "["
+            + "{\"id\":\"1\",\"owner\":\"a@example.com\",\"type\":1,\"next_run_at\":\"2020-11-01T02:00:00Z\"},"
+            + "{\"id\":\"2\",\"owner\":\"b@example.com\",\"type\":1,\"disabled\":true},"
+            + "{\"id\":\"3\",\"owner\":\"a@example.com\",\"type\":0,\"next_run_at\":\"2020-11-03T02:00:00Z\"},"
+            + "{\"id\":\"4\",\"owner\":\"a@example.com\",\"type\":1,\"next_run_at\":\"2020-11-05T02:00:00Z\"},"
+            + "{\"id\":\"5\",\"owner\":\"a@example.com\",\"type\":1,\"is_done\":true}]";
+    private static final String EXECUTIONS = "["
+            + "{\"job_id\":\"1\",\"ran_at\":\"2020-11-01T02:00:00Z\",\"success\":true},"
+            + "{\"job_id\":\"1\",\"ran_at\":\"2020-11-02T02:00:00Z\",\"success\":false},"
+            + "{\"job_id\":\"1\",\"ran_at\":\"2020-11-03T02:00:00Z\",\"success\":true},"
+            + "{\"job_id\":\"1\",\"ran_at\":\"2020-11-04T02:00:00Z\",\"success\":true}]";
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+    private final SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+
+    @Test
+    public void testFindJobsFilters() {
+        mockServer.expect(requestTo(JOBS_URI)).andRespond(withSuccess(JOBS, MediaType.APPLICATION_JSON));
+        List<JobDefinition> jobs = client.findJobs(new JobQuery().owner("a@example.com").type(JobType.REMOTE_JOB)
+                .done(false));
+        assertEquals(List.of("1", "4"), ids(jobs));
+    }
+
+    @Test
+    public void testFindJobsByNextRun() {
+        mockServer.expect(requestTo(JOBS_URI)).andRespond(withSuccess(JOBS, MediaType.APPLICATION_JSON));
+        List<JobDefinition> jobs = client.findJobs(new JobQuery()
+                .nextRunBetween(Instant.parse("2020-11-01T02:00:00Z"), Instant.parse("2020-11-05T02:00:00Z")));
+        assertEquals(List.of("1", "3"), ids(jobs));
+    }
+
+    @Test
+    public void testFindJobsPages() {
+        mockServer.expect(requestTo(JOBS_URI)).andRespond(withSuccess(JOBS, MediaType.APPLICATION_JSON));
+        List<JobDefinition> jobs = client.findJobs(new JobQuery().disabled(false).offset(1).limit(2));
+        assertEquals(List.of("3", "4"), ids(jobs));
+    }
+
+    @Test
+    public void testFindJobsFailure() {
+        mockServer.expect(requestTo(JOBS_URI)).andRespond(withServerError());
+        assertNull(client.findJobs(new JobQuery()));
+    }
+
+    @Test
+    public void testLatestExecutions() {
+        mockServer.expect(requestTo(EXECUTIONS_URI))
+                .andRespond(withSuccess(EXECUTIONS, MediaType.APPLICATION_JSON));
+        List<JobStat> stats = client.findJobExecutionStats("1", new ExecutionQuery().success(true).latest(2));
+        assertEquals(List.of("2020-11-03T02:00:00Z", "2020-11-04T02:00:00Z"), ranAt(stats));
+    }
+
+    @Test
+    public void testExecutionsByRunTime() {
+        mockServer.expect(requestTo(EXECUTIONS_URI))
+                .andRespond(withSuccess(EXECUTIONS, MediaType.APPLICATION_JSON));
+        List<JobStat> stats = client.findJobExecutionStats("1", new ExecutionQuery()
+                .ranBetween(Instant.parse("2020-11-02T00:00:00Z"), null).limit(2));
+        assertEquals(List.of("2020-11-02T02:00:00Z", "2020-11-03T02:00:00Z"), ranAt(stats));
+    }
+
+    private static List<String> ids(List<JobDefinition> jobs) {
+        return jobs.stream().map(JobDefinition::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> ranAt(List<JobStat> stats) {
+        return stats.stream().map(JobStat::getRantAt).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.time.Duration;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.resilience.CircuitBreaker;
+import com.nextiva.scheduling.agent.resilience.CircuitOpenException;
+import com.nextiva.scheduling.agent.resilience.Resilience;
+import com.nextiva.scheduling.agent.resilience.ResilienceSettings;
+import com.nextiva.scheduling.api.JobDefinition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Test the circuit breakers and retries applied to SchedulerClient calls.
+ */
+public class ResilienceTest {
+
+    private static final String JOB_URI = "http://localhost:8888/api/v1/job/1/";
+    private static final String JOBS_URI = "http://localhost:8888/api/v1/job/";
+    private static final String JOB = "{\"id\":\"1\",\"name\":\"hello\"}";
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+    private final SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+
+    @Test
+    public void testRetriesServerError() {
+        final Resilience resilience = client.enableResilience(settings());
+        mockServer.expect(requestTo(JOB_URI)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        mockServer.expect(requestTo(JOB_URI)).andRespond(withSuccess(JOB, MediaType.APPLICATION_JSON));
+        JobDefinition job = client.getJob("1", null);
+        assertNotNull(job);
+        assertEquals("1", job.getId());
+        assertEquals(1, resilience.getRetryCount());
+        mockServer.verify();
+    }
+
+    @Test
+    public void testDoesNotRetryClientError() {
+        Resilience resilience = client.enableResilience(settings());
+        mockServer.expect(ExpectedCount.once(), requestTo(JOB_URI)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+        assertNull(client.getJob("1", null));
+        assertEquals(0, resilience.getRetryCount());
+        assertEquals(CircuitBreaker.State.CLOSED, resilience.getCircuitBreaker("getJob").getState());
+        mockServer.verify();
+    }
+
+    @Test
+    public void testDoesNotRetryAddJob() {
+        final Resilience resilience = client.enableResilience(settings());
+        mockServer.expect(ExpectedCount.once(), requestTo(JOBS_URI)).andExpect(method(HttpMethod.POST))
+                .andRespond(withServerError());
+        JobDefinition job = new JobDefinition();
+        job.setName("hello");
+        assertNull(client.addJob(job, null));
+        assertEquals(0, resilience.getRetryCount());
+        mockServer.verify();
+    }
+
+    @Test
+    public void testCircuitOpens() {
+        ResilienceSettings settings = settings();
+        settings.setMaxAttempts(1);
+        settings.setFailureThreshold(2);
+        settings.setOpenDuration(Duration.ofMinutes(1));
+        final Resilience resilience = client.enableResilience(settings);
+        mockServer.expect(ExpectedCount.times(2), requestTo(JOB_URI)).andRespond(withServerError());
+        assertNull(client.getJob("1", null));
+        assertNull(client.getJob("1", null));
+        try {
+            client.getJob("1", null);
+            fail("Expected the circuit to be open");
+        } catch (CircuitOpenException ex) {
+            assertEquals("getJob", ex.getEndpoint());
+        }
+        CircuitBreaker breaker = resilience.getCircuitBreaker("getJob");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getRejectionCount());
+        assertEquals(CircuitBreaker.State.CLOSED, resilience.getCircuitBreaker("listJobs").getState());
+        mockServer.verify();
+    }
+
+    @Test
+    public void testRetryBudgetLimitsRetries() {
+        ResilienceSettings settings = settings();
+        settings.setMaxAttempts(5);
+        settings.setRetryRatio(0);
+        settings.setMinRetriesPerSecond(0);
+        settings.setFailureThreshold(100);
+        Resilience resilience = client.enableResilience(settings);
+        mockServer.expect(ExpectedCount.once(), requestTo(JOB_URI)).andRespond(withServerError());
+        assertNull(client.getJob("1", null));
+        assertEquals(0, resilience.getRetryCount());
+        assertEquals(1, resilience.getBudgetExhaustedCount());
+        mockServer.verify();
+    }
+
+    private static ResilienceSettings settings() {
+        ResilienceSettings settings = new ResilienceSettings();
+        settings.setInitialBackoff(Duration.ofMillis(1));
+        settings.setMaxBackoff(Duration.ofMillis(5));
+        return settings;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.status.SendOutcome;
+import com.nextiva.scheduling.agent.status.StatusOutbox;
+import com.nextiva.scheduling.agent.status.StatusReporter;
+import com.nextiva.scheduling.agent.status.StatusSender;
+import com.nextiva.scheduling.agent.status.StatusUpdate;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+
+/**
+ * Test that execution status updates survive in the outbox until they are accepted.
+ */
+public class StatusOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecoverUnacknowledged() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            long first = outbox.append(new StatusUpdate("job", "run1", JobStatus.RUNNING, "secret"));
+            outbox.append(new StatusUpdate("job", "run2", JobStatus.SUCCESS, null));
+            outbox.append(new StatusUpdate("job", "run3", JobStatus.FAILED, null));
+            outbox.acknowledge(List.of(first));
+        }
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            List<StatusUpdate> updates = new ArrayList<>(outbox.getUnacknowledged().values());
+            assertEquals(2, updates.size());
+            assertEquals("run2", updates.get(0).getExecutionId());
+            assertEquals(JobStatus.FAILED, updates.get(1).getStatus());
+            assertEquals(null, updates.get(0).getToken());
+            long next = outbox.append(new StatusUpdate("job", "run4", JobStatus.SUCCESS, null));
+            assertTrue("Sequence numbers were reused", next > outbox.getUnacknowledged().keySet().iterator().next());
+        }
+    }
+
+    @Test
+    public void testSegmentIsCompacted() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        long last;
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            outbox.append(new StatusUpdate("job", "stuck", JobStatus.RUNNING, null));
+            for (int i = 0; i < StatusOutbox.MIN_COMPACTION_RECORDS * 2; ++i) {
+                long sequence = outbox.append(new StatusUpdate("job", "run" + i, JobStatus.SUCCESS, null));
+                outbox.acknowledge(List.of(sequence));
+            }
+            last = outbox.append(new StatusUpdate("job", "last", JobStatus.SUCCESS, null));
+            assertTrue("Segment has " + outbox.getRecordCount() + " records",
+                    outbox.getRecordCount() < StatusOutbox.MIN_COMPACTION_RECORDS);
+        }
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            List<StatusUpdate> updates = new ArrayList<>(outbox.getUnacknowledged().values());
+            assertEquals(2, updates.size());
+            assertEquals("stuck", updates.get(0).getExecutionId());
+            assertEquals("last", updates.get(1).getExecutionId());
+            assertTrue(outbox.append(new StatusUpdate("job", "next", JobStatus.SUCCESS, null)) > last);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDiscarded() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            outbox.append(new StatusUpdate("job", "run1", JobStatus.SUCCESS, null));
+        }
+        try (FileChannel channel = FileChannel.open(dir.resolve(StatusOutbox.SEGMENT_NAME),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2}));
+        }
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            Map<Long, StatusUpdate> updates = outbox.getUnacknowledged();
+            assertEquals(1, updates.size());
+        }
+    }
+
+    @Test
+    public void testRetriesWithoutAWindowBackOff() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        StatusReporter reporter = new StatusReporter(update -> {
+            attempts.incrementAndGet();
+            return SendOutcome.RETRY;
+        }, Duration.ZERO, 100,
+                new StatusOutbox(folder.getRoot().toPath()));
+        reporter.submit(new StatusUpdate("job", "run1", JobStatus.RUNNING, null));
+        Thread.sleep(500);
+        reporter.close();
+        assertTrue("Made " + attempts.get() + " attempts", attempts.get() <= 4);
+    }
+
+    @Test
+    public void testRetryAndReplay() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        AtomicBoolean available = new AtomicBoolean(false);
+        List<StatusUpdate> sent = new CopyOnWriteArrayList<>();
+        StatusReporter reporter = new StatusReporter(sender(available, sent), Duration.ofMinutes(1), 100,
+                new StatusOutbox(dir));
+        reporter.submit(new StatusUpdate("job", "run1", JobStatus.RUNNING, null));
+        reporter.submit(new StatusUpdate("job", "run2", JobStatus.RUNNING, null));
+        reporter.flush();
+        reporter.submit(new StatusUpdate("job", "run1", JobStatus.SUCCESS, null));
+        reporter.close();
+        assertTrue(sent.isEmpty());
+
+        available.set(true);
+        reporter = new StatusReporter(sender(available, sent), Duration.ofMinutes(1), 100, new StatusOutbox(dir));
+        reporter.flush();
+        assertEquals(2, sent.size());
+        assertEquals("run1", sent.get(0).getExecutionId());
+        assertEquals(JobStatus.SUCCESS, sent.get(0).getStatus());
+        assertEquals("run2", sent.get(1).getExecutionId());
+        reporter.close();
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            assertTrue(outbox.getUnacknowledged().isEmpty());
+        }
+    }
+
+    @Test
+    public void testRejectedUpdateDoesNotBlockLaterUpdates() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(restTemplate).build();
+        SchedulerClient client = new SchedulerClient(restTemplate, "http://localhost:8888/");
+        mockServer.expect(requestTo("http://localhost:8888/api/v1/job/deleted/executions/run1/"))
+                .andExpect(method(HttpMethod.PUT)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+        mockServer.expect(requestTo("http://localhost:8888/api/v1/job/job/executions/run2/"))
+                .andExpect(method(HttpMethod.PUT)).andRespond(withStatus(HttpStatus.NO_CONTENT));
+        StatusReporter reporter = client.enableStatusOutbox(dir, Duration.ofMinutes(1), 100);
+        client.updateJobExecutionStatus("deleted", "run1", JobStatus.SUCCESS, null);
+        client.updateJobExecutionStatus("job", "run2", JobStatus.SUCCESS, null);
+        reporter.flush();
+        mockServer.verify();
+        assertEquals(1, reporter.getRejectedCount());
+        assertEquals(1, reporter.getSentCount());
+        assertEquals(0, reporter.getPendingCount());
+        reporter.close();
+        try (StatusOutbox outbox = new StatusOutbox(dir)) {
+            assertTrue(outbox.getUnacknowledged().isEmpty());
+        }
+    }
+
+    private static StatusSender sender(AtomicBoolean available, List<StatusUpdate> sent) {
+        return update -> {
+            if (!available.get()) {
+                return SendOutcome.RETRY;
+            }
+            sent.add(update);
+            return SendOutcome.ACCEPTED;
+        };
+    }
+}
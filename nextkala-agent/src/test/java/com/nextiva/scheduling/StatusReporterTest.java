@@ -0,0 +1,97 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.nextiva.scheduling.agent.status.SendOutcome;
+import com.nextiva.scheduling.agent.status.StatusReporter;
+import com.nextiva.scheduling.agent.status.StatusUpdate;
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test buffering and coalescing of execution status updates.
+ */
+public class StatusReporterTest {
+
+    private final List<StatusUpdate> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testSupersededUpdatesAreNotSent() {
+        try (StatusReporter reporter = new StatusReporter(this::send, Duration.ofMinutes(1), 100)) {
+            reporter.submit(new StatusUpdate("job", "run1", JobStatus.RUNNING, null));
+            reporter.submit(new StatusUpdate("job", "run2", JobStatus.RUNNING, null));
+            reporter.submit(new StatusUpdate("job", "run1", JobStatus.SUCCESS, null));
+            reporter.submit(new StatusUpdate("job", "run1", JobStatus.RUNNING, null));
+            reporter.flush();
+            assertEquals(2, sent.size());
+            assertEquals("run1", sent.get(0).getExecutionId());
+            assertEquals(JobStatus.SUCCESS, sent.get(0).getStatus());
+            assertEquals(JobStatus.RUNNING, sent.get(1).getStatus());
+            assertEquals(2, reporter.getCoalescedCount());
+            assertEquals(1, reporter.getBatchCount());
+        }
+    }
+
+    @Test
+    public void testBatchSentWhenWindowElapses() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (StatusReporter reporter = new StatusReporter(this::send, Duration.ofMillis(50), 100)) {
+            reporter.setFlushListener((size, failed, coalesced, nanos) -> latch.countDown());
+            reporter.submit(new StatusUpdate("job", "run1", JobStatus.RUNNING, null));
+            assertTrue("Batch was not sent", latch.await(2, TimeUnit.SECONDS));
+            assertEquals(1, sent.size());
+        }
+    }
+
+    @Test
+    public void testBatchSentWhenFull() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (StatusReporter reporter = new StatusReporter(this::send, Duration.ofMinutes(1), 3)) {
+            reporter.setFlushListener((size, failed, coalesced, nanos) -> latch.countDown());
+            for (int i = 0; i < 3; ++i) {
+                reporter.submit(new StatusUpdate("job", "run" + i, JobStatus.SUCCESS, null));
+            }
+            assertTrue("Batch was not sent", latch.await(2, TimeUnit.SECONDS));
+            assertEquals(3, sent.size());
+        }
+    }
+
+    @Test
+    public void testFailuresAreCounted() {
+        StatusReporter reporter = new StatusReporter(update -> SendOutcome.RETRY, Duration.ofMinutes(1), 10);
+        reporter.submit(new StatusUpdate("job", "run1", JobStatus.FAILED, null));
+        reporter.close();
+        assertEquals(1, reporter.getFailedCount());
+        assertEquals(0, reporter.getSentCount());
+    }
+
+    private SendOutcome send(StatusUpdate update) {
+        sent.add(update);
+        return SendOutcome.ACCEPTED;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.JobPayload;
+import com.nextiva.scheduling.agent.StreamingScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test streaming of job parameters.
+ */
+public class StreamingPayloadTest {
+
+    private static final byte[] LARGE = "{\"ids\":[1,2,3,4,5,6,7,8,9,10]}".getBytes(StandardCharsets.UTF_8);
+    private static volatile CountDownLatch executed;
+    private static volatile boolean spilled;
+    private static volatile String received;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Reset the state recorded by the job.
+     */
+    @Before
+    public void setUp() {
+        executed = new CountDownLatch(1);
+        spilled = false;
+        received = null;
+    }
+
+    @Test
+    public void testSmallPayloadIsHeldInMemory() throws IOException {
+        try (JobPayload payload = JobPayload.read(new ByteArrayInputStream(LARGE), StandardCharsets.UTF_8, 64,
+                folder.getRoot().toPath())) {
+            assertFalse(payload.isSpilled());
+            assertEquals(LARGE.length, payload.size());
+            assertEquals(new String(LARGE, StandardCharsets.UTF_8), payload.asString());
+        }
+        assertNull(JobPayload.read(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8, 64, null)
+                .asString());
+    }
+
+    @Test
+    public void testTextPayloadIsEncodedWhenRead() throws IOException {
+        String text = "{\"name\":\"café\"}";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try (JobPayload payload = JobPayload.of(text)) {
+            assertSame(text, payload.asString());
+            assertEquals(bytes.length, payload.size());
+            try (InputStream stream = payload.openStream()) {
+                assertArrayEquals(bytes, stream.readAllBytes());
+            }
+            assertEquals(bytes.length, payload.map().remaining());
+        }
+        assertNull(JobPayload.of(null).asString());
+        assertEquals(0, JobPayload.of(null).size());
+    }
+
+    @Test
+    public void testLargePayloadIsSpilled() throws IOException {
+        byte[] bytes = new byte[100000];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) i;
+        }
+        JobPayload payload = JobPayload.read(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, 1024,
+                folder.getRoot().toPath());
+        assertTrue(payload.isSpilled());
+        assertEquals(bytes.length, payload.size());
+        try (InputStream stream = payload.openStream()) {
+            assertArrayEquals(bytes, stream.readAllBytes());
+        }
+        ByteBuffer buffer = payload.map();
+        byte[] mapped = new byte[buffer.remaining()];
+        buffer.get(mapped);
+        assertArrayEquals(bytes, mapped);
+        assertEquals(1, countFiles());
+        payload.close();
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testStreamingJob() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("nextkala.agent.payload.spill-threshold-bytes", "16");
+        properties.put("nextkala.agent.payload.temp-dir", folder.getRoot().getAbsolutePath());
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.register(MetricsTest.AgentConfiguration.class, StreamingJob.class);
+            context.refresh();
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            ResponseEntity<Boolean> validation = controller.validateJobRequest("Streaming",
+                    new ByteArrayInputStream(LARGE), "application/json");
+            assertEquals(HttpStatus.OK, validation.getStatusCode());
+            assertEquals(Boolean.TRUE, validation.getBody());
+            assertEquals(HttpStatus.ACCEPTED, controller.runJobRequest("Streaming", new ByteArrayInputStream(LARGE),
+                    "application/json", "1", "s1", null, null).getStatusCode());
+            assertTrue(executed.await(5, TimeUnit.SECONDS));
+            assertTrue(spilled);
+            assertEquals(new String(LARGE, StandardCharsets.UTF_8), received);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (countFiles() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, countFiles());
+            ResponseEntity<Void> duplicate = controller.runJobRequest("Streaming", new ByteArrayInputStream(LARGE),
+                    "application/json", "1", "s1", null, null);
+            assertTrue(duplicate.getHeaders().containsKey("NextKala-RunStatus"));
+            assertEquals(0, countFiles());
+            controller.drain();
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, controller.runJobRequest("Streaming",
+                    new ByteArrayInputStream(LARGE), "application/json", "1", "s2", null, null).getStatusCode());
+            assertEquals(0, countFiles());
+        }
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.count();
+        }
+    }
+
+    /**
+     * A job that records the payload it receives.
+     */
+    @Job("Streaming")
+    public static class StreamingJob implements StreamingScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, JobPayload payload) throws IOException {
+            spilled = payload.isSpilled();
+            try (InputStream stream = payload.openStream()) {
+                received = new String(stream.readAllBytes(), payload.getCharset());
+            }
+            executed.countDown();
+            return 0;
+        }
+
+        @Override
+        public boolean validateJob(JobPayload payload) {
+            return payload.isSpilled();
+        }
+    }
+}
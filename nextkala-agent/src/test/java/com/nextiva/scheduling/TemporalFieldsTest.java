@@ -0,0 +1,88 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobStat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test the typed accessors of the model's time and duration fields.
+ */
+public class TemporalFieldsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testTimestamps() throws Exception {
+        JobDefinition job = objectMapper.readValue("{\"next_run_at\":\"2020-11-01T02:00:04.513Z\","
+                + "\"metadata\":{\"last_success\":\"2020-11-01T02:00:04.123456789-07:00\","
+                + "\"last_error\":\"0001-01-01T00:00:00Z\",\"last_attempted_run\":\"garbage\"}}", JobDefinition.class);
+        assertEquals(Instant.parse("2020-11-01T02:00:04.513Z"), job.getNextRunAtInstant());
+        assertEquals(Instant.parse("2020-11-01T09:00:04.123456789Z"), job.getMetadata().getLastSuccessInstant());
+        assertNull(job.getMetadata().getLastErrorInstant());
+        assertEquals(Long.MIN_VALUE, job.getMetadata().getLastErrorEpochNanos());
+        assertNull(job.getMetadata().getLastAttemptedRunInstant());
+        job.setNextRunAt("2021-01-01T00:00:00+00:00");
+        assertEquals(Instant.parse("2021-01-01T00:00:00Z"), job.getNextRunAtInstant());
+    }
+
+    @Test
+    public void testDurations() {
+        JobStat stat = new JobStat();
+        assertNull(stat.getExecutionDurationAsDuration());
+        stat.setExecutionDuration("4511000000");
+        assertEquals(Duration.ofMillis(4511), stat.getExecutionDurationAsDuration());
+        stat.setExecutionDuration("1h2m3.5s");
+        assertEquals(Duration.parse("PT1H2M3.5S"), stat.getExecutionDurationAsDuration());
+        stat.setExecutionDuration("150ms");
+        assertEquals(150_000_000L, stat.getExecutionDurationNanos());
+        stat.setExecutionDuration("2µs");
+        assertEquals(2_000L, stat.getExecutionDurationNanos());
+        stat.setExecutionDuration("PT0.25S");
+        assertEquals(Duration.ofMillis(250), stat.getExecutionDurationAsDuration());
+        stat.setExecutionDuration("5 parsecs");
+        assertNull(stat.getExecutionDurationAsDuration());
+    }
+
+    @Test
+    public void testWireFormatIsUnchanged() throws Exception {
+        JobStat stat = new JobStat();
+        stat.setRantAt("2020-11-01T02:00:00Z");
+        stat.setExecutionDuration("4511000000");
+        stat.getRanAtEpochNanos();
+        JsonNode json = objectMapper.valueToTree(stat);
+        assertEquals("2020-11-01T02:00:00Z", json.get("ran_at").asText());
+        assertEquals("4511000000", json.get("execution_duration").asText());
+        assertFalse(json.has("ranAtInstant"));
+        assertFalse(json.has("ranAtEpochNanos"));
+        assertFalse(json.has("executionDurationNanos"));
+        JsonNode job = objectMapper.valueToTree(new JobDefinition());
+        assertFalse(job.has("nextRunAtInstant"));
+    }
+}
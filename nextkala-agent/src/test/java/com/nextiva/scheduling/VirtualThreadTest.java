@@ -0,0 +1,117 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.annotation.Job;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+
+/**
+ * Test that runs execute on virtual threads when they are enabled and the JVM provides them, and on the pool's
+ * platform threads otherwise.
+ */
+public class VirtualThreadTest {
+
+    private static final String VIRTUAL_PREFIX = "nextkala-agent-virtual-";
+    private static final String PLATFORM_PREFIX = "nextkala-agent-";
+
+    private static volatile CountDownLatch ran;
+    private static volatile String threadName;
+
+    /**
+     * Reset the job's latch.
+     */
+    @Before
+    public void setUp() {
+        ran = new CountDownLatch(1);
+        threadName = null;
+    }
+
+    @Test
+    public void testPlatformThreadsByDefault() throws InterruptedException {
+        String name = runOnAgent(false);
+        assertTrue(name, name.startsWith(PLATFORM_PREFIX));
+        assertFalse(name, name.startsWith(VIRTUAL_PREFIX));
+    }
+
+    @Test
+    public void testVirtualThreadsWhenEnabled() throws InterruptedException {
+        String name = runOnAgent(true);
+        if (Runtime.version().feature() >= 21) {
+            assertTrue(name, name.startsWith(VIRTUAL_PREFIX));
+        } else {
+            assertTrue(name, name.startsWith(PLATFORM_PREFIX));
+            assertFalse(name, name.startsWith(VIRTUAL_PREFIX));
+        }
+    }
+
+    private static String runOnAgent(boolean virtualThreads) throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                    Collections.singletonMap("nextkala.agent.executor.virtual-threads",
+                            Boolean.toString(virtualThreads))));
+            context.register(MetricsTest.AgentConfiguration.class, WhereJob.class);
+            context.refresh();
+            context.getBean(MockRestServiceServer.class).expect(ExpectedCount.manyTimes(), method(HttpMethod.PUT))
+                    .andRespond(withNoContent());
+            ScheduledJobController controller = context.getBean(ScheduledJobController.class);
+            assertEquals(HttpStatus.ACCEPTED, controller.runJob("Where", null, "1", "w1", null).getStatusCode());
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            return threadName;
+        }
+    }
+
+    /**
+     * A job that records the name of the thread it runs on.
+     */
+    @Job("Where")
+    public static class WhereJob extends AbstractScheduledJob {
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            threadName = Thread.currentThread().getName();
+            ran.countDown();
+            return 0;
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
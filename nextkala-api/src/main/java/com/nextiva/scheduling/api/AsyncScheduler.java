@@ -0,0 +1,256 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.nextiva.scheduling.api.enums.JobStatus;
+
+/**
+ * Non-blocking counterpart of {@link Scheduler}. Each operation returns immediately and completes the
+ * returned future when NextKala responds.
+ */
+public interface AsyncScheduler {
+
+    /**
+     * Add a new Job.
+     * @param jobDefinition The Job definition.
+     * @return A future that completes with the job's id.
+     */
+    default CompletableFuture<String> addJob(JobDefinition jobDefinition) {
+        return addJob(jobDefinition, null);
+    }
+
+    /**
+     * Add a new Job.
+     * @param jobDefinition The Job definition.
+     * @param token The OAuth token.
+     * @return A future that completes with the job's id.
+     */
+    CompletableFuture<String> addJob(JobDefinition jobDefinition, String token);
+
+    /**
+     * Retrieve a job definition.
+     * @param id The job's id.
+     * @return A future that completes with the job's definition.
+     */
+    default CompletableFuture<JobDefinition> getJob(String id) {
+        return getJob(id, null);
+    }
+
+    /**
+     * Retrieve a job definition.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @return A future that completes with the job's definition.
+     */
+    CompletableFuture<JobDefinition> getJob(String id, String token);
+
+    /**
+     * Retrieve a remote job's parameters.
+     * @param id The job's id.
+     * @return A future that completes with the job's parameters as a String (normally JSON).
+     */
+    default CompletableFuture<String> getJobParameters(String id) {
+        return getJobParameters(id, null);
+    }
+
+    /**
+     * Retrieve a remote job's parameters.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @return A future that completes with the job's parameters as a String (normally JSON).
+     */
+    CompletableFuture<String> getJobParameters(String id, String token);
+
+    /**
+     * Save a job's run parameters.
+     * @param id The job's id.
+     * @param params The jobs new parameter string. Normally will be JSON.
+     * @return A future that completes when the parameters have been saved.
+     */
+    default CompletableFuture<Void> setJobParameters(String id, String params) {
+        return setJobParameters(id, params, null);
+    }
+
+    /**
+     * Save a job's run parameters.
+     * @param id The job's id.
+     * @param params The jobs new parameter string. Normally will be JSON.
+     * @param token The OAuth token.
+     * @return A future that completes when the parameters have been saved.
+     */
+    CompletableFuture<Void> setJobParameters(String id, String params, String token);
+
+    /**
+     * Start a job.
+     * @param id The job's id.
+     * @return A future that completes when the job has been started.
+     */
+    default CompletableFuture<Void> startJob(String id) {
+        return startJob(id, null);
+    }
+
+    /**
+     * Start a job.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @return A future that completes when the job has been started.
+     */
+    CompletableFuture<Void> startJob(String id, String token);
+
+    /**
+     * Enable a job.
+     * @param id The job's id.
+     * @return A future that completes when the job has been enabled.
+     */
+    default CompletableFuture<Void> enableJob(String id) {
+        return enableJob(id, null);
+    }
+
+    /**
+     * Enable a job.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @return A future that completes when the job has been enabled.
+     */
+    CompletableFuture<Void> enableJob(String id, String token);
+
+    /**
+     * Disable a job.
+     * @param id The job's id.
+     * @return A future that completes when the job has been disabled.
+     */
+    default CompletableFuture<Void> disableJob(String id) {
+        return disableJob(id, null);
+    }
+
+    /**
+     * Disable a job.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @return A future that completes when the job has been disabled.
+     */
+    CompletableFuture<Void> disableJob(String id, String token);
+
+    /**
+     * Deletes all job definitions.
+     * @return A future that completes when the jobs have been deleted.
+     */
+    default CompletableFuture<Void> deleteAllJobs() {
+        return deleteAllJobs(null);
+    }
+
+    /**
+     * Deletes all job definitions.
+     * @param token The OAuth token.
+     * @return A future that completes when the jobs have been deleted.
+     */
+    CompletableFuture<Void> deleteAllJobs(String token);
+
+    /**
+     * Delete a job definition.
+     * @param id The id of the job.
+     * @return A future that completes when the job has been deleted.
+     */
+    default CompletableFuture<Void> deleteJob(String id) {
+        return deleteJob(id, null);
+    }
+
+    /**
+     * Delete a job definition.
+     * @param id The id of the job.
+     * @param token The OAuth token.
+     * @return A future that completes when the job has been deleted.
+     */
+    CompletableFuture<Void> deleteJob(String id, String token);
+
+    /**
+     * Return all job definitions.
+     * @return A future that completes with the list of job definitions.
+     */
+    default CompletableFuture<List<JobDefinition>> listJobs() {
+        return listJobs(null);
+    }
+
+    /**
+     * Return all job definitions.
+     * @param token The OAuth token.
+     * @return A future that completes with the list of job definitions.
+     */
+    CompletableFuture<List<JobDefinition>> listJobs(String token);
+
+    /**
+     * Retrieve the exection statistics for a particular job execution.
+     * @param executionId The job execution's id.
+     * @return A future that completes with the job execution statistics or null, if the job execution
+     *     cannot be located.
+     */
+    default CompletableFuture<JobStat> getJobExecutionStats(String executionId) {
+        return getJobExecutionStats(executionId, null);
+    }
+
+    /**
+     * Retrieve the exection statistics for a particular job execution.
+     * @param executionId The job execution's id.
+     * @param token The OAuth token.
+     * @return A future that completes with the job execution statistics or null, if the job execution
+     *     cannot be located.
+     */
+    CompletableFuture<JobStat> getJobExecutionStats(String executionId, String token);
+
+    /**
+     * Retrieve all execution stats for a job.
+     * @param jobId The job's id.
+     * @return A future that completes with a List of execution statistics.
+     */
+    default CompletableFuture<List<JobStat>> getAllJobExecutionStats(String jobId) {
+        return getAllJobExecutionStats(jobId, null);
+    }
+
+    /**
+     * Retrieve all execution stats for a job.
+     * @param jobId The job's id.
+     * @param token The OAuth token.
+     * @return A future that completes with a List of execution statistics.
+     */
+    CompletableFuture<List<JobStat>> getAllJobExecutionStats(String jobId, String token);
+
+    /**
+     * Update a job's execution status.
+     * @param jobId The job's id.
+     * @param executionId The job execution's id.
+     * @param status The new job status.
+     * @return A future that completes when the status has been updated.
+     */
+    default CompletableFuture<Void> updateJobExecutionStatus(String jobId, String executionId, JobStatus status) {
+        return updateJobExecutionStatus(jobId, executionId, status, null);
+    }
+
+    /**
+     * Update a job's execution status.
+     * @param jobId The job's id.
+     * @param executionId The job execution's id.
+     * @param status The new job status.
+     * @param token The OAuth token.
+     * @return A future that completes when the status has been updated.
+     */
+    CompletableFuture<Void> updateJobExecutionStatus(String jobId, String executionId, JobStatus status,
+            String token);
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+
+package com.nextiva.scheduling.api;
+
+import java.time.Duration;
+
+/**
+ * Options for a single read from the scheduler. A timeout sets the deadline by which the read must complete,
+ * and hedging sends a second identical request if the first has not been answered after a delay, returning
+ * whichever answer arrives first. Implementations that cannot apply an option ignore it.
+ */
+public class CallOptions {
+
+    private Duration timeout;
+    private boolean hedged;
+    private Duration hedgeDelay;
+
+    /**
+     * Set the time allowed for the call, including any retries.
+     * @param timeout The time allowed, or null for no deadline.
+     * @return These options.
+     */
+    public CallOptions timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Send a second request if the first has not been answered within the 95th percentile of recent response
+     * times. No second request is sent until enough response times have been observed.
+     * @return These options.
+     */
+    public CallOptions hedge() {
+        this.hedged = true;
+        this.hedgeDelay = null;
+        return this;
+    }
+
+    /**
+     * Send a second request if the first has not been answered within a fixed delay.
+     * @param delay The delay before the second request is sent.
+     * @return These options.
+     */
+    public CallOptions hedgeAfter(Duration delay) {
+        this.hedged = true;
+        this.hedgeDelay = delay;
+        return this;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    /**
+     * Return the delay before a second request is sent.
+     * @return The delay, or null if it is derived from recent response times.
+     */
+    public Duration getHedgeDelay() {
+        return hedgeDelay;
+    }
+}
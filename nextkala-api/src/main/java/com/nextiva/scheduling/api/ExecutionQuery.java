@@ -0,0 +1,118 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.api;
+
+import java.time.Instant;
+
+/**
+ * Selects the execution statistics of a job by outcome and run time. Matching executions are paged in the
+ * order NextKala returns them, oldest first, or from the most recent when {@link #latest(int)} is used.
+ * Criteria that are not set match every execution.
+ */
+public class ExecutionQuery {
+
+    private Boolean success;
+    private Instant ranFrom;
+    private Instant ranTo;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+    private boolean latest;
+
+    /**
+     * Select successful or failed executions.
+     * @param success true to select successful executions.
+     * @return This query.
+     */
+    public ExecutionQuery success(boolean success) {
+        this.success = success;
+        return this;
+    }
+
+    /**
+     * Select executions that ran within a range.
+     * @param from The inclusive start of the range, or null for no start.
+     * @param to The exclusive end of the range, or null for no end.
+     * @return This query.
+     */
+    public ExecutionQuery ranBetween(Instant from, Instant to) {
+        this.ranFrom = from;
+        this.ranTo = to;
+        return this;
+    }
+
+    /**
+     * Skip a number of matching executions.
+     * @param offset The number of matching executions to skip.
+     * @return This query.
+     */
+    public ExecutionQuery offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Limit the number of executions returned.
+     * @param limit The maximum number of executions.
+     * @return This query.
+     */
+    public ExecutionQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Return the most recent matching executions. The offset then counts back from the most recent execution.
+     * @param count The maximum number of executions.
+     * @return This query.
+     */
+    public ExecutionQuery latest(int count) {
+        this.limit = count;
+        this.latest = true;
+        return this;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isLatest() {
+        return latest;
+    }
+
+    /**
+     * Determine whether an execution matches the query's criteria.
+     * @param stat The execution statistics.
+     * @return true if the execution matches.
+     */
+    public boolean matches(JobStat stat) {
+        return (success == null || success == stat.isSuccess())
+                && QueryCollector.inRange(stat.getRanAtEpochNanos(), ranFrom, ranTo);
+    }
+
+    /**
+     * Create a collector for the executions that match this query.
+     * @return The collector.
+     */
+    public QueryCollector<JobStat> collector() {
+        return new QueryCollector<>(this::matches, offset, limit, latest);
+    }
+}
@@ -17,6 +17,9 @@
 
 package com.nextiva.scheduling.api;
 
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.nextiva.scheduling.api.enums.JobType;
 
@@ -54,9 +57,10 @@ public class JobDefinition {
     private int retries;
     // Duration in which it is safe to retry the Job.
     private String epsilon;
-    // Convert to java.time.ZonedDateTime
+    // RFC 3339 time, also available from getNextRunAtInstant
     @JsonProperty("next_run_at")
     private String nextRunAt;
+    private transient volatile long nextRunAtNanos = TimeValues.NOT_PARSED;
 
     // Templating delimiters, the left & right separated by space,
     // for example `{{ }}` or `${ }`.
@@ -185,8 +189,36 @@ public class JobDefinition {
         return nextRunAt;
     }
 
+    /**
+     * Set the time of the next run.
+     * @param nextRunAt The time, as NextKala represents it.
+     */
     public void setNextRunAt(String nextRunAt) {
         this.nextRunAt = nextRunAt;
+        this.nextRunAtNanos = TimeValues.NOT_PARSED;
+    }
+
+    /**
+     * Return the time of the next run as an instant. It is parsed once and then retained.
+     * @return The instant or null if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public Instant getNextRunAtInstant() {
+        return TimeValues.toInstant(getNextRunAtEpochNanos());
+    }
+
+    /**
+     * Return the time of the next run as nanoseconds since the epoch. It is parsed once and then retained.
+     * @return The nanoseconds since the epoch or Long.MIN_VALUE if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public long getNextRunAtEpochNanos() {
+        long nanos = nextRunAtNanos;
+        if (nanos == TimeValues.NOT_PARSED) {
+            nanos = TimeValues.parseEpochNanos(nextRunAt);
+            nextRunAtNanos = nanos;
+        }
+        return nanos;
     }
 
     public String getTemplateDelimiters() {
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.api;
+
+import java.time.Instant;
+
+import com.nextiva.scheduling.api.enums.JobType;
+
+/**
+ * Selects job definitions by owner, type, state and next run time, and pages through the matching jobs in
+ * the order NextKala returns them. Criteria that are not set match every job.
+ */
+public class JobQuery {
+
+    private String owner;
+    private JobType type;
+    private Boolean disabled;
+    private Boolean done;
+    private Instant nextRunFrom;
+    private Instant nextRunTo;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Select jobs owned by a user.
+     * @param owner The owner's email address.
+     * @return This query.
+     */
+    public JobQuery owner(String owner) {
+        this.owner = owner;
+        return this;
+    }
+
+    /**
+     * Select jobs of a type.
+     * @param type The job type.
+     * @return This query.
+     */
+    public JobQuery type(JobType type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * Select enabled or disabled jobs.
+     * @param disabled true to select disabled jobs, false to select enabled jobs.
+     * @return This query.
+     */
+    public JobQuery disabled(boolean disabled) {
+        this.disabled = disabled;
+        return this;
+    }
+
+    /**
+     * Select jobs that have, or have not, completed all of their runs.
+     * @param done true to select completed jobs.
+     * @return This query.
+     */
+    public JobQuery done(boolean done) {
+        this.done = done;
+        return this;
+    }
+
+    /**
+     * Select jobs whose next run is within a range.
+     * @param from The inclusive start of the range, or null for no start.
+     * @param to The exclusive end of the range, or null for no end.
+     * @return This query.
+     */
+    public JobQuery nextRunBetween(Instant from, Instant to) {
+        this.nextRunFrom = from;
+        this.nextRunTo = to;
+        return this;
+    }
+
+    /**
+     * Skip a number of matching jobs.
+     * @param offset The number of matching jobs to skip.
+     * @return This query.
+     */
+    public JobQuery offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Limit the number of jobs returned.
+     * @param limit The maximum number of jobs.
+     * @return This query.
+     */
+    public JobQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Determine whether a job matches the query's criteria.
+     * @param job The job definition.
+     * @return true if the job matches.
+     */
+    public boolean matches(JobDefinition job) {
+        return (owner == null || owner.equals(job.getOwner()))
+                && (type == null || type == job.getType())
+                && (disabled == null || disabled == job.isDisabled())
+                && (done == null || done == job.isDone())
+                && QueryCollector.inRange(job.getNextRunAtEpochNanos(), nextRunFrom, nextRunTo);
+    }
+
+    /**
+     * Create a collector for the jobs that match this query.
+     * @return The collector.
+     */
+    public QueryCollector<JobDefinition> collector() {
+        return new QueryCollector<>(this::matches, offset, limit, false);
+    }
+}
@@ -17,24 +17,37 @@
 
 package com.nextiva.scheduling.api;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Job Status.
  */
 public class JobStat {
+
+    /**
+     * Orders execution statistics by the time the job ran, with stats whose time is absent first.
+     */
+    public static final Comparator<JobStat> BY_RAN_AT = Comparator.comparingLong(JobStat::getRanAtEpochNanos);
+
     private String id;
     @JsonProperty("job_id")
     private String jobId;
-    // Convert to java.time.ZonedDateTime
+    // RFC 3339 time, also available from getRanAtInstant
     @JsonProperty("ran_at")
     private String rantAt;
     @JsonProperty("number_of_retries")
     private int numberOfRetries;
     private boolean success;
-    // Convert to java.time.Duration
+    // Nanoseconds or a duration string, also available from getExecutionDurationNanos
     @JsonProperty("execution_duration")
     private String executionDuration;
+    private transient volatile long ranAtNanos = TimeValues.NOT_PARSED;
+    private transient volatile long executionDurationNanos = TimeValues.NOT_PARSED;
 
     public String getJobId() {
         return jobId;
@@ -48,8 +61,13 @@ public class JobStat {
         return rantAt;
     }
 
+    /**
+     * Set the time the job ran.
+     * @param rantAt The time, as NextKala represents it.
+     */
     public void setRantAt(String rantAt) {
         this.rantAt = rantAt;
+        this.ranAtNanos = TimeValues.NOT_PARSED;
     }
 
     public int getNumberOfRetries() {
@@ -72,7 +90,59 @@ public class JobStat {
         return executionDuration;
     }
 
+    /**
+     * Set how long the execution took.
+     * @param executionDuration The duration, as NextKala represents it.
+     */
     public void setExecutionDuration(String executionDuration) {
         this.executionDuration = executionDuration;
+        this.executionDurationNanos = TimeValues.NOT_PARSED;
+    }
+
+    /**
+     * Return the time the job ran as an instant. It is parsed once and then retained.
+     * @return The instant or null if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public Instant getRanAtInstant() {
+        return TimeValues.toInstant(getRanAtEpochNanos());
+    }
+
+    /**
+     * Return the time the job ran as nanoseconds since the epoch. It is parsed once and then retained.
+     * @return The nanoseconds since the epoch or Long.MIN_VALUE if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public long getRanAtEpochNanos() {
+        long nanos = ranAtNanos;
+        if (nanos == TimeValues.NOT_PARSED) {
+            nanos = TimeValues.parseEpochNanos(rantAt);
+            ranAtNanos = nanos;
+        }
+        return nanos;
+    }
+
+    /**
+     * Return how long the execution took as a Duration. The value is parsed once and then retained as a
+     * primitive.
+     * @return The duration or null if the duration is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public Duration getExecutionDurationAsDuration() {
+        return TimeValues.toDuration(getExecutionDurationNanos());
+    }
+
+    /**
+     * Return how long the execution took in nanoseconds. It is parsed once and then retained.
+     * @return The nanoseconds or Long.MIN_VALUE if the duration is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public long getExecutionDurationNanos() {
+        long nanos = executionDurationNanos;
+        if (nanos == TimeValues.NOT_PARSED) {
+            nanos = TimeValues.parseDurationNanos(executionDuration);
+            executionDurationNanos = nanos;
+        }
+        return nanos;
     }
 }
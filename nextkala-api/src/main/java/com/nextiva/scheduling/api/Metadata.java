@@ -17,6 +17,9 @@
 
 package com.nextiva.scheduling.api;
 
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -25,19 +28,22 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Metadata {
     @JsonProperty("success_count")
     private int successCount;
-    // Convert to java.time.ZonedDateTime
+    // RFC 3339 time
     @JsonProperty("last_success")
     private String lastSuccess;
     @JsonProperty("error_count")
     private int errorCount;
-    // Convert to java.time.ZonedDateTime
+    // RFC 3339 time
     @JsonProperty("last_error")
     private String lastError;
-    // Convert to java.time.ZonedDateTime
+    // RFC 3339 time
     @JsonProperty("last_attempted_run")
     private String lastAttemptedRun;
     @JsonProperty("number_of_finished_runs")
     private int numberOfFinishedRuns;
+    private transient volatile long lastSuccessNanos = TimeValues.NOT_PARSED;
+    private transient volatile long lastErrorNanos = TimeValues.NOT_PARSED;
+    private transient volatile long lastAttemptedRunNanos = TimeValues.NOT_PARSED;
 
     public int getSuccessCount() {
         return successCount;
@@ -51,8 +57,36 @@ public class Metadata {
         return lastSuccess;
     }
 
+    /**
+     * Set the time of the last success.
+     * @param lastSuccess The time, as NextKala represents it.
+     */
     public void setLastSuccess(String lastSuccess) {
         this.lastSuccess = lastSuccess;
+        this.lastSuccessNanos = TimeValues.NOT_PARSED;
+    }
+
+    /**
+     * Return the last success as an instant. It is parsed once and then retained.
+     * @return The instant or null if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public Instant getLastSuccessInstant() {
+        return TimeValues.toInstant(getLastSuccessEpochNanos());
+    }
+
+    /**
+     * Return the last success as nanoseconds since the epoch. It is parsed once and then retained.
+     * @return The nanoseconds since the epoch or Long.MIN_VALUE if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public long getLastSuccessEpochNanos() {
+        long nanos = lastSuccessNanos;
+        if (nanos == TimeValues.NOT_PARSED) {
+            nanos = TimeValues.parseEpochNanos(lastSuccess);
+            lastSuccessNanos = nanos;
+        }
+        return nanos;
     }
 
     public int getErrorCount() {
@@ -67,16 +101,72 @@ public class Metadata {
         return lastError;
     }
 
+    /**
+     * Set the time of the last error.
+     * @param lastError The time, as NextKala represents it.
+     */
     public void setLastError(String lastError) {
         this.lastError = lastError;
+        this.lastErrorNanos = TimeValues.NOT_PARSED;
+    }
+
+    /**
+     * Return the last error as an instant. It is parsed once and then retained.
+     * @return The instant or null if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public Instant getLastErrorInstant() {
+        return TimeValues.toInstant(getLastErrorEpochNanos());
+    }
+
+    /**
+     * Return the last error as nanoseconds since the epoch. It is parsed once and then retained.
+     * @return The nanoseconds since the epoch or Long.MIN_VALUE if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public long getLastErrorEpochNanos() {
+        long nanos = lastErrorNanos;
+        if (nanos == TimeValues.NOT_PARSED) {
+            nanos = TimeValues.parseEpochNanos(lastError);
+            lastErrorNanos = nanos;
+        }
+        return nanos;
     }
 
     public String getLastAttemptedRun() {
         return lastAttemptedRun;
     }
 
+    /**
+     * Set the time of the last attempted run.
+     * @param lastAttemptedRun The time, as NextKala represents it.
+     */
     public void setLastAttemptedRun(String lastAttemptedRun) {
         this.lastAttemptedRun = lastAttemptedRun;
+        this.lastAttemptedRunNanos = TimeValues.NOT_PARSED;
+    }
+
+    /**
+     * Return the last attempted run as an instant. It is parsed once and then retained.
+     * @return The instant or null if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public Instant getLastAttemptedRunInstant() {
+        return TimeValues.toInstant(getLastAttemptedRunEpochNanos());
+    }
+
+    /**
+     * Return the last attempted run as nanoseconds since the epoch. It is parsed once and then retained.
+     * @return The nanoseconds since the epoch or Long.MIN_VALUE if the time is absent or cannot be parsed.
+     */
+    @JsonIgnore
+    public long getLastAttemptedRunEpochNanos() {
+        long nanos = lastAttemptedRunNanos;
+        if (nanos == TimeValues.NOT_PARSED) {
+            nanos = TimeValues.parseEpochNanos(lastAttemptedRun);
+            lastAttemptedRunNanos = nanos;
+        }
+        return nanos;
     }
 
     public int getNumberOfFinishedRuns() {
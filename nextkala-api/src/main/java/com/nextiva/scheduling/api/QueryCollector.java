@@ -0,0 +1,109 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.api;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Collects the items that match a query as they are read, applying the query's offset and limit. Items that
+ * do not match, or that fall outside the requested page, are never retained.
+ * @param <T> The type of the items.
+ */
+public final class QueryCollector<T> {
+
+    private final Predicate<? super T> filter;
+    private final int offset;
+    private final int limit;
+    private final boolean latest;
+    private final Deque<T> results = new ArrayDeque<>();
+    private int skipped;
+
+    /**
+     * Create a QueryCollector.
+     * @param filter Selects the items to collect.
+     * @param offset The number of matching items to skip.
+     * @param limit The maximum number of items to collect.
+     * @param latest true if the offset and limit count back from the last matching item.
+     */
+    public QueryCollector(Predicate<? super T> filter, int offset, int limit, boolean latest) {
+        this.filter = filter;
+        this.offset = Math.max(0, offset);
+        this.limit = Math.max(0, limit);
+        this.latest = latest;
+    }
+
+    /**
+     * Offer an item to the collector.
+     * @param item The item.
+     * @return false once no later item can be collected, so that reading may stop.
+     */
+    public boolean add(T item) {
+        if (limit == 0) {
+            return false;
+        }
+        if (!filter.test(item)) {
+            return true;
+        }
+        if (latest) {
+            results.addLast(item);
+            if (results.size() > (long) offset + limit) {
+                results.removeFirst();
+            }
+            return true;
+        }
+        if (skipped < offset) {
+            ++skipped;
+            return true;
+        }
+        results.addLast(item);
+        return results.size() < limit;
+    }
+
+    /**
+     * Return the collected items, in the order they were read.
+     * @return The items.
+     */
+    public List<T> getResults() {
+        List<T> list = new ArrayList<>(results);
+        if (latest) {
+            int end = Math.max(0, list.size() - offset);
+            return new ArrayList<>(list.subList(Math.max(0, end - limit), end));
+        }
+        return list;
+    }
+
+    /**
+     * Determine whether a time falls within a range.
+     * @param epochNanos The time in nanoseconds since the epoch, or Long.MIN_VALUE if the time is absent.
+     * @param from The inclusive start of the range, or null for no start.
+     * @param to The exclusive end of the range, or null for no end.
+     * @return true if there is no range or the time is within it.
+     */
+    static boolean inRange(long epochNanos, Instant from, Instant to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        return epochNanos != TimeValues.ABSENT && (from == null || epochNanos >= TimeValues.toEpochNanos(from))
+                && (to == null || epochNanos < TimeValues.toEpochNanos(to));
+    }
+}
@@ -18,6 +18,7 @@
 package com.nextiva.scheduling.api;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.nextiva.scheduling.api.JobDefinition;
 import com.nextiva.scheduling.api.JobStat;
@@ -63,6 +64,17 @@ public interface Scheduler {
      */
     JobDefinition getJob(String id, String token);
 
+    /**
+     * Retrieve a job definition. The default implementation ignores the call options.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return the job's definition.
+     */
+    default JobDefinition getJob(String id, String token, CallOptions options) {
+        return getJob(id, token);
+    }
+
     /**
      * Retrieve a remote job's parameters.
      * @param id The job's id.
@@ -80,6 +92,17 @@ public interface Scheduler {
      */
     String getJobParameters(String id, String token);
 
+    /**
+     * Retrieve a remote job's parameters. The default implementation ignores the call options.
+     * @param id The job's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return the job's parameters as a String (normally JSON).
+     */
+    default String getJobParameters(String id, String token, CallOptions options) {
+        return getJobParameters(id, token);
+    }
+
     /**
      * Save a job's run parameters.
      * @param id The job's id.
@@ -185,6 +208,63 @@ public interface Scheduler {
      */
     List<JobDefinition> listJobs(String token);
 
+    /**
+     * Return all job definitions. The default implementation ignores the call options.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return The list of job definitions.
+     */
+    default List<JobDefinition> listJobs(String token, CallOptions options) {
+        return listJobs(token);
+    }
+
+    /**
+     * Pass each job definition to an action as it is read, without retaining the complete list.
+     * @param action The action to perform for each job definition.
+     * @return true if all job definitions were retrieved.
+     */
+    default boolean forEachJob(Consumer<? super JobDefinition> action) {
+        return forEachJob(action, null);
+    }
+
+    /**
+     * Pass each job definition to an action as it is read, without retaining the complete list. The default
+     * implementation retrieves the list using {@link #listJobs(String)}; implementations should override it to
+     * read the job definitions incrementally.
+     * @param action The action to perform for each job definition.
+     * @param token The OAuth token.
+     * @return true if all job definitions were retrieved.
+     */
+    default boolean forEachJob(Consumer<? super JobDefinition> action, String token) {
+        List<JobDefinition> jobs = listJobs(token);
+        if (jobs == null) {
+            return false;
+        }
+        jobs.forEach(action);
+        return true;
+    }
+
+    /**
+     * Return the job definitions that match a query.
+     * @param query The query.
+     * @return The matching job definitions or null if the jobs could not be retrieved.
+     */
+    default List<JobDefinition> findJobs(JobQuery query) {
+        return findJobs(query, null);
+    }
+
+    /**
+     * Return the job definitions that match a query. The default implementation reads the jobs using
+     * {@link #forEachJob(Consumer, String)} and retains only those that match.
+     * @param query The query.
+     * @param token The OAuth token.
+     * @return The matching job definitions or null if the jobs could not be retrieved.
+     */
+    default List<JobDefinition> findJobs(JobQuery query, String token) {
+        QueryCollector<JobDefinition> collector = query.collector();
+        return forEachJob(collector::add, token) ? collector.getResults() : null;
+    }
+
     /**
      * Retrieve the exection statistics for a particular job execution.
      * @param executionId The job execution's id.
@@ -202,6 +282,18 @@ public interface Scheduler {
      */
     JobStat getJobExecutionStats(String executionId, String token);
 
+    /**
+     * Retrieve the exection statistics for a particular job execution. The default implementation ignores the
+     * call options.
+     * @param executionId The job execution's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return The job execution statistics or null, if the job execution cannot be located.
+     */
+    default JobStat getJobExecutionStats(String executionId, String token, CallOptions options) {
+        return getJobExecutionStats(executionId, token);
+    }
+
     /**
      * Retrieve all execution stats for a job.
      * @param jobId The job's id.
@@ -219,6 +311,49 @@ public interface Scheduler {
      */
     List<JobStat> getAllJobExecutionStats(String jobId, String token);
 
+    /**
+     * Retrieve all execution stats for a job. The default implementation ignores the call options.
+     * @param jobId The job's id.
+     * @param token The OAuth token.
+     * @param options The deadline and hedging options, or null for none.
+     * @return A List of execution statistics.
+     */
+    default List<JobStat> getAllJobExecutionStats(String jobId, String token, CallOptions options) {
+        return getAllJobExecutionStats(jobId, token);
+    }
+
+    /**
+     * Return the execution statistics of a job that match a query.
+     * @param jobId The job's id.
+     * @param query The query.
+     * @return The matching execution statistics or null if they could not be retrieved.
+     */
+    default List<JobStat> findJobExecutionStats(String jobId, ExecutionQuery query) {
+        return findJobExecutionStats(jobId, query, null);
+    }
+
+    /**
+     * Return the execution statistics of a job that match a query. The default implementation filters the
+     * result of {@link #getAllJobExecutionStats(String, String)}.
+     * @param jobId The job's id.
+     * @param query The query.
+     * @param token The OAuth token.
+     * @return The matching execution statistics or null if they could not be retrieved.
+     */
+    default List<JobStat> findJobExecutionStats(String jobId, ExecutionQuery query, String token) {
+        List<JobStat> stats = getAllJobExecutionStats(jobId, token);
+        if (stats == null) {
+            return null;
+        }
+        QueryCollector<JobStat> collector = query.collector();
+        for (JobStat stat : stats) {
+            if (!collector.add(stat)) {
+                break;
+            }
+        }
+        return collector.getResults();
+    }
+
     /**
      * Update a job's execution status.
      * @param jobId The job's id.
@@ -0,0 +1,309 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.api;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * Parses the timestamps and durations NextKala returns into primitive nanosecond values, so that model
+ * objects can store them compactly and parse each value at most once.
+ *
+ * <p>Timestamps are RFC 3339 strings, such as 2020-11-01T02:00:04.513Z, and are converted to nanoseconds since
+ * the epoch. Only times between 1678 and 2261 can be represented; other times, including the zero time
+ * 0001-01-01T00:00:00Z that NextKala reports for times that have not occurred, are treated as absent.
+ * Durations are either a number of nanoseconds, as NextKala encodes them, a Go duration string such as
+ * 1m30.5s, or an ISO 8601 duration such as PT1M30.5S.</p>
+ */
+final class TimeValues {
+
+    /**
+     * The value of a field that is absent or cannot be parsed.
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+
+    /**
+     * The value of a field that has not been parsed yet.
+     */
+    static final long NOT_PARSED = Long.MIN_VALUE + 1;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int FRACTION_DIGITS = 9;
+    private static final long[] UNITS = {1L, 1_000L, 1_000_000L, NANOS_PER_SECOND, 60 * NANOS_PER_SECOND,
+        3600 * NANOS_PER_SECOND};
+
+    private TimeValues() {
+    }
+
+    /**
+     * Parse a timestamp.
+     * @param value The timestamp.
+     * @return The nanoseconds since the epoch, or ABSENT.
+     */
+    static long parseEpochNanos(String value) {
+        if (value == null || value.isEmpty()) {
+            return ABSENT;
+        }
+        long nanos = parseRfc3339(value);
+        if (nanos != NOT_PARSED) {
+            return nanos;
+        }
+        try {
+            return toEpochNanos(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeException ex) {
+            return ABSENT;
+        }
+    }
+
+    /**
+     * Parse a duration.
+     * @param value The duration.
+     * @return The duration in nanoseconds, or ABSENT.
+     */
+    static long parseDurationNanos(String value) {
+        if (value == null || value.isEmpty()) {
+            return ABSENT;
+        }
+        try {
+            if (value.charAt(0) == 'P' || value.length() > 1 && value.charAt(1) == 'P') {
+                return Duration.parse(value).toNanos();
+            }
+            return parseGoDuration(value);
+        } catch (DateTimeException | ArithmeticException | NumberFormatException ex) {
+            return ABSENT;
+        }
+    }
+
+    /**
+     * Convert an instant to nanoseconds since the epoch.
+     * @param instant The instant.
+     * @return The nanoseconds since the epoch, or ABSENT if the instant is null or cannot be represented.
+     */
+    static long toEpochNanos(Instant instant) {
+        if (instant == null) {
+            return ABSENT;
+        }
+        try {
+            long nanos = Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND),
+                    instant.getNano());
+            return nanos == NOT_PARSED || nanos == ABSENT ? ABSENT : nanos;
+        } catch (ArithmeticException ex) {
+            return ABSENT;
+        }
+    }
+
+    /**
+     * Convert nanoseconds since the epoch to an instant.
+     * @param epochNanos The nanoseconds since the epoch, or ABSENT.
+     * @return The instant or null if the value is absent.
+     */
+    static Instant toInstant(long epochNanos) {
+        return epochNanos == ABSENT ? null : Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    /**
+     * Convert nanoseconds to a duration.
+     * @param nanos The nanoseconds, or ABSENT.
+     * @return The duration or null if the value is absent.
+     */
+    static Duration toDuration(long nanos) {
+        return nanos == ABSENT ? null : Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Parse the common yyyy-MM-ddTHH:mm:ss[.fraction](Z|+HH:MM) form without allocating.
+     * @return The nanoseconds since the epoch, ABSENT if the time is out of range, or NOT_PARSED if the value is
+     *     not in this form.
+     */
+    private static long parseRfc3339(String value) {
+        int length = value.length();
+        if (length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(13) != ':'
+                || value.charAt(16) != ':' || Character.toUpperCase(value.charAt(10)) != 'T') {
+            return NOT_PARSED;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+                || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NOT_PARSED;
+        }
+        int pos = 19;
+        long fraction = 0;
+        if (value.charAt(pos) == '.') {
+            int start = ++pos;
+            while (pos < length && Character.isDigit(value.charAt(pos))) {
+                if (pos - start < FRACTION_DIGITS) {
+                    fraction = fraction * 10 + value.charAt(pos) - '0';
+                }
+                ++pos;
+            }
+            if (pos == start) {
+                return NOT_PARSED;
+            }
+            for (int i = pos - start; i < FRACTION_DIGITS; ++i) {
+                fraction *= 10;
+            }
+        }
+        if (pos >= length) {
+            return NOT_PARSED;
+        }
+        int offsetSeconds;
+        char zone = value.charAt(pos);
+        if ((zone == 'Z' || zone == 'z') && pos + 1 == length) {
+            offsetSeconds = 0;
+        } else if ((zone == '+' || zone == '-') && pos + 6 == length && value.charAt(pos + 3) == ':') {
+            int offsetHours = digits(value, pos + 1, 2);
+            int offsetMinutes = digits(value, pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return NOT_PARSED;
+            }
+            offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+        } else {
+            return NOT_PARSED;
+        }
+        long seconds = epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+        try {
+            long nanos = Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), fraction);
+            return nanos == NOT_PARSED || nanos == ABSENT ? ABSENT : nanos;
+        } catch (ArithmeticException ex) {
+            return ABSENT;
+        }
+    }
+
+    /**
+     * Parse a Go duration string, or a plain number of nanoseconds.
+     */
+    private static long parseGoDuration(String value) {
+        int length = value.length();
+        int pos = 0;
+        boolean negative = false;
+        char sign = value.charAt(0);
+        if (sign == '-' || sign == '+') {
+            negative = sign == '-';
+            ++pos;
+        }
+        if (pos < length && allDigits(value, pos)) {
+            long nanos = Long.parseLong(value.substring(pos));
+            return negative ? -nanos : nanos;
+        }
+        long total = 0;
+        while (pos < length) {
+            long whole = 0;
+            long fraction = 0;
+            long scale = 1;
+            int start = pos;
+            while (pos < length && Character.isDigit(value.charAt(pos))) {
+                whole = Math.addExact(Math.multiplyExact(whole, 10), value.charAt(pos++) - '0');
+            }
+            boolean hasWhole = pos > start;
+            boolean hasFraction = false;
+            if (pos < length && value.charAt(pos) == '.') {
+                ++pos;
+                while (pos < length && Character.isDigit(value.charAt(pos))) {
+                    if (scale < NANOS_PER_SECOND * 1000) {
+                        fraction = fraction * 10 + value.charAt(pos) - '0';
+                        scale *= 10;
+                    }
+                    hasFraction = true;
+                    ++pos;
+                }
+            }
+            if (!hasWhole && !hasFraction) {
+                return ABSENT;
+            }
+            int unitStart = pos;
+            while (pos < length && !Character.isDigit(value.charAt(pos)) && value.charAt(pos) != '.') {
+                ++pos;
+            }
+            long unit = unit(value.substring(unitStart, pos));
+            if (unit == 0) {
+                return ABSENT;
+            }
+            total = Math.addExact(total, Math.addExact(Math.multiplyExact(whole, unit),
+                    (long) ((double) fraction * unit / scale)));
+        }
+        return negative ? -total : total;
+    }
+
+    private static long unit(String name) {
+        switch (name) {
+            case "ns":
+                return UNITS[0];
+            case "us":
+            case "µs":
+            case "μs":
+                return UNITS[1];
+            case "ms":
+                return UNITS[2];
+            case "s":
+                return UNITS[3];
+            case "m":
+                return UNITS[4];
+            case "h":
+                return UNITS[5];
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean allDigits(String value, int from) {
+        for (int i = from; i < value.length(); ++i) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digits(String value, int from, int count) {
+        int result = 0;
+        for (int i = from; i < from + count; ++i) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + c - '0';
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.api;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing NextKala timestamps with OffsetDateTime against TimeValues, and sorting execution
+ * statistics by re-parsing ran_at against the retained epoch nanoseconds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeParsingBenchmark {
+
+    private static final int STATS = 10_000;
+    private static final String TIME = "2020-11-01T02:00:04.513Z";
+
+    private List<JobStat> stats;
+
+    /**
+     * Create the execution statistics, in reverse order of their run times.
+     */
+    @Setup
+    public void setup() {
+        stats = new ArrayList<>(STATS);
+        for (int i = STATS; i > 0; --i) {
+            JobStat stat = new JobStat();
+            stat.setRantAt(String.format("2020-11-01T%02d:%02d:%02d.%03dZ", i / 3600 % 24, i / 60 % 60, i % 60,
+                    i % 1000));
+            stats.add(stat);
+        }
+    }
+
+    /**
+     * Parse a timestamp with OffsetDateTime.
+     * @return The epoch seconds.
+     */
+    @Benchmark
+    public long offsetDateTime() {
+        return OffsetDateTime.parse(TIME).toEpochSecond();
+    }
+
+    /**
+     * Parse a timestamp with TimeValues.
+     * @return The epoch nanoseconds.
+     */
+    @Benchmark
+    public long timeValues() {
+        return TimeValues.parseEpochNanos(TIME);
+    }
+
+    /**
+     * Sort execution statistics by parsing ran_at in the comparator.
+     * @return The sorted statistics.
+     */
+    @Benchmark
+    public List<JobStat> sortByParsedString() {
+        List<JobStat> sorted = new ArrayList<>(stats);
+        sorted.sort(Comparator.comparing(stat -> OffsetDateTime.parse(stat.getRantAt())));
+        return sorted;
+    }
+
+    /**
+     * Sort execution statistics by their retained epoch nanoseconds.
+     * @return The sorted statistics.
+     */
+    @Benchmark
+    public List<JobStat> sortByRanAt() {
+        List<JobStat> sorted = new ArrayList<>(stats);
+        sorted.sort(JobStat.BY_RAN_AT);
+        return sorted;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import com.nextiva.scheduling.agent.AbstractScheduledJob;
+import com.nextiva.scheduling.agent.SchedulerClient;
+import com.nextiva.scheduling.agent.controller.ScheduledJobController;
+
+/**
+ * The cost of dispatching a run through ScheduledJobController.runJob, from the controller call until the
+ * job has executed, including the RUNNING status update. The controller is created by Spring with its default
+ * executor settings and its status updates go to a stub transport. Runs are dispatched in batches no larger
+ * than the default queue capacity so that none are rejected.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerDispatchBenchmark {
+
+    private static final int BATCH = 100;
+    private static final String JOB_NAME = "Noop";
+    private static final String JOB_ID = "5f0c6b8e-2d7a-4a36-9a1e-000000000001";
+    private static final String EXECUTION_ID = "0b9a7c1e-53d2-4f80-8c6b-1e2f3a4b5c6d";
+
+    private AnnotationConfigApplicationContext context;
+    private ScheduledJobController controller;
+    private NoopJob job;
+
+    /**
+     * Create the application context.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(AgentConfiguration.class);
+        controller = context.getBean(ScheduledJobController.class);
+        job = context.getBean(NoopJob.class);
+    }
+
+    /**
+     * Close the application context, which shuts down the controller's executor.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Dispatch a batch of runs and wait for them to execute.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void runJob() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        job.done = done;
+        for (int i = 0; i < BATCH; ++i) {
+            ResponseEntity<Void> response = controller.runJob(JOB_NAME, null, JOB_ID, EXECUTION_ID, null);
+            if (response.getStatusCode() != HttpStatus.ACCEPTED) {
+                throw new IllegalStateException("Run was not dispatched: " + response.getStatusCode());
+            }
+        }
+        done.await();
+    }
+
+    /**
+     * The beans the controller requires.
+     */
+    public static class AgentConfiguration {
+
+        /**
+         * Create the controller.
+         * @return The controller.
+         */
+        @Bean
+        public ScheduledJobController controller() {
+            return new ScheduledJobController();
+        }
+
+        /**
+         * Create a SchedulerClient whose status updates go to a stub transport.
+         * @return The client.
+         */
+        @Bean
+        public SchedulerClient client() {
+            StubClientHttpRequestFactory transport = new StubClientHttpRequestFactory()
+                    .respond(HttpMethod.PUT, Fixtures.JOB_PATH + JOB_ID + "/executions/" + EXECUTION_ID + "/",
+                            HttpStatus.NO_CONTENT, new byte[0]);
+            return new SchedulerClient(new RestTemplate(transport), Fixtures.BASE_URI);
+        }
+
+        /**
+         * Create the job.
+         * @return The job.
+         */
+        @Bean(JOB_NAME)
+        public NoopJob job() {
+            return new NoopJob();
+        }
+    }
+
+    /**
+     * A job that only records that it ran.
+     */
+    public static class NoopJob extends AbstractScheduledJob {
+        private volatile CountDownLatch done;
+
+        @Override
+        public int executeJob(String jobId, String executionId, String jobParams) {
+            done.countDown();
+            return 0;
+        }
+
+        @Override
+        public boolean validateJob(String jobParams) {
+            return true;
+        }
+    }
+}
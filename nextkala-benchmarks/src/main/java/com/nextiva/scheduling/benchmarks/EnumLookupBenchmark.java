@@ -0,0 +1,83 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nextiva.scheduling.api.enums.JobStatus;
+import com.nextiva.scheduling.api.enums.JobType;
+
+/**
+ * The lookups Jackson uses to deserialize JobStatus and JobType values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumLookupBenchmark {
+
+    /**
+     * Look up a JobStatus by its value.
+     * @param value The value.
+     * @return The JobStatus.
+     */
+    @Benchmark
+    public JobStatus jobStatus(StatusValue value) {
+        return JobStatus.getStatus(value.status);
+    }
+
+    /**
+     * Look up a JobType by its value.
+     * @param value The value.
+     * @return The JobType.
+     */
+    @Benchmark
+    public JobType jobType(TypeValue value) {
+        return JobType.getType(value.type);
+    }
+
+    /**
+     * A JobStatus value.
+     */
+    @State(Scope.Benchmark)
+    public static class StatusValue {
+        @Param({"Started", "Success", "Unknown"})
+        private String status;
+    }
+
+    /**
+     * A JobType value.
+     */
+    @State(Scope.Benchmark)
+    public static class TypeValue {
+        @Param({"0", "1"})
+        private int type;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobStat;
+import com.nextiva.scheduling.api.Metadata;
+import com.nextiva.scheduling.api.RemoteProperties;
+import com.nextiva.scheduling.api.enums.JobType;
+
+/**
+ * Realistically populated model objects for the benchmarks.
+ */
+public final class Fixtures {
+
+    /**
+     * The base URI used by the benchmark clients. The stub transport only looks at the path.
+     */
+    public static final String BASE_URI = "http://nextkala:8080";
+
+    /**
+     * The path of the job endpoints.
+     */
+    public static final String JOB_PATH = "/api/v1/job/";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Create an ObjectMapper configured the way RestTemplate configures its JSON converter.
+     * @return The ObjectMapper.
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * Create a remote job definition with metadata, as NextKala returns it.
+     * @param index Distinguishes the job from the other jobs in a list.
+     * @return The JobDefinition.
+     */
+    public static JobDefinition jobDefinition(int index) {
+        JobDefinition job = new JobDefinition();
+        job.setId(String.format("5f0c6b8e-2d7a-4a36-9a1e-%012d", index));
+        job.setName("Reports" + index);
+        job.setOwner("reports@example.com");
+        job.setSchedule("R/2020-11-01T02:00:00.000Z/PT24H");
+        job.setEpsilon("PT5M");
+        job.setRetries(3);
+        job.setNextRunAt("2020-11-02T02:00:00Z");
+        job.setDependentJobs(new String[0]);
+        job.setParentJobs(new String[0]);
+        job.setType(JobType.REMOTE_JOB);
+        RemoteProperties remote = new RemoteProperties();
+        remote.setUrl("http://reports-agent:8080/private/v1/scheduledJob/Reports");
+        remote.setMethod("POST");
+        remote.setBody("{\"accountId\":\"" + index + "\",\"format\":\"pdf\",\"recipients\":[\"ops@example.com\"]}");
+        remote.setTimeout(30);
+        remote.setExpectedResponseCodes(new int[] {202});
+        job.setRemoteProperties(remote);
+        Metadata metadata = new Metadata();
+        metadata.setSuccessCount(412);
+        metadata.setErrorCount(3);
+        metadata.setNumberOfFinishedRuns(415);
+        metadata.setLastSuccess("2020-11-01T02:00:04.513Z");
+        metadata.setLastError("2020-10-12T02:00:31.027Z");
+        metadata.setLastAttemptedRun("2020-11-01T02:00:00.002Z");
+        job.setMetadata(metadata);
+        return job;
+    }
+
+    /**
+     * Create a list of job definitions.
+     * @param count The number of jobs.
+     * @return The list.
+     */
+    public static List<JobDefinition> jobDefinitions(int count) {
+        List<JobDefinition> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            jobs.add(jobDefinition(i));
+        }
+        return jobs;
+    }
+
+    /**
+     * Create the statistics of a job run.
+     * @return The JobStat.
+     */
+    public static JobStat jobStat() {
+        JobStat stat = new JobStat();
+        stat.setJobId("5f0c6b8e-2d7a-4a36-9a1e-000000000000");
+        stat.setRantAt("2020-11-01T02:00:00.002Z");
+        stat.setNumberOfRetries(1);
+        stat.setSuccess(true);
+        stat.setExecutionDuration("4.511s");
+        return stat;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nextiva.scheduling.api.JobDefinition;
+import com.nextiva.scheduling.api.JobStat;
+
+/**
+ * JSON serialization and deserialization of the NextKala model, using an ObjectMapper configured the way
+ * RestTemplate configures its JSON converter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectWriter jobWriter;
+    private ObjectReader jobReader;
+    private ObjectWriter statWriter;
+    private ObjectReader statReader;
+    private JobDefinition job;
+    private byte[] jobJson;
+    private JobStat stat;
+    private byte[] statJson;
+
+    /**
+     * Create the readers, writers and documents.
+     * @throws IOException if a document cannot be written.
+     */
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = Fixtures.objectMapper();
+        jobWriter = mapper.writerFor(JobDefinition.class);
+        jobReader = mapper.readerFor(JobDefinition.class);
+        statWriter = mapper.writerFor(JobStat.class);
+        statReader = mapper.readerFor(JobStat.class);
+        job = Fixtures.jobDefinition(1);
+        jobJson = jobWriter.writeValueAsBytes(job);
+        stat = Fixtures.jobStat();
+        statJson = statWriter.writeValueAsBytes(stat);
+    }
+
+    /**
+     * Serialize a job definition.
+     * @return The JSON.
+     * @throws IOException if the job cannot be written.
+     */
+    @Benchmark
+    public byte[] writeJobDefinition() throws IOException {
+        return jobWriter.writeValueAsBytes(job);
+    }
+
+    /**
+     * Deserialize a job definition.
+     * @return The job definition.
+     * @throws IOException if the job cannot be read.
+     */
+    @Benchmark
+    public JobDefinition readJobDefinition() throws IOException {
+        return jobReader.readValue(jobJson);
+    }
+
+    /**
+     * Serialize the statistics of a run.
+     * @return The JSON.
+     * @throws IOException if the stat cannot be written.
+     */
+    @Benchmark
+    public byte[] writeJobStat() throws IOException {
+        return statWriter.writeValueAsBytes(stat);
+    }
+
+    /**
+     * Deserialize the statistics of a run.
+     * @return The JobStat.
+     * @throws IOException if the stat cannot be read.
+     */
+    @Benchmark
+    public JobStat readJobStat() throws IOException {
+        return statReader.readValue(statJson);
+    }
+
+    /**
+     * Serialize a list of job definitions.
+     * @param jobs The list.
+     * @return The JSON.
+     * @throws IOException if the list cannot be written.
+     */
+    @Benchmark
+    public byte[] writeJobList(JobList jobs) throws IOException {
+        return jobs.writer.writeValueAsBytes(jobs.jobs);
+    }
+
+    /**
+     * Deserialize a list of job definitions, as returned by NextKala's job listing.
+     * @param jobs The list.
+     * @return The job definitions.
+     * @throws IOException if the list cannot be read.
+     */
+    @Benchmark
+    public List<JobDefinition> readJobList(JobList jobs) throws IOException {
+        return jobs.reader.readValue(jobs.json);
+    }
+
+    /**
+     * A list of job definitions of a particular size.
+     */
+    @State(Scope.Benchmark)
+    public static class JobList {
+
+        @Param({"10", "100", "1000"})
+        private int size;
+
+        private ObjectWriter writer;
+        private ObjectReader reader;
+        private List<JobDefinition> jobs;
+        private byte[] json;
+
+        /**
+         * Create the list and its document.
+         * @throws IOException if the list cannot be written.
+         */
+        @Setup
+        public void setup() throws IOException {
+            ObjectMapper mapper = Fixtures.objectMapper();
+            TypeReference<List<JobDefinition>> type = new TypeReference<List<JobDefinition>>() { };
+            writer = mapper.writerFor(type);
+            reader = mapper.readerFor(type);
+            jobs = Fixtures.jobDefinitions(size);
+            json = writer.writeValueAsBytes(jobs);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to Nextiva under one or more contributor license agreements. See
+ * the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * Nextiva licenses this file to You under the Apache license, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the license for the specific language governing permissions and
+ * limitations under the license.
+ */
+
+package com.nextiva.scheduling.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A RestTemplate transport that answers from canned responses without any I/O, so that benchmarks measure
+ * the client rather than the network. Request bodies are written to a stream that discards them. Requests
+ * that have no canned response receive a 404.
+ */
+public class StubClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private static final HttpHeaders JSON_HEADERS;
+    private static final StubResponse NOT_FOUND = new StubResponse(HttpStatus.NOT_FOUND, new byte[0]);
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private final Map<String, StubResponse> responses = new HashMap<>();
+
+    /**
+     * Register the response to a request.
+     * @param method The request method.
+     * @param path The raw path of the request URI.
+     * @param status The response status.
+     * @param body The response body.
+     * @return This factory.
+     */
+    public StubClientHttpRequestFactory respond(HttpMethod method, String path, HttpStatus status, byte[] body) {
+        responses.put(key(method, path), new StubResponse(status, body));
+        return this;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod method) {
+        return new StubRequest(uri, method, responses.getOrDefault(key(method, uri.getRawPath()), NOT_FOUND));
+    }
+
+    private static String key(HttpMethod method, String path) {
+        return method.name() + ' ' + path;
+    }
+
+    private static final class StubRequest implements ClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final StubResponse response;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        StubRequest(URI uri, HttpMethod method, StubResponse response) {
+            this.uri = uri;
+            this.method = method;
+            this.response = response;
+        }
+
+        @Override
+        public ClientHttpResponse execute() {
+            return response;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static final class StubResponse implements ClientHttpResponse {
+        private final HttpStatus status;
+        private final byte[] body;
+
+        StubResponse(HttpStatus status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return status.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return status.getReasonPhrase();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return JSON_HEADERS;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}